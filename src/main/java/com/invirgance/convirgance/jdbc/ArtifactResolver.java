@@ -0,0 +1,94 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc;
+
+import com.invirgance.convirgance.json.JSONArray;
+import java.io.PrintStream;
+import java.net.URL;
+import org.jboss.shrinkwrap.resolver.api.maven.ConfigurableMavenResolverSystem;
+import org.jboss.shrinkwrap.resolver.api.maven.Maven;
+
+/**
+ * Resolves driver artifacts and their transitive dependencies from Maven.
+ * This is the only class that references the resolver, so the resolver 
+ * classes are never loaded when drivers come from a bundle or a classpath lock.
+ * The SLF4J start-up warnings printed by the resolver are filtered from 
+ * <code>System.err</code> when this class is first used.
+ *
+ * @author jbanes
+ */
+class ArtifactResolver
+{
+    static
+    {
+        quietLogging();
+    }
+    
+    // Disable unnecessary maven logging. Only done once a resolve is needed.
+    private static void quietLogging()
+    {
+        PrintStream err = System.err;
+        
+        if(System.getProperty("org.slf4j.simpleLogger.defaultLogLevel") != null) return;
+        
+        System.getProperty("org.slf4j.simpleLogger.defaultLogLevel", "error");
+        
+        System.setErr(new PrintStream(err) {
+            private int counter;
+            
+            @Override
+            public void println(String str)
+            {
+                if(str.startsWith("SLF4J: ") && counter < 3)
+                {
+                    counter++;
+                    
+                    return;
+                }
+                
+                if(System.err == this)
+                {
+                    System.setErr(err); // We're done filtering. Time to return the stream
+                }
+                
+                super.println(str);
+            }
+
+        });
+    }
+    
+    /**
+     * Resolves the artifacts and all transitive dependencies, downloading
+     * them into the local Maven repository if needed.
+     *
+     * @param artifacts Maven coordinates
+     * @return the resolved jar files
+     */
+    static URL[] resolve(JSONArray<String> artifacts)
+    {
+        ConfigurableMavenResolverSystem maven = Maven.configureResolver();
+        
+        return maven.withMavenCentralRepo(true).resolve(artifacts).withTransitivity().as(URL.class);
+    }
+}
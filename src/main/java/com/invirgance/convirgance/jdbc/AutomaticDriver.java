@@ -28,6 +28,8 @@ import com.invirgance.convirgance.json.JSONArray;
 import com.invirgance.convirgance.json.JSONObject;
 import java.sql.Driver;
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import javax.sql.DataSource;
 
 /**
@@ -57,6 +59,21 @@ public class AutomaticDriver
         return database.getDriver(record);
     }
     
+    /**
+     * Returns the driver without blocking the calling thread. If the driver 
+     * artifacts have not been loaded yet, Maven resolution runs on the 
+     * provided executor. Concurrent requests for the same artifacts share a
+     * single resolution.
+     * 
+     * @param executor runs the resolution if the driver is not yet loaded
+     * @return a future completing with the driver, or with null if no driver
+     *         class is configured
+     */
+    public CompletableFuture<Driver> getDriverAsync(Executor executor)
+    {
+        return database.getDriverAsync(new JSONObject(record.toString()), executor);
+    }
+    
     public void setDriver(String driverClass)
     {
         record.put("driver", driverClass);
@@ -85,6 +102,22 @@ public class AutomaticDriver
         return database.getDataSource(record);
     }
     
+    /**
+     * Returns an unconfigured <code>DataSource</code> without blocking the
+     * calling thread. Maven resolution, if needed, runs on the provided 
+     * executor and is shared with any concurrent requests for the same 
+     * artifacts.
+     * 
+     * @param executor runs the resolution if the data source is not yet loaded
+     * @return a future completing with the data source, or with null if no
+     *         data source class is configured
+     * @see #getDataSource()
+     */
+    public CompletableFuture<DataSource> getDataSourceAsync(Executor executor)
+    {
+        return database.getDataSourceAsync(new JSONObject(record.toString()), executor);
+    }
+    
     /**
      * Sets the DataSource the Driver will use when creating connections.
      * 
@@ -118,7 +151,10 @@ public class AutomaticDriver
     
     /**
      * Set the maven artifacts for the driver, these will be used to load the driver.
-     * Include the full artifact coordinates.
+     * Include the full artifact coordinates. The class loader cached for the 
+     * previous coordinates is shared with other drivers and is only discarded
+     * when the change is saved.
+     * 
      * @param artifacts Artifacts
      */
     public void setArtifacts(String... artifacts)
@@ -126,6 +162,33 @@ public class AutomaticDriver
         record.put("artifact", new JSONArray(Arrays.asList(artifacts)));
     }
     
+    /**
+     * Returns the number of driver and data source instances loaded from the
+     * current artifacts that are still in use.
+     * 
+     * @return the number of live instances
+     */
+    public int getReferenceCount()
+    {
+        return database.getReferenceCount(record.getJSONArray("artifact"));
+    }
+    
+    /**
+     * Force-releases the loaded version of this driver. The driver is 
+     * deregistered from the DriverManager and its jars are closed so the 
+     * classes can be unloaded. Instances obtained earlier should no longer 
+     * be used. The next call to {@link #getDriver()} loads the driver again.
+     * 
+     * Replaced versions are released automatically once their instances are 
+     * garbage collected, so this is only needed to reclaim a version early.
+     * 
+     * @return true if a loaded version was released
+     */
+    public boolean release()
+    {
+        return database.release(record.getJSONArray("artifact"));
+    }
+    
     /**
      * Returns the prefixes that can be used in connection URLs.
      * 
@@ -214,13 +277,22 @@ public class AutomaticDriver
     }
     
     /**
-     * Persist changes of the driver configuration to the driver list
+     * Persist changes of the driver configuration to the driver list. If the
+     * artifacts differ from the stored configuration, the class loader cached
+     * for the stored artifacts is discarded.
      * 
      * @throws ConvirganceException if configured drivers cannot be loaded or 
      *         there is a database conflict
      */
     public void save() throws ConvirganceException
     {
+        JSONObject stored = database.findDescriptorByName(getName());
+        
+        if(stored != null && !record.getJSONArray("artifact").equals(stored.getJSONArray("artifact")))
+        {
+            database.invalidate(stored.getJSONArray("artifact"));
+        }
+        
         if(getDriver() == null) throw new ConvirganceException("Unable to validate driver " + record.get("driver") + " using artifacts " + record.getJSONArray("artifact"));
         
         database.saveDescriptor(record);
@@ -24,8 +24,12 @@ package com.invirgance.convirgance.jdbc;
 import com.invirgance.convirgance.ConvirganceException;
 import com.invirgance.convirgance.json.JSONArray;
 import com.invirgance.convirgance.json.JSONObject;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Provides access to common database drivers with an ability to add more as
@@ -49,6 +53,8 @@ import java.util.Iterator;
  */
 public class AutomaticDrivers implements Iterable<AutomaticDriver>
 {
+    private static final int PREWARM_THREADS = 4;
+    
     private static final DriverDatabase database = new DriverDatabase();
     
     public static AutomaticDriverBuilder createDriver(String name) throws ConvirganceException
@@ -81,10 +87,104 @@ public class AutomaticDrivers implements Iterable<AutomaticDriver>
         return new AutomaticDrivers();
     }
     
+    private static PrewarmResult prewarm(String name)
+    {
+        long start = System.nanoTime();
+        AutomaticDriver driver = null;
+        
+        try
+        {
+            driver = getDriverByName(name);
+            
+            if(driver == null) throw new ConvirganceException("Unknown driver " + name);
+            if(driver.getDriver() == null) throw new ConvirganceException("Driver " + name + " does not have a Driver class");
+            if(driver.getDataSourceClassName() != null) driver.getDataSource();
+            
+            return new PrewarmResult(name, driver, System.nanoTime() - start, null);
+        }
+        catch(RuntimeException | LinkageError | ServiceConfigurationError e)
+        {
+            // A broken driver jar fails that driver, not the whole prewarm
+            return new PrewarmResult(name, driver, System.nanoTime() - start, e);
+        }
+    }
+    
+    /**
+     * Resolves and loads the named drivers in the background so that the first
+     * call to {@link AutomaticDriver#getDriver()} does not pay for resolution.
+     * Drivers are loaded in parallel on a bounded pool of daemon threads. If 
+     * no names are provided, all known drivers are loaded.
+     * 
+     * @param names the names of the drivers to load
+     * @return a future completing with one result per driver once all drivers
+     *         have been attempted. Failures are reported in the results rather
+     *         than by completing the future exceptionally.
+     */
+    public static CompletableFuture<PrewarmResult[]> prewarm(String... names)
+    {
+        return prewarm(PREWARM_THREADS, names);
+    }
+    
+    /**
+     * Resolves and loads the named drivers in the background using up to the
+     * requested number of threads. If no names are provided, all known drivers 
+     * are loaded.
+     * 
+     * @param threads the maximum number of drivers to load at once
+     * @param names the names of the drivers to load
+     * @return a future completing with one result per driver once all drivers
+     *         have been attempted
+     * @see #prewarm(String...)
+     */
+    public static CompletableFuture<PrewarmResult[]> prewarm(int threads, String... names)
+    {
+        List<String> list = new ArrayList<>(Arrays.asList(names));
+        
+        if(list.isEmpty())
+        {
+            for(AutomaticDriver driver : list()) list.add(driver.getName());
+        }
+        
+        return ParallelTasks.run("convirgance-jdbc-prewarm", threads, list, AutomaticDrivers::prewarm, PrewarmResult[]::new);
+    }
+    
+    /**
+     * Loads the named drivers together so that dependencies they have in 
+     * common are only loaded once. Any transitive dependency with identical 
+     * coordinates used by more than one of the drivers is placed in a shared 
+     * parent loader, saving the metaspace and JIT work of loading the same 
+     * classes several times. The driver artifacts themselves stay separate.
+     * 
+     * This mode is optional. Shared jars can only see other shared jars, so 
+     * it should not be used with drivers that depend on different versions of
+     * a library used by a shared jar. Drivers whose artifacts are already 
+     * loaded keep their existing loader.
+     * 
+     * @param names the names of the drivers to load
+     * @return diagnostics reporting the shared jars and the classes saved
+     * @throws ConvirganceException if a driver does not exist
+     */
+    public static SharedDependencies loadShared(String... names) throws ConvirganceException
+    {
+        List<JSONArray<String>> artifacts = new ArrayList<>();
+        AutomaticDriver driver;
+        
+        for(String name : names)
+        {
+            driver = getDriverByName(name);
+            
+            if(driver == null) throw new ConvirganceException("Unknown driver " + name);
+            
+            artifacts.add(new JSONArray<>(Arrays.asList(driver.getArtifacts())));
+        }
+        
+        return new SharedDependencies(names.clone(), DriverClassLoaders.share(artifacts));
+    }
+    
     @Override
     public Iterator<AutomaticDriver> iterator()
     {
-        Iterator<JSONObject> drivers = new DriverDatabase().iterator();
+        Iterator<JSONObject> drivers = database.iterator();
         
         return new Iterator<AutomaticDriver>() {
             
@@ -102,6 +202,84 @@ public class AutomaticDrivers implements Iterable<AutomaticDriver>
         };
     }
     
+    /**
+     * Reports the outcome of loading a single driver during 
+     * {@link AutomaticDrivers#prewarm(String...)}.
+     */
+    public static class PrewarmResult
+    {
+        private String name;
+        private AutomaticDriver driver;
+        private long nanos;
+        private Throwable error;
+        
+        PrewarmResult(String name, AutomaticDriver driver, long nanos, Throwable error)
+        {
+            this.name = name;
+            this.driver = driver;
+            this.nanos = nanos;
+            this.error = error;
+        }
+        
+        /**
+         * Returns the name of the driver that was requested.
+         * 
+         * @return the driver name
+         */
+        public String getName()
+        {
+            return name;
+        }
+        
+        /**
+         * Returns the driver that was loaded.
+         * 
+         * @return the driver, or null if no driver has the requested name
+         */
+        public AutomaticDriver getDriver()
+        {
+            return driver;
+        }
+        
+        /**
+         * Returns how long it took to resolve and load the driver.
+         * 
+         * @return the elapsed time in milliseconds
+         */
+        public long getTime()
+        {
+            return nanos / 1000000;
+        }
+        
+        /**
+         * Returns the error that prevented the driver from loading.
+         * 
+         * @return the error, or null if the driver loaded
+         */
+        public Throwable getError()
+        {
+            return error;
+        }
+        
+        /**
+         * Returns true if the driver was loaded.
+         * 
+         * @return true if the driver loaded without error
+         */
+        public boolean isLoaded()
+        {
+            return error == null;
+        }
+        
+        @Override
+        public String toString()
+        {
+            if(error != null) return name + " failed after " + getTime() + "ms: " + error.getMessage();
+            
+            return name + " loaded in " + getTime() + "ms";
+        }
+    }
+    
     public static class AutomaticDriverBuilder
     {
         private JSONObject record;
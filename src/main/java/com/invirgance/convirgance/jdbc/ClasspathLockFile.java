@@ -0,0 +1,202 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.storage.AtomicFile;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Records the jars resolved for a set of driver artifacts so that later runs
+ * can build the class loader without invoking the Maven resolver. Lock files
+ * are kept in a <code>classpath</code> directory inside the driver store and
+ * list the path, size, and SHA-256 checksum of every jar. A lock file is only
+ * trusted if every jar is still present and unchanged.
+ *
+ * @author jbanes
+ */
+class ClasspathLockFile
+{
+    private File file;
+    
+    /**
+     * Creates a lock file for the normalized artifact key.
+     *
+     * @param key the artifact key from {@link DriverClassLoaders#getKey(JSONArray)}
+     */
+    public ClasspathLockFile(String key)
+    {
+        File directory = new File(DriverDatabase.getLocation(), "classpath");
+        
+        this.file = new File(directory, toHex(digest(key.getBytes(StandardCharsets.UTF_8))) + ".json");
+    }
+    
+    private static MessageDigest getDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch(NoSuchAlgorithmException e) { throw new ConvirganceException(e); }
+    }
+    
+    private static byte[] digest(byte[] data)
+    {
+        return getDigest().digest(data);
+    }
+    
+    private static String toHex(byte[] data)
+    {
+        StringBuilder buffer = new StringBuilder(data.length * 2);
+        
+        for(byte value : data) buffer.append(String.format("%02x", value & 0xFF));
+        
+        return buffer.toString();
+    }
+    
+    static String checksum(File jar) throws IOException
+    {
+        MessageDigest digest = getDigest();
+        byte[] buffer = new byte[64 * 1024];
+        int count;
+        
+        try(InputStream in = new FileInputStream(jar))
+        {
+            while((count = in.read(buffer)) > 0) digest.update(buffer, 0, count);
+        }
+        
+        return toHex(digest.digest());
+    }
+    
+    /**
+     * Returns the file where the lock is stored.
+     *
+     * @return the lock file location
+     */
+    public File getFile()
+    {
+        return file;
+    }
+    
+    /**
+     * Returns the locked classpath if every recorded jar is still present and
+     * matches its checksum.
+     *
+     * @return the jar URLs, or null if the lock is missing or stale
+     */
+    public URL[] read()
+    {
+        JSONArray<JSONObject> files;
+        URL[] urls;
+        File jar;
+        
+        if(!file.exists()) return null;
+        
+        try
+        {
+            files = new JSONObject(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)).getJSONArray("files");
+            urls = new URL[files.size()];
+            
+            for(int i=0; i<urls.length; i++)
+            {
+                jar = new File(files.get(i).getString("path"));
+                
+                if(!jar.isFile() || jar.length() != files.get(i).getLong("size")) return null;
+                if(!checksum(jar).equals(files.get(i).getString("sha256"))) return null;
+                
+                urls[i] = jar.toURI().toURL();
+            }
+            
+            return urls;
+        }
+        catch(IOException | RuntimeException e)
+        {
+            // A damaged lock is treated the same as a missing one
+            return null;
+        }
+    }
+    
+    /**
+     * Records the resolved classpath for later runs.
+     *
+     * @param artifacts the artifact coordinates that were resolved
+     * @param urls the resolved jar files
+     */
+    public void write(JSONArray<String> artifacts, URL[] urls)
+    {
+        JSONObject lock = new JSONObject(true);
+        JSONArray<JSONObject> files = new JSONArray<>();
+        JSONObject record;
+        File jar;
+        
+        try
+        {
+            for(URL url : urls)
+            {
+                jar = new File(url.toURI());
+                record = new JSONObject(true);
+                
+                record.put("path", jar.getAbsolutePath());
+                record.put("size", jar.length());
+                record.put("sha256", checksum(jar));
+                
+                files.add(record);
+            }
+            
+            lock.put("artifacts", new JSONArray<>(artifacts));
+            lock.put("files", files);
+            
+            file.getParentFile().mkdirs();
+            
+            try(DataOutputStream out = new AtomicFile(file).getOutput())
+            {
+                out.write(lock.toString(4).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        catch(IOException | URISyntaxException | IllegalArgumentException e)
+        {
+            // The lock is an optimization. The resolver remains the source of truth.
+        }
+    }
+    
+    /**
+     * Removes the lock, forcing the next load to run the resolver.
+     */
+    public void delete()
+    {
+        file.delete();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc;
+
+import com.invirgance.convirgance.output.JSONOutput;
+import com.invirgance.convirgance.output.OutputCursor;
+import com.invirgance.convirgance.storage.AtomicFile;
+import com.invirgance.convirgance.storage.Config;
+import java.io.File;
+
+/**
+ * The one place that depends on how the storage {@link Config} lays out its
+ * directory. Config offers no way to read the metadata of its files or to
+ * write several records at once, so both are done here against the files 
+ * Config itself uses. ConfigFilesTest checks these assumptions against the
+ * real Config so that a change in the storage library is caught there rather
+ * than by stale snapshots or lost writes.
+ *
+ * @author jbanes
+ */
+class ConfigFiles
+{
+    private static final String DATA_FILE = "config.json";
+    private static final String DELETED_FILE = "deleted.idx";
+    
+    private ConfigFiles()
+    {
+    }
+    
+    /**
+     * Returns the files holding the store's records and its index of deleted
+     * records. Either file may not exist yet.
+     * 
+     * @param config the store
+     * @return the data file followed by the deleted index
+     */
+    public static File[] getFiles(Config config)
+    {
+        File directory = config.getDirectory();
+        
+        return new File[]{ new File(directory, DATA_FILE), new File(directory, DELETED_FILE) };
+    }
+    
+    /**
+     * Opens a cursor that replaces every record in the store. Records are 
+     * written in the same format as {@link Config#insert(com.invirgance.convirgance.json.JSONObject)}
+     * and the store is swapped in atomically when the cursor is closed. The
+     * caller is responsible for writing the records it wants to keep and for
+     * serializing writers.
+     * 
+     * @param config the store
+     * @return a cursor over the new contents of the store
+     */
+    public static OutputCursor rewrite(Config config)
+    {
+        return new JSONOutput().write(new AtomicFile(config.getDirectory(), DATA_FILE).getTarget());
+    }
+}
@@ -23,11 +23,19 @@
  */
 package com.invirgance.convirgance.jdbc;
 
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.input.JSONInput;
 import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.output.JSONOutput;
+import com.invirgance.convirgance.output.OutputCursor;
+import com.invirgance.convirgance.source.FileSource;
 import com.invirgance.convirgance.storage.Config;
+import com.invirgance.convirgance.target.FileTarget;
+import com.invirgance.convirgance.target.Target;
 import java.io.File;
-import java.io.PrintStream;
 import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 /**
  *
@@ -35,11 +43,15 @@ import java.util.Iterator;
  */
 class ConnectionDatabase implements Iterable<JSONObject>
 {
-    private Config config;
+    private File location;
+    private volatile Config config;
+    private volatile DescriptorSnapshot snapshot;
 
+    /**
+     * Opens the user's connection store. The store is read on first use.
+     */
     public ConnectionDatabase()
     {
-        PrintStream err = System.err;
         String property = System.getProperty("convirgance.jdbc.connections");
         
         File home = new File(System.getProperty("user.home"));
@@ -47,7 +59,57 @@ class ConnectionDatabase implements Iterable<JSONObject>
         
         if(property != null) location = new File(property);
         
-        this.config = new Config(location, "name");
+        this.location = location;
+    }
+    
+    /**
+     * Opens the connection store in the provided directory.
+     * 
+     * @param location the directory holding the store
+     */
+    ConnectionDatabase(File location)
+    {
+        this.location = location;
+    }
+    
+    private Config getConfig()
+    {
+        Config current = this.config;
+        
+        if(current != null) return current;
+        
+        synchronized(this)
+        {
+            if(this.config == null) this.config = new Config(location, "name");
+            
+            return this.config;
+        }
+    }
+    
+    /**
+     * Returns the in-memory copy of the connection store, reloading it if the 
+     * store was modified since the last load.
+     * 
+     * @return the current snapshot
+     */
+    private DescriptorSnapshot getSnapshot()
+    {
+        DescriptorSnapshot current = this.snapshot;
+        
+        if(current != null && current.isCurrent(getConfig())) return current;
+        
+        synchronized(this)
+        {
+            current = this.snapshot;
+            
+            if(current != null && current.isCurrent(getConfig())) return current;
+            
+            current = new DescriptorSnapshot(getConfig());
+            
+            this.snapshot = current;
+            
+            return current;
+        }
     }
     
     /**
@@ -57,22 +119,123 @@ class ConnectionDatabase implements Iterable<JSONObject>
      */
     public JSONObject findDescriptorByName(String name)
     {
-        for(JSONObject descriptor : this)
+        return getSnapshot().findByName(name);
+    }
+    
+    /**
+     * Saves or updates the connections descriptor in the users configuration file.
+     * 
+     * @param descriptor 
+     */
+    public synchronized void saveDescriptor(JSONObject descriptor)
+    {
+        getConfig().insert(descriptor);
+        
+        this.snapshot = null;
+    }
+    
+    /**
+     * Reads the descriptor with the provided name from the store, passes a 
+     * copy to the update, and saves whatever the update returns. The store is
+     * read and written under the same lock as {@link #saveDescriptor(JSONObject)},
+     * so no other change made through this object can land in between.
+     * 
+     * @param name the descriptor name
+     * @param update receives the stored descriptor, or null if there isn't 
+     *        one, and returns the descriptor to save or null to save nothing
+     * @return true if a descriptor was saved
+     */
+    public synchronized boolean updateDescriptor(String name, UnaryOperator<JSONObject> update)
+    {
+        // Read the store again rather than trust a snapshot taken before the lock
+        JSONObject descriptor = update.apply(new DescriptorSnapshot(getConfig()).findByName(name));
+        
+        if(descriptor == null) return false;
+        
+        saveDescriptor(descriptor);
+        
+        return true;
+    }
+    
+    /**
+     * Adds all of the provided descriptors to the store in a single write. The
+     * descriptors are read once and written to a staging file in the store's
+     * directory as they are read, so only their names are held in memory. 
+     * Each descriptor is passed to the check and its name is checked against
+     * the store before it is staged. If any check fails, the staging file is
+     * discarded and the store is left unchanged. Holds the same lock as 
+     * {@link #saveDescriptor(JSONObject)} and {@link #deleteDescriptor(JSONObject)} 
+     * while the store is read and rewritten.
+     * 
+     * @param descriptors new descriptors
+     * @param check called with each descriptor before it is staged, throwing
+     *        to reject it
+     * @return the number of descriptors added
+     * @throws ConvirganceException if a name is already in use
+     */
+    public synchronized int insertDescriptors(Iterable<JSONObject> descriptors, Consumer<JSONObject> check)
+    {
+        // Read the store again rather than trust a snapshot taken before the lock
+        DescriptorSnapshot current = new DescriptorSnapshot(getConfig());
+        File staging = null;
+        int count = 0;
+        
+        try
+        {
+            getConfig().getDirectory().mkdirs();
+            
+            // Kept next to the store since descriptors may hold passwords
+            staging = File.createTempFile("import", ".json", getConfig().getDirectory());
+            
+            try(OutputCursor cursor = new JSONOutput().write(new FileTarget(staging)))
+            {
+                for(JSONObject descriptor : descriptors)
+                {
+                    check.accept(descriptor);
+                    
+                    if(current.contains(descriptor.getString("name")))
+                    {
+                        throw new ConvirganceException("Connection " + descriptor.getString("name") + " already exists");
+                    }
+                    
+                    cursor.write(descriptor);
+                    count++;
+                }
+            }
+            
+            if(count < 1) return 0;
+            
+            // Rewritten once rather than once per descriptor
+            try(OutputCursor cursor = ConfigFiles.rewrite(getConfig()))
+            {
+                for(JSONObject descriptor : current.getDescriptors()) cursor.write(descriptor);
+                for(JSONObject descriptor : new JSONInput().read(new FileSource(staging))) cursor.write(descriptor);
+            }
+        }
+        catch(ConvirganceException e) { throw e; }
+        catch(Exception e) { throw new ConvirganceException(e); }
+        finally
         {
-            if(descriptor.getString("name").equalsIgnoreCase(name)) return descriptor;
+            if(staging != null) staging.delete();
         }
         
-        return null;
+        this.snapshot = null;
+        
+        return count;
     }
     
     /**
-     * Saves or updates the connections descriptor in the users configuration file.
+     * Writes every descriptor in the store to the target as JSON.
      * 
-     * @param descriptor 
+     * @param target the destination of the descriptors
      */
-    public void saveDescriptor(JSONObject descriptor)
+    public void exportDescriptors(Target target)
     {
-        config.insert(descriptor);
+        try(OutputCursor cursor = new JSONOutput().write(target))
+        {
+            for(JSONObject descriptor : getSnapshot().getDescriptors()) cursor.write(descriptor);
+        }
+        catch(Exception e) { throw new ConvirganceException(e); }
     }
     
     /**
@@ -80,14 +243,16 @@ class ConnectionDatabase implements Iterable<JSONObject>
      * 
      * @param descriptor 
      */
-    public void deleteDescriptor(JSONObject descriptor)
+    public synchronized void deleteDescriptor(JSONObject descriptor)
     {
-        config.delete(descriptor);
+        getConfig().delete(descriptor);
+        
+        this.snapshot = null;
     }
     
     @Override
     public Iterator<JSONObject> iterator()
     {
-        return config.iterator();
+        return getSnapshot().iterator();
     }
 }
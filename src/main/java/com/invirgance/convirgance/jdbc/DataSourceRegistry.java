@@ -0,0 +1,104 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+
+/**
+ * Process-wide cache of the configured data sources behind stored 
+ * connections. {@link StoredConnections#getConnection(String)} returns a new
+ * StoredConnection each time, so without this cache every lookup would 
+ * instantiate the vendor data source and replay its configuration through 
+ * reflection.
+ * 
+ * Only configurations that match the connection store are cached. Unsaved 
+ * or modified connections build their own data source without touching the
+ * registry. Entries are keyed by connection name and checked against the 
+ * configuration they were built from, so a store changed behind our back 
+ * builds a new data source. {@link StoredConnection#save()} and 
+ * {@link StoredConnection#delete()} remove the entry outright.
+ * 
+ * @author jbanes
+ */
+class DataSourceRegistry
+{
+    private static final Map<String, Entry> sources = new ConcurrentHashMap<>();
+    
+    /**
+     * Returns the data source built for this connection and configuration,
+     * creating it if the configuration has changed or was never seen.
+     * 
+     * @param name the stored connection name
+     * @param config the serialized configuration the data source is built from
+     * @param factory creates the configured data source
+     * @return the shared data source
+     */
+    static DataSource getDataSource(String name, String config, Supplier<DataSource> factory)
+    {
+        String key = name.toLowerCase(Locale.ROOT);
+        int hash = config.hashCode();
+        Entry entry = sources.get(key);
+        Entry created;
+        
+        if(entry != null && entry.matches(hash, config)) return entry.source;
+        
+        // Built outside of the map so that slow driver loads don't block other connections
+        created = new Entry(hash, config, factory.get());
+        
+        return sources.compute(key, (ignored, current) -> (current != null && current.matches(hash, config)) ? current : created).source;
+    }
+    
+    /**
+     * Removes the data source for the named connection.
+     * 
+     * @param name the stored connection name
+     */
+    static void invalidate(String name)
+    {
+        sources.remove(name.toLowerCase(Locale.ROOT));
+    }
+    
+    private static class Entry
+    {
+        private final int hash;
+        private final String config;
+        private final DataSource source;
+        
+        public Entry(int hash, String config, DataSource source)
+        {
+            this.hash = hash;
+            this.config = config;
+            this.source = source;
+        }
+        
+        public boolean matches(int hash, String config)
+        {
+            return this.hash == hash && this.config.equals(config);
+        }
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers to the <code>DatabaseMetaData</code> questions that decide how SQL
+ * is generated and executed for a {@link StoredConnection}. The profile is 
+ * probed once and saved with the connection in the connection store, so 
+ * checks on hot paths are field reads rather than a new connection.
+ * 
+ * The first call to {@link StoredConnection#getCapabilities()} in a process 
+ * opens one connection to compare the server version with the saved profile.
+ * The profile is only probed again if the version changed. Later calls with
+ * the same configuration and saved profile return the same profile without 
+ * touching the database until the connection is saved or deleted. A 
+ * connection with unsaved changes, or whose saved profile names a different
+ * server version, is verified separately.
+ * 
+ * @author jbanes
+ */
+public class DatabaseCapabilities
+{
+    private static final Map<String, Map<String, DatabaseCapabilities>> verified = new ConcurrentHashMap<>();
+    
+    private static final int[] ISOLATION_LEVELS = {
+        Connection.TRANSACTION_NONE,
+        Connection.TRANSACTION_READ_UNCOMMITTED,
+        Connection.TRANSACTION_READ_COMMITTED,
+        Connection.TRANSACTION_REPEATABLE_READ,
+        Connection.TRANSACTION_SERIALIZABLE
+    };
+    
+    private final JSONObject record;
+    
+    private final boolean batchUpdates;
+    private final boolean generatedKeys;
+    private final boolean upperCaseIdentifiers;
+    private final boolean lowerCaseIdentifiers;
+    private final int maxInListSize;
+    private final int defaultIsolation;
+    private final int isolationLevels;
+    private final boolean scrollInsensitive;
+    private final boolean scrollSensitive;
+    private final int defaultFetchSize;
+    
+    DatabaseCapabilities(JSONObject record)
+    {
+        int levels = 0;
+        
+        this.record = record;
+        
+        for(Object level : record.getJSONArray("isolationLevels")) levels |= 1 << ((Number)level).intValue();
+        
+        this.batchUpdates = record.getBoolean("batchUpdates");
+        this.generatedKeys = record.getBoolean("generatedKeys");
+        this.upperCaseIdentifiers = record.getString("identifierCase").equals("upper");
+        this.lowerCaseIdentifiers = record.getString("identifierCase").equals("lower");
+        this.maxInListSize = record.getInt("maxInListSize");
+        this.defaultIsolation = record.getInt("defaultIsolation");
+        this.isolationLevels = levels;
+        this.scrollInsensitive = record.getBoolean("scrollInsensitive");
+        this.scrollSensitive = record.getBoolean("scrollSensitive");
+        this.defaultFetchSize = record.getInt("defaultFetchSize");
+    }
+    
+    /**
+     * Returns the profile for the connection, probing the database if no
+     * profile was saved or the server version changed.
+     */
+    static DatabaseCapabilities getCapabilities(StoredConnection connection, JSONObject saved, ConnectionDatabase database)
+    {
+        Map<String, DatabaseCapabilities> profiles = verified.computeIfAbsent(connection.getName().toLowerCase(Locale.ROOT), name -> new ConcurrentHashMap<>());
+        String config = connection.getConfigKey();
+        String key = getKey(config, saved);
+        DatabaseCapabilities capabilities = profiles.get(key);
+        JSONObject probed;
+        JSONObject record;
+        
+        if(capabilities != null) return capabilities;
+        
+        try(Connection jdbc = connection.getConnection())
+        {
+            DatabaseMetaData metadata = jdbc.getMetaData();
+            
+            if(saved != null && metadata.getDatabaseProductVersion().equals(saved.getString("productVersion")))
+            {
+                record = saved;
+            }
+            else
+            {
+                probed = probe(connection.getDriver(), jdbc, metadata);
+                record = probed;
+                
+                // Only persisted if the stored connection is the one probed. The profile is still cached for this process.
+                database.updateDescriptor(connection.getName(), descriptor -> {
+                    if(descriptor == null || !config.equals(StoredConnection.getConfigKey(descriptor))) return null;
+                    
+                    descriptor.put("capabilities", probed);
+                    
+                    return descriptor;
+                });
+            }
+        }
+        catch(SQLException e)
+        {
+            throw new ConvirganceException(e);
+        }
+        
+        capabilities = new DatabaseCapabilities(record);
+        
+        // Connections loaded after a new probe carry the new profile
+        profiles.put(key, capabilities);
+        profiles.put(getKey(config, record), capabilities);
+        
+        return capabilities;
+    }
+    
+    private static String getKey(String config, JSONObject saved)
+    {
+        if(saved == null) return config;
+        
+        return config + "\n" + saved.getString("productVersion");
+    }
+    
+    /**
+     * Forgets the profile verified for a connection that was changed or deleted.
+     */
+    static void invalidate(String name)
+    {
+        verified.remove(name.toLowerCase(Locale.ROOT));
+    }
+    
+    private static JSONObject probe(AutomaticDriver driver, Connection connection, DatabaseMetaData metadata) throws SQLException
+    {
+        JSONObject record = new JSONObject(true);
+        JSONArray<Integer> levels = new JSONArray<>();
+        String identifierCase = "mixed";
+        
+        if(metadata.storesUpperCaseIdentifiers()) identifierCase = "upper";
+        else if(metadata.storesLowerCaseIdentifiers()) identifierCase = "lower";
+        
+        for(int level : ISOLATION_LEVELS)
+        {
+            if(metadata.supportsTransactionIsolationLevel(level)) levels.add(level);
+        }
+        
+        record.put("productName", metadata.getDatabaseProductName());
+        record.put("productVersion", metadata.getDatabaseProductVersion());
+        record.put("driverVersion", metadata.getDriverVersion());
+        record.put("batchUpdates", metadata.supportsBatchUpdates());
+        record.put("generatedKeys", metadata.supportsGetGeneratedKeys());
+        record.put("identifierCase", identifierCase);
+        record.put("maxInListSize", Integer.parseInt(driver.getConfiguration("maxInListSize", "0")));
+        record.put("defaultIsolation", metadata.getDefaultTransactionIsolation());
+        record.put("isolationLevels", levels);
+        record.put("scrollInsensitive", metadata.supportsResultSetType(ResultSet.TYPE_SCROLL_INSENSITIVE));
+        record.put("scrollSensitive", metadata.supportsResultSetType(ResultSet.TYPE_SCROLL_SENSITIVE));
+        
+        try(Statement statement = connection.createStatement())
+        {
+            record.put("defaultFetchSize", statement.getFetchSize());
+        }
+        
+        return record;
+    }
+    
+    /**
+     * Returns the database product name reported by the driver.
+     * 
+     * @return the product name
+     */
+    public String getProductName()
+    {
+        return record.getString("productName");
+    }
+    
+    /**
+     * Returns the server version the profile was probed against.
+     * 
+     * @return the product version
+     */
+    public String getProductVersion()
+    {
+        return record.getString("productVersion");
+    }
+    
+    /**
+     * Returns the version of the driver used to probe the profile.
+     * 
+     * @return the driver version
+     */
+    public String getDriverVersion()
+    {
+        return record.getString("driverVersion");
+    }
+    
+    /**
+     * Returns true if statements can be executed in batches.
+     * 
+     * @return true if batch updates are supported
+     */
+    public boolean supportsBatchUpdates()
+    {
+        return batchUpdates;
+    }
+    
+    /**
+     * Returns true if generated keys can be retrieved after an insert.
+     * 
+     * @return true if generated keys are supported
+     */
+    public boolean supportsGeneratedKeys()
+    {
+        return generatedKeys;
+    }
+    
+    /**
+     * Returns true if unquoted identifiers are stored in upper case.
+     * 
+     * @return true for upper case identifiers
+     */
+    public boolean storesUpperCaseIdentifiers()
+    {
+        return upperCaseIdentifiers;
+    }
+    
+    /**
+     * Returns true if unquoted identifiers are stored in lower case.
+     * 
+     * @return true for lower case identifiers
+     */
+    public boolean storesLowerCaseIdentifiers()
+    {
+        return lowerCaseIdentifiers;
+    }
+    
+    /**
+     * Returns the largest number of values allowed in an <code>IN</code> 
+     * list. The limit comes from the <code>maxInListSize</code> setting of 
+     * the driver, as <code>DatabaseMetaData</code> does not report it.
+     * 
+     * @return the maximum list size, or 0 if there is no known limit
+     */
+    public int getMaxInListSize()
+    {
+        return maxInListSize;
+    }
+    
+    /**
+     * Returns the isolation level new connections start with.
+     * 
+     * @return one of the <code>Connection.TRANSACTION_*</code> levels
+     */
+    public int getDefaultTransactionIsolation()
+    {
+        return defaultIsolation;
+    }
+    
+    /**
+     * Returns true if the database supports the isolation level.
+     * 
+     * @param level one of the <code>Connection.TRANSACTION_*</code> levels
+     * @return true if the level is supported
+     */
+    public boolean supportsTransactionIsolation(int level)
+    {
+        return level >= 0 && level < 31 && (isolationLevels & (1 << level)) != 0;
+    }
+    
+    /**
+     * Returns true if scroll insensitive result sets are supported.
+     * 
+     * @return true if <code>TYPE_SCROLL_INSENSITIVE</code> is supported
+     */
+    public boolean supportsScrollInsensitive()
+    {
+        return scrollInsensitive;
+    }
+    
+    /**
+     * Returns true if scroll sensitive result sets are supported.
+     * 
+     * @return true if <code>TYPE_SCROLL_SENSITIVE</code> is supported
+     */
+    public boolean supportsScrollSensitive()
+    {
+        return scrollSensitive;
+    }
+    
+    /**
+     * Returns the fetch size statements start with. A value of 0 means the
+     * driver decides, which for some drivers means reading the entire result
+     * into memory.
+     * 
+     * @return the default fetch size
+     */
+    public int getDefaultFetchSize()
+    {
+        return defaultFetchSize;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return record.toString(4);
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc;
+
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.storage.Config;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable in-memory copy of the descriptors in a {@link Config} store with
+ * a case-insensitive index by name. A snapshot records the modification time
+ * and size of the store's files so that callers can cheaply detect when it 
+ * needs to be reloaded.
+ * 
+ * Descriptors are copied on the way out. Callers are free to modify what they
+ * receive without affecting the snapshot.
+ *
+ * @author jbanes
+ */
+class DescriptorSnapshot implements Iterable<JSONObject>
+{
+    private final List<JSONObject> descriptors;
+    private final Map<String,JSONObject> names;
+    private final long[] stamp;
+    
+    /**
+     * Loads a snapshot of every descriptor in the store.
+     * 
+     * @param config the backing store
+     */
+    public DescriptorSnapshot(Config config)
+    {
+        List<JSONObject> descriptors = new ArrayList<>();
+        Map<String,JSONObject> names = new HashMap<>();
+        String name;
+        
+        // Read the stamp first so that a concurrent write triggers a reload
+        this.stamp = getStamp(config);
+        
+        for(JSONObject descriptor : config)
+        {
+            name = descriptor.getString("name");
+            
+            descriptors.add(descriptor);
+            
+            if(name != null) names.putIfAbsent(name.toLowerCase(Locale.ROOT), descriptor);
+        }
+        
+        this.descriptors = Collections.unmodifiableList(descriptors);
+        this.names = names;
+    }
+    
+    private static long[] getStamp(Config config)
+    {
+        File[] files = ConfigFiles.getFiles(config);
+        File data = files[0];
+        File deleted = files[1];
+        
+        return new long[]{ getModified(data), data.length(), getModified(deleted), deleted.length() };
+    }
+    
+    private static long getModified(File file)
+    {
+        try
+        {
+            // Use the finest resolution the file system offers so that two
+            // writes within the same millisecond are still told apart
+            return Files.getLastModifiedTime(file.toPath()).to(TimeUnit.NANOSECONDS);
+        }
+        catch(IOException e)
+        {
+            return 0;
+        }
+    }
+    
+    /**
+     * Returns true if the store has not been modified since this snapshot was
+     * taken. This only checks file metadata and does not read the store.
+     * 
+     * @param config the backing store
+     * @return true if the snapshot reflects the current store contents
+     */
+    public boolean isCurrent(Config config)
+    {
+        return Arrays.equals(stamp, getStamp(config));
+    }
+    
+    private static JSONObject copy(JSONObject descriptor)
+    {
+        return new JSONObject(descriptor.toString());
+    }
+    
+    /**
+     * Returns a copy of the descriptor with the provided name. Names are 
+     * matched without regard to case.
+     * 
+     * @param name the descriptor name
+     * @return a copy of the descriptor, or null if not found
+     */
+    public JSONObject findByName(String name)
+    {
+        JSONObject descriptor = (name == null) ? null : names.get(name.toLowerCase(Locale.ROOT));
+        
+        return (descriptor == null) ? null : copy(descriptor);
+    }
+    
+    /**
+     * Returns true if the snapshot holds a descriptor with the provided name.
+     * Names are matched without regard to case.
+     * 
+     * @param name the descriptor name
+     * @return true if the name is in use
+     */
+    public boolean contains(String name)
+    {
+        return name != null && names.containsKey(name.toLowerCase(Locale.ROOT));
+    }
+    
+    /**
+     * Returns the descriptors held by the snapshot without copying them. Used
+     * for building further indexes. The returned descriptors must not be modified.
+     * 
+     * @return the descriptors in store order
+     */
+    List<JSONObject> getDescriptors()
+    {
+        return descriptors;
+    }
+    
+    @Override
+    public Iterator<JSONObject> iterator()
+    {
+        Iterator<JSONObject> iterator = descriptors.iterator();
+        
+        return new Iterator<JSONObject>() {
+            
+            @Override
+            public boolean hasNext()
+            {
+                return iterator.hasNext();
+            }
+            
+            @Override
+            public JSONObject next()
+            {
+                return copy(iterator.next());
+            }
+        };
+    }
+}
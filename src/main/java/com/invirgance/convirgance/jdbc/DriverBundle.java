@@ -0,0 +1,298 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.storage.AtomicFile;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds a self-contained directory of driver jars that can be shipped with
+ * an application image. When the <code>convirgance.jdbc.bundle</code> system
+ * property points at a bundle directory, drivers are loaded from the bundle
+ * without touching the Maven resolver or the network.
+ * 
+ * <p>A bundle contains a <code>lib</code> directory with the jars and an 
+ * <code>index.json</code> file that maps each driver's artifacts to its jars.
+ * Bundles can be built programmatically:</p>
+ * 
+ * <pre>
+ * new DriverBundle(new File("drivers"))
+ *     .add(AutomaticDrivers.getDriverByName("PostgreSQL"))
+ *     .save();
+ * </pre>
+ * 
+ * <p>or from the command line with the names of the drivers to include:</p>
+ * 
+ * <pre>
+ * java com.invirgance.convirgance.jdbc.DriverBundle drivers PostgreSQL HSQLDB
+ * </pre>
+ * 
+ * @author jbanes
+ */
+public class DriverBundle
+{
+    private static final Map<File,Map<String,URL[]>> indexes = new HashMap<>();
+    
+    private File directory;
+    private JSONObject index;
+    
+    /**
+     * Creates or opens a bundle in the provided directory. Drivers already
+     * present in the bundle's index are retained.
+     * 
+     * @param directory the bundle directory
+     */
+    public DriverBundle(File directory)
+    {
+        this.directory = directory;
+        this.index = readIndex(directory);
+    }
+    
+    private static JSONObject readIndex(File directory)
+    {
+        File file = new File(directory, "index.json");
+        JSONObject index;
+        
+        if(!file.exists())
+        {
+            index = new JSONObject(true);
+            
+            index.put("drivers", new JSONArray());
+            
+            return index;
+        }
+        
+        try
+        {
+            return new JSONObject(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        }
+        catch(IOException e) { throw new ConvirganceException(e); }
+    }
+    
+    private static Map<String,URL[]> loadIndex(File directory)
+    {
+        Map<String,URL[]> classpaths = new HashMap<>();
+        JSONArray<String> files;
+        URL[] urls;
+        
+        for(JSONObject driver : (JSONArray<JSONObject>)readIndex(directory).getJSONArray("drivers"))
+        {
+            files = driver.getJSONArray("files");
+            urls = new URL[files.size()];
+            
+            for(int i=0; i<urls.length; i++)
+            {
+                try
+                {
+                    urls[i] = new File(directory, files.get(i)).toURI().toURL();
+                }
+                catch(MalformedURLException e) { throw new ConvirganceException(e); }
+            }
+            
+            classpaths.put(driver.getString("key"), urls);
+        }
+        
+        return classpaths;
+    }
+    
+    /**
+     * Returns the bundled jars for the artifact key if a bundle is configured
+     * through the <code>convirgance.jdbc.bundle</code> system property.
+     * 
+     * @param key the normalized artifact key
+     * @return the bundled jars, or null if the artifacts are not bundled
+     */
+    static URL[] getClasspath(String key)
+    {
+        String property = System.getProperty("convirgance.jdbc.bundle");
+        File directory;
+        
+        if(property == null) return null;
+        
+        directory = new File(property).getAbsoluteFile();
+        
+        synchronized(indexes)
+        {
+            return indexes.computeIfAbsent(directory, DriverBundle::loadIndex).get(key);
+        }
+    }
+    
+    /**
+     * Returns the directory this bundle is written to.
+     * 
+     * @return the bundle directory
+     */
+    public File getDirectory()
+    {
+        return directory;
+    }
+    
+    private String copy(File jar) throws IOException
+    {
+        File lib = new File(directory, "lib");
+        File target = new File(lib, jar.getName());
+        String checksum;
+        
+        lib.mkdirs();
+        
+        if(target.exists())
+        {
+            checksum = ClasspathLockFile.checksum(jar);
+            
+            if(checksum.equals(ClasspathLockFile.checksum(target))) return "lib/" + target.getName();
+            
+            // Same file name from a different artifact. Keep both copies.
+            target = new File(lib, checksum.substring(0, 12) + "-" + jar.getName());
+        }
+        
+        Files.copy(jar.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        
+        return "lib/" + target.getName();
+    }
+    
+    private void addDriver(AutomaticDriver driver)
+    {
+        JSONArray<JSONObject> entries = index.getJSONArray("drivers");
+        JSONArray<String> artifacts = new JSONArray<>(driver.getArtifacts());
+        JSONArray<String> files = new JSONArray<>();
+        JSONObject entry = new JSONObject(true);
+        String key = DriverClassLoaders.getKey(artifacts);
+        
+        try
+        {
+            for(URL url : DriverClassLoaders.getClasspath(key, artifacts))
+            {
+                files.add(copy(new File(url.toURI())));
+            }
+        }
+        catch(IOException | URISyntaxException e) { throw new ConvirganceException(e); }
+        
+        entries.removeIf(existing -> existing.getString("name").equals(driver.getName()) || existing.getString("key").equals(key));
+        
+        entry.put("name", driver.getName());
+        entry.put("key", key);
+        entry.put("artifacts", artifacts);
+        entry.put("files", files);
+        
+        entries.add(entry);
+    }
+    
+    /**
+     * Resolves the drivers' artifacts and copies every jar into the bundle.
+     * The index is not written until {@link #save()} is called.
+     * 
+     * @param drivers the drivers to include
+     * @return this bundle
+     * @throws ConvirganceException if the artifacts cannot be resolved or copied
+     */
+    public DriverBundle add(AutomaticDriver... drivers) throws ConvirganceException
+    {
+        for(AutomaticDriver driver : drivers) addDriver(driver);
+        
+        return this;
+    }
+    
+    /**
+     * Resolves the drivers' artifacts and copies every jar into the bundle.
+     * The index is not written until {@link #save()} is called.
+     * 
+     * @param drivers the drivers to include, such as {@link AutomaticDrivers#list()}
+     * @return this bundle
+     * @throws ConvirganceException if the artifacts cannot be resolved or copied
+     */
+    public DriverBundle add(Iterable<AutomaticDriver> drivers) throws ConvirganceException
+    {
+        for(AutomaticDriver driver : drivers) addDriver(driver);
+        
+        return this;
+    }
+    
+    /**
+     * Writes the bundle index. The bundle can be used once the index is saved.
+     */
+    public void save()
+    {
+        directory.mkdirs();
+        
+        try(DataOutputStream out = new AtomicFile(new File(directory, "index.json")).getOutput())
+        {
+            out.write(index.toString(4).getBytes(StandardCharsets.UTF_8));
+        }
+        catch(IOException e) { throw new ConvirganceException(e); }
+        
+        synchronized(indexes)
+        {
+            indexes.remove(directory.getAbsoluteFile());
+        }
+    }
+    
+    /**
+     * Command line entry point for building a bundle. The first argument is
+     * the bundle directory. Any further arguments are names of drivers to
+     * include. If no drivers are named, all known drivers are bundled.
+     * 
+     * @param args the bundle directory followed by optional driver names
+     */
+    public static void main(String[] args)
+    {
+        DriverBundle bundle;
+        AutomaticDriver driver;
+        
+        if(args.length < 1)
+        {
+            System.err.println("Usage: java " + DriverBundle.class.getName() + " <directory> [driver name...]");
+            System.exit(1);
+        }
+        
+        bundle = new DriverBundle(new File(args[0]));
+        
+        if(args.length == 1) bundle.add(AutomaticDrivers.list());
+        
+        for(int i=1; i<args.length; i++)
+        {
+            driver = AutomaticDrivers.getDriverByName(args[i]);
+            
+            if(driver == null) throw new ConvirganceException("Unknown driver " + args[i]);
+            
+            bundle.add(driver);
+        }
+        
+        bundle.save();
+        
+        System.out.println("Bundled " + bundle.index.getJSONArray("drivers").size() + " driver(s) in " + bundle.getDirectory().getAbsolutePath());
+    }
+}
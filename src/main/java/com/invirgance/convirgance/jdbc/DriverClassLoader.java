@@ -0,0 +1,266 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class loader for a single set of driver artifacts. The loader keeps weak 
+ * references to the driver and data source instances created from it so 
+ * that it can tell when the instances are no longer in use.
+ * 
+ * Callers using the loader take a lease with {@link #acquire()} for the 
+ * duration of the work. Once a loader is retired, because its artifacts were 
+ * replaced or invalidated, it is released as soon as the last lease is 
+ * returned and the last instance is garbage collected. Releasing deregisters its drivers from the DriverManager and 
+ * closes the jars, allowing the loader and its classes to be unloaded.
+ *
+ * @author jbanes
+ */
+class DriverClassLoader extends URLClassLoader
+{
+    static
+    {
+        registerAsParallelCapable();
+    }
+    
+    private static final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    private static Thread cleaner;
+    
+    private final Set<Instance> instances = ConcurrentHashMap.newKeySet();
+    private volatile boolean retired;
+    private volatile boolean released;
+    private int leases;
+    
+    public DriverClassLoader(URL[] urls)
+    {
+        super(urls);
+    }
+    
+    public DriverClassLoader(URL[] urls, ClassLoader parent)
+    {
+        super(urls, parent);
+        
+        if(parent instanceof SharedClassLoader) ((SharedClassLoader)parent).acquire();
+    }
+    
+    private static synchronized void startCleaner()
+    {
+        if(cleaner != null) return;
+        
+        cleaner = new Thread(() -> {
+            Instance instance;
+            
+            while(true)
+            {
+                try
+                {
+                    instance = (Instance)queue.remove();
+                    
+                    instance.loader.instances.remove(instance);
+                    
+                    instance.loader.releaseIfIdle();
+                }
+                catch(InterruptedException e)
+                {
+                    return;
+                }
+            }
+        }, "convirgance-jdbc-loader-cleaner");
+        
+        cleaner.setDaemon(true);
+        cleaner.start();
+    }
+    
+    /**
+     * Takes a lease on the loader, keeping it open until {@link #relinquish()}
+     * is called even if it is retired in the meantime. A retired loader can't
+     * be leased, as it may already be closed.
+     * 
+     * @return true if the lease was taken, false if the loader is retired
+     */
+    public synchronized boolean acquire()
+    {
+        if(retired) return false;
+        
+        leases++;
+        
+        return true;
+    }
+    
+    /**
+     * Returns a lease taken with {@link #acquire()}. A retired loader is 
+     * released once its last lease is returned, unless instances created 
+     * from it are still in use.
+     */
+    public synchronized void relinquish()
+    {
+        leases--;
+        
+        releaseIfIdle();
+    }
+    
+    private synchronized void releaseIfIdle()
+    {
+        if(isIdle()) release();
+    }
+    
+    /**
+     * Records an instance created from this loader.
+     * 
+     * @param <T> the instance type
+     * @param instance a driver or data source loaded by this loader
+     * @return the instance
+     */
+    public <T> T track(T instance)
+    {
+        startCleaner();
+        instances.add(new Instance(instance, this));
+        
+        return instance;
+    }
+    
+    /**
+     * Returns the number of tracked instances that are still reachable.
+     * 
+     * @return the live instance count
+     */
+    public int getReferenceCount()
+    {
+        int count = 0;
+        
+        for(Instance instance : instances)
+        {
+            if(instance.get() != null) count++;
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Returns true if this loader has been retired, is not leased, and none 
+     * of its instances are still reachable.
+     * 
+     * @return true if the loader can be released
+     */
+    public synchronized boolean isIdle()
+    {
+        return retired && leases == 0 && getReferenceCount() == 0;
+    }
+    
+    /**
+     * Returns true once the loader has been closed.
+     * 
+     * @return true if the loader was released
+     */
+    public boolean isReleased()
+    {
+        return released;
+    }
+    
+    /**
+     * Marks the loader as no longer current. It is released immediately if
+     * idle, or once its last lease is returned and its last instance is 
+     * garbage collected.
+     */
+    public synchronized void retire()
+    {
+        this.retired = true;
+        
+        releaseIfIdle();
+    }
+    
+    private void deregisterDrivers()
+    {
+        String name = DriverDeregistration.class.getName();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] data = new byte[4096];
+        Method method;
+        Class helper;
+        int count;
+        
+        try(InputStream in = DriverDeregistration.class.getResourceAsStream("DriverDeregistration.class"))
+        {
+            while((count = in.read(data)) > 0) buffer.write(data, 0, count);
+            
+            helper = defineClass(name, buffer.toByteArray(), 0, buffer.size());
+            method = helper.getDeclaredMethod("deregister");
+            
+            method.setAccessible(true);
+            method.invoke(null);
+        }
+        catch(IOException | ReflectiveOperationException | LinkageError | RuntimeException e)
+        {
+            // Best effort. A driver left registered only keeps the loader in memory.
+        }
+    }
+    
+    /**
+     * Deregisters the drivers loaded by this loader and closes it, regardless
+     * of whether instances are still in use. Instances that need to load more
+     * classes will fail after this call.
+     */
+    public synchronized void release()
+    {
+        if(released) return;
+        
+        this.released = true;
+        this.retired = true;
+        
+        deregisterDrivers();
+        instances.clear();
+        
+        try
+        {
+            close();
+        }
+        catch(IOException e)
+        {
+            // Jars are closed on a best effort basis
+        }
+        
+        if(getParent() instanceof SharedClassLoader) ((SharedClassLoader)getParent()).release();
+    }
+    
+    private static class Instance extends WeakReference<Object>
+    {
+        private final DriverClassLoader loader;
+        
+        public Instance(Object referent, DriverClassLoader loader)
+        {
+            super(referent, queue);
+            
+            this.loader = loader;
+        }
+    }
+}
@@ -0,0 +1,392 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc;
+
+import com.invirgance.convirgance.json.JSONArray;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide cache of the class loaders used to load driver artifacts.
+ * Loaders are keyed by the normalized list of Maven coordinates, so every
+ * driver and data source resolved from the same artifacts shares one loader
+ * and one copy of the classes.
+ *
+ * @author jbanes
+ */
+class DriverClassLoaders
+{
+    private static final Map<String,DriverClassLoader> loaders = new ConcurrentHashMap<>();
+    private static final Map<String,Object> locks = new ConcurrentHashMap<>();
+    private static final Map<String,CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+    
+    /**
+     * Returns the cache key for a list of artifact coordinates. Coordinates
+     * are trimmed, de-duplicated, and sorted so that equivalent lists map to
+     * the same loader.
+     *
+     * @param artifacts Maven coordinates
+     * @return the normalized key
+     */
+    static String getKey(JSONArray<String> artifacts)
+    {
+        TreeSet<String> coordinates = new TreeSet<>();
+        
+        for(String artifact : artifacts) coordinates.add(artifact.trim());
+        
+        return String.join(",", coordinates);
+    }
+    
+    /**
+     * Returns the jars for the artifacts. A configured driver bundle is 
+     * consulted first, then the classpath lock, and finally the Maven resolver.
+     * 
+     * @param key the normalized artifact key
+     * @param artifacts Maven coordinates
+     * @return the jar files containing the artifacts and their dependencies
+     */
+    static URL[] getClasspath(String key, JSONArray<String> artifacts)
+    {
+        ClasspathLockFile lock;
+        URL[] files = DriverBundle.getClasspath(key);
+        
+        if(files != null) return files;
+        
+        lock = new ClasspathLockFile(key);
+        files = lock.read();
+        
+        if(files == null)
+        {
+            files = ArtifactResolver.resolve(artifacts);
+            
+            lock.write(artifacts, files);
+        }
+        
+        return files;
+    }
+    
+    /**
+     * Returns the shared loader for the artifacts with a lease taken, locating
+     * the jars with {@link #getClasspath(String, JSONArray)} the first time 
+     * they are requested. Concurrent requests for the same artifacts wait for
+     * a single resolution. The caller must return the lease with 
+     * {@link DriverClassLoader#relinquish()} once it has finished loading 
+     * classes, so that an invalidated loader isn't closed while in use.
+     *
+     * @param artifacts Maven coordinates
+     * @return the leased class loader containing the artifacts and their dependencies
+     */
+    static DriverClassLoader acquireClassLoader(JSONArray<String> artifacts)
+    {
+        String key = getKey(artifacts);
+        DriverClassLoader loader = loaders.get(key);
+        
+        // Fails only if the loader was retired after the lookup
+        if(loader != null && loader.acquire()) return loader;
+        
+        return locked(key, () -> {
+            DriverClassLoader current = loaders.get(key);
+            
+            if(current == null || !current.acquire())
+            {
+                current = new DriverClassLoader(getClasspath(key, artifacts));
+                
+                current.acquire();
+                loaders.put(key, current);
+            }
+            
+            return current;
+        });
+    }
+    
+    /**
+     * Runs the action holding the lock for the key. Locks are pruned once the
+     * key has no loader, so a caller that waited on a pruned lock takes the
+     * current one and tries again.
+     * 
+     * @param key the normalized artifact key
+     * @param action the work to do under the lock
+     * @return the result of the action
+     */
+    private static <T> T locked(String key, Supplier<T> action)
+    {
+        Object lock;
+        
+        while(true)
+        {
+            lock = locks.computeIfAbsent(key, k -> new Object());
+            
+            synchronized(lock)
+            {
+                if(locks.get(key) != lock) continue;
+                
+                try
+                {
+                    return action.get();
+                }
+                finally
+                {
+                    if(!loaders.containsKey(key)) locks.remove(key);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Returns the file name Maven gives the artifact's jar. Coordinates are
+     * <code>groupId:artifactId[:packaging[:classifier]]:version</code> and
+     * jars are named <code>artifactId-version[-classifier].extension</code>.
+     * 
+     * @param artifact Maven coordinates
+     * @return the jar file name
+     */
+    static String getJarName(String artifact)
+    {
+        String[] parts = artifact.trim().split(":");
+        String packaging = (parts.length > 3) ? parts[2] : "jar";
+        String classifier = (parts.length > 4) ? parts[3] : null;
+        String extension = packaging;
+        
+        switch(packaging)
+        {
+            case "test-jar":
+                if(classifier == null) classifier = "tests";
+                // Falls through to the jar extension
+            case "bundle":
+            case "ejb":
+            case "maven-plugin":
+                extension = "jar";
+        }
+        
+        return parts[1] + "-" + parts[parts.length-1] + (classifier == null ? "" : "-" + classifier) + "." + extension;
+    }
+    
+    private static boolean isDirect(URL url, Set<String> direct)
+    {
+        String path = url.getPath();
+        
+        return direct.contains(path.substring(path.lastIndexOf('/') + 1));
+    }
+    
+    /**
+     * Locates the artifacts and creates their loader without blocking the 
+     * caller. If the artifacts still need to be located, the work is submitted
+     * to the executor. Concurrent requests for the same artifacts share a 
+     * single in-flight load, so only one task is submitted however many 
+     * callers are waiting. Once the future completes, 
+     * {@link #acquireClassLoader(JSONArray)} returns without resolving.
+     *
+     * @param artifacts Maven coordinates
+     * @param executor runs the resolution if the loader is not yet available
+     * @return a future completing once the class loader is cached
+     */
+    static CompletableFuture<Void> prepareClassLoader(JSONArray<String> artifacts, Executor executor)
+    {
+        String key = getKey(artifacts);
+        CompletableFuture<Void> future;
+        CompletableFuture<Void> existing;
+        
+        if(loaders.containsKey(key)) return CompletableFuture.completedFuture(null);
+        
+        future = new CompletableFuture<>();
+        existing = pending.putIfAbsent(key, future);
+        
+        // Callers get their own view so that cancelling one does not affect the others
+        if(existing != null) return existing.thenApply(ignored -> null);
+        
+        try
+        {
+            executor.execute(() -> {
+                try
+                {
+                    acquireClassLoader(artifacts).relinquish();
+                    future.complete(null);
+                }
+                catch(Throwable t)
+                {
+                    future.completeExceptionally(t);
+                }
+                finally
+                {
+                    pending.remove(key, future);
+                }
+            });
+        }
+        catch(RuntimeException e)
+        {
+            pending.remove(key, future);
+            future.completeExceptionally(e);
+        }
+        
+        return future.thenApply(ignored -> null);
+    }
+    
+    /**
+     * Creates loaders for several artifact sets at once, placing every 
+     * transitive dependency that appears in more than one classpath into a 
+     * common parent loader. Jars are matched by location, so only identical 
+     * coordinates are shared. The requested artifacts themselves are never 
+     * shared since driver jars commonly reference each other's classes. 
+     * Artifact sets that already have a loader are left as they are.
+     *
+     * @param artifactSets Maven coordinates for each driver
+     * @return the parent loader, or null if no jars are shared
+     */
+    static SharedClassLoader share(List<JSONArray<String>> artifactSets)
+    {
+        Map<String,URL[]> classpaths = new LinkedHashMap<>();
+        Map<String,Integer> users = new HashMap<>();
+        Map<String,URL> shared = new LinkedHashMap<>();
+        Set<String> direct = new HashSet<>();
+        SharedClassLoader parent;
+        List<URL> remaining;
+        String key;
+        
+        for(JSONArray<String> artifacts : artifactSets)
+        {
+            key = getKey(artifacts);
+            
+            if(loaders.containsKey(key) || classpaths.containsKey(key)) continue;
+            
+            classpaths.put(key, getClasspath(key, artifacts));
+        }
+        
+        for(URL[] classpath : classpaths.values())
+        {
+            for(URL url : classpath) users.merge(url.toExternalForm(), 1, Integer::sum);
+        }
+        
+        for(JSONArray<String> artifacts : artifactSets)
+        {
+            for(String artifact : artifacts) direct.add(getJarName(artifact));
+        }
+        
+        for(URL[] classpath : classpaths.values())
+        {
+            for(URL url : classpath)
+            {
+                if(users.get(url.toExternalForm()) < 2 || isDirect(url, direct)) continue;
+                
+                shared.putIfAbsent(url.toExternalForm(), url);
+            }
+        }
+        
+        if(shared.isEmpty()) return null;
+        
+        users.keySet().retainAll(shared.keySet());
+        
+        parent = new SharedClassLoader(shared.values().toArray(new URL[0]), users);
+        
+        for(Map.Entry<String,URL[]> entry : classpaths.entrySet())
+        {
+            remaining = new ArrayList<>();
+            
+            for(URL url : entry.getValue())
+            {
+                if(!shared.containsKey(url.toExternalForm())) remaining.add(url);
+            }
+            
+            URL[] urls = remaining.toArray(new URL[0]);
+            
+            locked(entry.getKey(), () -> loaders.computeIfAbsent(entry.getKey(), k -> new DriverClassLoader(urls, parent)));
+        }
+        
+        return parent;
+    }
+    
+    /**
+     * Drops the cached loader and classpath lock for the artifacts. The next 
+     * request will resolve the artifacts again. The old loader is retired and
+     * released once callers loading from it are done and the drivers and data
+     * sources created from it have been garbage collected.
+     *
+     * @param artifacts Maven coordinates
+     */
+    static void invalidate(JSONArray<String> artifacts)
+    {
+        DriverClassLoader loader;
+        String key;
+        
+        if(artifacts == null) return;
+        
+        key = getKey(artifacts);
+        
+        // Leases are taken under the same lock, so a leased loader stays open
+        loader = locked(key, () -> loaders.remove(key));
+        
+        new ClasspathLockFile(key).delete();
+        
+        if(loader != null) loader.retire();
+    }
+    
+    /**
+     * Immediately releases the loader for the artifacts, deregistering its
+     * drivers and closing its jars even if instances are still in use. The 
+     * classpath lock is kept, so the next request can reload quickly.
+     *
+     * @param artifacts Maven coordinates
+     * @return true if a loader was released
+     */
+    static boolean release(JSONArray<String> artifacts)
+    {
+        DriverClassLoader loader;
+        String key;
+        
+        if(artifacts == null) return false;
+        
+        key = getKey(artifacts);
+        loader = locked(key, () -> loaders.remove(key));
+        
+        if(loader == null) return false;
+        
+        loader.release();
+        
+        return true;
+    }
+    
+    /**
+     * Returns the number of driver and data source instances from the loader 
+     * for the artifacts that are still reachable.
+     *
+     * @param artifacts Maven coordinates
+     * @return the live instance count, or 0 if the artifacts are not loaded
+     */
+    static int getReferenceCount(JSONArray<String> artifacts)
+    {
+        DriverClassLoader loader = (artifacts == null) ? null : loaders.get(getKey(artifacts));
+        
+        return (loader == null) ? 0 : loader.getReferenceCount();
+    }
+}
@@ -29,15 +29,12 @@ import com.invirgance.convirgance.json.JSONObject;
 import com.invirgance.convirgance.source.ClasspathSource;
 import com.invirgance.convirgance.storage.Config;
 import java.io.File;
-import java.io.PrintStream;
 import java.lang.reflect.InvocationTargetException;
-import java.net.URL;
-import java.net.URLClassLoader;
 import java.sql.Driver;
 import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import javax.sql.DataSource;
-import org.jboss.shrinkwrap.resolver.api.maven.ConfigurableMavenResolverSystem;
-import org.jboss.shrinkwrap.resolver.api.maven.Maven;
 
 /**
  * Manages the Driver descriptors used throughout the program.
@@ -47,52 +44,91 @@ import org.jboss.shrinkwrap.resolver.api.maven.Maven;
  */
 class DriverDatabase implements Iterable<JSONObject>
 {
-    private Config config;
+    private volatile Config config;
+    private volatile DescriptorSnapshot snapshot;
+    private volatile PrefixIndex<JSONObject> prefixes;
     
     /**
      * Setup for the DriverDatabase.
-     * When instantiated, writes to the users home directory, under '.convirgance/database/drivers'
+     * Writes to the users home directory, under '.convirgance/database/drivers'.
+     * The store is opened on first use, so creating a DriverDatabase is cheap.
      */
     public DriverDatabase()
     {
-        PrintStream err = System.err;
-        String property = System.getProperty("convirgance.jdbc.drivers");
+    }
+    
+    private Config getConfig()
+    {
+        Config current = this.config;
         
+        if(current != null) return current;
+        
+        synchronized(this)
+        {
+            if(this.config == null) this.config = new Config(new ClasspathSource("/database/drivers.json"), getLocation(), "name");
+            
+            return this.config;
+        }
+    }
+    
+    /**
+     * Returns the directory of the user's driver store. Defaults to 
+     * '.convirgance/database/drivers' in the user's home directory unless 
+     * overridden by the <code>convirgance.jdbc.drivers</code> system property.
+     * 
+     * @return the driver store directory
+     */
+    static File getLocation()
+    {
+        String property = System.getProperty("convirgance.jdbc.drivers");
         File home = new File(System.getProperty("user.home"));
-        File location = new File(new File(new File(home, ".convirgance"), "database"), "drivers");
         
-        if(property != null) location = new File(property);
+        if(property != null) return new File(property);
+        
+        return new File(new File(new File(home, ".convirgance"), "database"), "drivers");
+    }
+        
+    private PrefixIndex<JSONObject> buildPrefixIndex(DescriptorSnapshot snapshot)
+    {
+        PrefixIndex<JSONObject> index = new PrefixIndex<>();
         
-        // Disable unnecessary maven logging
-        if(System.getProperty("org.slf4j.simpleLogger.defaultLogLevel") == null)
+        // Shared prefixes resolve to the first driver in store order, as the linear scan did
+        for(JSONObject descriptor : snapshot.getDescriptors())
         {
-            System.getProperty("org.slf4j.simpleLogger.defaultLogLevel", "error");
-            
-            System.setErr(new PrintStream(err) {
-                private int counter;
-                
-                @Override
-                public void println(String str)
-                {
-                    if(str.startsWith("SLF4J: ") && counter < 3)
-                    {
-                        counter++;
-                        
-                        return;
-                    }
-                    
-                    if(System.err == this)
-                    {
-                        System.setErr(err); // We're done filtering. Time to return the stream
-                    }
-                    
-                    super.println(str);
-                }
-                
-            });
+            for(String prefix : (JSONArray<String>)descriptor.getJSONArray("prefixes", new JSONArray()))
+            {
+                index.add(prefix, descriptor);
+            }
         }
         
-        this.config = new Config(new ClasspathSource("/database/drivers.json"), location, "name");
+        return index;
+    }
+    
+    /**
+     * Returns the in-memory copy of the driver store, reloading it if the 
+     * store was modified since the last load.
+     * 
+     * @return the current snapshot
+     */
+    private DescriptorSnapshot getSnapshot()
+    {
+        DescriptorSnapshot current = this.snapshot;
+        
+        if(current != null && current.isCurrent(getConfig())) return current;
+        
+        synchronized(this)
+        {
+            current = this.snapshot;
+            
+            if(current != null && current.isCurrent(getConfig())) return current;
+            
+            current = new DescriptorSnapshot(getConfig());
+            
+            this.prefixes = buildPrefixIndex(current);
+            this.snapshot = current;
+            
+            return current;
+        }
     }
     
     /**
@@ -107,12 +143,7 @@ class DriverDatabase implements Iterable<JSONObject>
      */
     public JSONObject findDescriptorByName(String name)
     {
-        for(JSONObject descriptor : this)
-        {
-            if(descriptor.getString("name").equalsIgnoreCase(name)) return descriptor;
-        }
-        
-        return null;
+        return getSnapshot().findByName(name);
     }
     
     /**
@@ -120,20 +151,24 @@ class DriverDatabase implements Iterable<JSONObject>
      * Example: "jdbc:derby:classpath:SomeDatabaseName"
      * Used in AutomaticDriver to determine the correct driver.
      * 
+     * The descriptor with the longest matching prefix is returned. If more 
+     * than one descriptor registers that prefix, the first in the store is used.
+     * 
      * @param url The URL or just the prefix itself.
      * @return The descriptor.
      */
     public JSONObject findDescriptorByURL(String url)
     {
-        for(JSONObject descriptor : this)
-        {
-            for(String prefix : (JSONArray<String>)descriptor.getJSONArray("prefixes"))
-            {
-                if(url.startsWith(prefix)) return descriptor;
-            }
-        }
+        JSONObject descriptor;
+        
+        getSnapshot();
+        
+        descriptor = this.prefixes.find(url);
+        
+        if(descriptor == null) return null;
         
-        return null;
+        // Callers may modify the descriptor, so never hand out the indexed copy
+        return new JSONObject(descriptor.toString());
     }
     
     /**
@@ -143,7 +178,9 @@ class DriverDatabase implements Iterable<JSONObject>
      */
     public void saveDescriptor(JSONObject descriptor)
     {
-        config.insert(descriptor);
+        getConfig().insert(descriptor);
+        
+        this.snapshot = null;
     }
     
     /**
@@ -153,27 +190,56 @@ class DriverDatabase implements Iterable<JSONObject>
      */   
     public void deleteDescriptor(JSONObject descriptor)
     {
-        config.delete(descriptor);
+        getConfig().delete(descriptor);
+        
+        this.snapshot = null;
     }
     
-    private URLClassLoader getClassLoader(JSONArray<String> artifacts)
+    /**
+     * Drops any cached class loader for the provided artifacts so that the
+     * next driver or data source request resolves them again.
+     * 
+     * @param artifacts Maven coordinates that are no longer in use
+     */
+    public void invalidate(JSONArray<String> artifacts)
     {
-        ConfigurableMavenResolverSystem maven = Maven.configureResolver();
-        URL[] files =  maven.withMavenCentralRepo(true).resolve(artifacts).withTransitivity().as(URL.class);
-        
-        return new URLClassLoader(files);
+        DriverClassLoaders.invalidate(artifacts);
     }
     
-    private Object loadClass(JSONArray<String> artifacts, String className)
+    /**
+     * Immediately releases the class loader for the provided artifacts. Drivers
+     * loaded from it are deregistered from the DriverManager and its jars are 
+     * closed, even if instances are still in use.
+     * 
+     * @param artifacts Maven coordinates of the driver version to release
+     * @return true if a loaded driver version was released
+     */
+    public boolean release(JSONArray<String> artifacts)
+    {
+        return DriverClassLoaders.release(artifacts);
+    }
+    
+    /**
+     * Returns the number of driver and data source instances created for the
+     * artifacts that are still in use.
+     * 
+     * @param artifacts Maven coordinates
+     * @return the number of live instances
+     */
+    public int getReferenceCount(JSONArray<String> artifacts)
+    {
+        return DriverClassLoaders.getReferenceCount(artifacts);
+    }
+    
+    private Object newInstance(DriverClassLoader loader, String className)
     {
-        URLClassLoader loader = getClassLoader(artifacts);
         Class clazz;
         
         try
         {
             clazz = loader.loadClass(className);
             
-            return clazz.getDeclaredConstructor().newInstance();
+            return loader.track(clazz.getDeclaredConstructor().newInstance());
         }
         catch(ClassNotFoundException | NoSuchMethodException | InstantiationException | IllegalAccessException | InvocationTargetException e)
         {
@@ -181,6 +247,25 @@ class DriverDatabase implements Iterable<JSONObject>
         }
     }
     
+    private Object loadClass(JSONArray<String> artifacts, String className)
+    {
+        DriverClassLoader loader = DriverClassLoaders.acquireClassLoader(artifacts);
+        
+        try
+        {
+            return newInstance(loader, className);
+        }
+        finally
+        {
+            loader.relinquish();
+        }
+    }
+    
+    private CompletableFuture<Object> loadClassAsync(JSONArray<String> artifacts, String className, Executor executor)
+    {
+        return DriverClassLoaders.prepareClassLoader(artifacts, executor).thenApply(ignored -> loadClass(artifacts, className));
+    }
+    
     /**
      * Returns and loads the driver in the descriptor.
      * The driver itself is loaded in from maven based on the artifact id.
@@ -195,6 +280,22 @@ class DriverDatabase implements Iterable<JSONObject>
         return (Driver)loadClass(descriptor.getJSONArray("artifact"), descriptor.getString("driver"));
     }
     
+    /**
+     * Loads the driver in the descriptor without blocking the caller. Any
+     * Maven resolution runs on the provided executor.
+     * 
+     * @param descriptor Driver descriptor.
+     * @param executor Runs the resolution if the driver is not yet loaded.
+     * @return A future completing with the driver, or with null if the 
+     *         descriptor has no driver.
+     */
+    public CompletableFuture<Driver> getDriverAsync(JSONObject descriptor, Executor executor)
+    {
+        if(descriptor == null || descriptor.isNull("driver")) return CompletableFuture.completedFuture(null);
+        
+        return loadClassAsync(descriptor.getJSONArray("artifact"), descriptor.getString("driver"), executor).thenApply(driver -> (Driver)driver);
+    }
+    
     /**
      * Returns and loads the data source in the descriptor.
      * The class object is returned.
@@ -209,11 +310,27 @@ class DriverDatabase implements Iterable<JSONObject>
         return (DataSource)loadClass(descriptor.getJSONArray("artifact"), descriptor.getString("datasource"));
     }
     
+    /**
+     * Loads the data source in the descriptor without blocking the caller. 
+     * Any Maven resolution runs on the provided executor.
+     * 
+     * @param descriptor The descriptor.
+     * @param executor Runs the resolution if the data source is not yet loaded.
+     * @return A future completing with the DataSource, or with null if the 
+     *         descriptor has no data source.
+     */
+    public CompletableFuture<DataSource> getDataSourceAsync(JSONObject descriptor, Executor executor)
+    {
+        if(descriptor == null || descriptor.isNull("datasource")) return CompletableFuture.completedFuture(null);
+        
+        return loadClassAsync(descriptor.getJSONArray("artifact"), descriptor.getString("datasource"), executor).thenApply(source -> (DataSource)source);
+    }
+    
     // TODO Null pointer if user config missing at this point
     @Override
     public Iterator<JSONObject> iterator()
     {
-        return config.iterator();
+        return getSnapshot().iterator();
     }
     
 }
@@ -0,0 +1,57 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc;
+
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Collections;
+
+/**
+ * Removes drivers from the {@link DriverManager} before their class loader is
+ * released. Drivers register themselves when loaded, and the manager only 
+ * lets a caller see and deregister drivers from its own class loader. This 
+ * class is therefore never used directly. A copy is defined inside each 
+ * {@link DriverClassLoader} and invoked there.
+ *
+ * @author jbanes
+ */
+class DriverDeregistration
+{
+    static int deregister() throws SQLException
+    {
+        ClassLoader loader = DriverDeregistration.class.getClassLoader();
+        int count = 0;
+        
+        for(Driver driver : Collections.list(DriverManager.getDrivers()))
+        {
+            if(driver.getClass().getClassLoader() != loader) continue;
+            
+            DriverManager.deregisterDriver(driver);
+            count++;
+        }
+        
+        return count;
+    }
+}
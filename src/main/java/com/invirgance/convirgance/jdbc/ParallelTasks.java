@@ -0,0 +1,146 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Runs a task for each name in a list on a short-lived pool of daemon threads
+ * and collects the results in the order of the names. Used by the startup 
+ * helpers that load drivers, check connections, and warm up statements in
+ * parallel. The pool is shut down once the tasks are queued, so its threads
+ * exit as soon as the work is done.
+ *
+ * @author jbanes
+ */
+class ParallelTasks
+{
+    private ParallelTasks()
+    {
+    }
+    
+    private static ThreadFactory getThreadFactory(String name)
+    {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            
+            thread.setDaemon(true);
+            
+            return thread;
+        };
+    }
+    
+    /**
+     * Runs the task for every name using up to the requested number of threads.
+     * 
+     * @param <T> the result type
+     * @param thread the name of the pool's threads
+     * @param threads the maximum number of tasks to run at once
+     * @param names the names to run the task for
+     * @param task produces the result for a name
+     * @param array creates the results array
+     * @return a future completing with one result per name once every task
+     *         has finished
+     */
+    public static <T> CompletableFuture<T[]> run(String thread, int threads, List<String> names, Function<String, T> task, IntFunction<T[]> array)
+    {
+        return run(thread, threads, names, task, 0, null, array);
+    }
+    
+    /**
+     * Runs the task for every name, using the expired result for any task 
+     * that has not finished within the timeout of starting. The task keeps 
+     * running on its thread, but its result is no longer waited for.
+     * 
+     * @param <T> the result type
+     * @param thread the name of the pool's threads
+     * @param threads the maximum number of tasks to run at once
+     * @param names the names to run the task for
+     * @param task produces the result for a name
+     * @param timeout the time allowed for each task in milliseconds
+     * @param expired produces the result for a name that timed out, or null
+     *        to wait for every task however long it takes
+     * @param array creates the results array
+     * @return a future completing with one result per name once every task
+     *         has finished or timed out
+     */
+    public static <T> CompletableFuture<T[]> run(String thread, int threads, List<String> names, Function<String, T> task, long timeout, Function<String, T> expired, IntFunction<T[]> array)
+    {
+        CompletableFuture<T>[] futures;
+        ScheduledExecutorService deadlines;
+        ExecutorService executor;
+        
+        if(names.isEmpty()) return CompletableFuture.completedFuture(array.apply(0));
+        
+        executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, names.size())), getThreadFactory(thread));
+        deadlines = (expired == null) ? null : Executors.newSingleThreadScheduledExecutor(getThreadFactory(thread + "-deadline"));
+        futures = new CompletableFuture[names.size()];
+        
+        for(int i=0; i<futures.length; i++)
+        {
+            String name = names.get(i);
+            CompletableFuture<T> future = new CompletableFuture<>();
+            
+            futures[i] = future;
+            
+            executor.execute(() -> {
+                ScheduledFuture<?> deadline = (deadlines == null) ? null : deadlines.schedule(() -> future.complete(expired.apply(name)), timeout, TimeUnit.MILLISECONDS);
+                
+                try
+                {
+                    future.complete(task.apply(name));
+                }
+                catch(Throwable e)
+                {
+                    future.completeExceptionally(e);
+                }
+                finally
+                {
+                    if(deadline != null) deadline.cancel(false);
+                }
+            });
+        }
+        
+        executor.shutdown(); // Queued tasks still run. Threads exit when done.
+        
+        return CompletableFuture.allOf(futures).whenComplete((ignored, error) -> {
+            if(deadlines != null) deadlines.shutdownNow();
+        }).thenApply(ignored -> {
+            T[] results = array.apply(futures.length);
+            
+            for(int i=0; i<results.length; i++) results[i] = futures[i].join();
+            
+            return results;
+        });
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Character trie for longest-prefix matching of connection URLs. When two
+ * values are registered for the same prefix, the first one added is kept so
+ * that lookups are deterministic for a given insertion order.
+ *
+ * @param <T> the type of value associated with each prefix
+ * @author jbanes
+ */
+class PrefixIndex<T>
+{
+    private Node<T> root = new Node<>();
+    
+    /**
+     * Associates a value with a prefix. Ignored if the prefix is already 
+     * registered.
+     * 
+     * @param prefix the URL prefix
+     * @param value the value to return for URLs starting with the prefix
+     */
+    public void add(String prefix, T value)
+    {
+        Node<T> node = root;
+        
+        for(int i=0; i<prefix.length(); i++)
+        {
+            node = node.children.computeIfAbsent(prefix.charAt(i), c -> new Node<>());
+        }
+        
+        if(node.value == null) node.value = value;
+    }
+    
+    /**
+     * Returns the value registered for the longest prefix of the URL.
+     * 
+     * @param url the URL or prefix to match
+     * @return the most specific match, or null if no prefix matches
+     */
+    public T find(String url)
+    {
+        Node<T> node = root;
+        T match = root.value;
+        
+        for(int i=0; i<url.length(); i++)
+        {
+            node = node.children.get(url.charAt(i));
+            
+            if(node == null) break;
+            if(node.value != null) match = node.value;
+        }
+        
+        return match;
+    }
+    
+    private static class Node<T>
+    {
+        private Map<Character,Node<T>> children = new HashMap<>();
+        private T value;
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.CodeSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parent loader holding the jars that several driver loaders have in common.
+ * Each class defined here would otherwise have been defined once per driver,
+ * so the loader keeps count of how many copies it has avoided. The metaspace
+ * taken by each class is measured as the growth of the JVM's Metaspace pool
+ * while the class is defined. Classes loaded concurrently by other loaders 
+ * add noise to individual readings, but the totals track the real cost. The
+ * loader is closed when the last driver loader using it is released.
+ *
+ * @author jbanes
+ */
+class SharedClassLoader extends URLClassLoader
+{
+    static
+    {
+        registerAsParallelCapable();
+    }
+    
+    private static final MemoryPoolMXBean METASPACE = getMetaspacePool();
+    
+    private final Map<String,Integer> users;
+    private final AtomicInteger classes = new AtomicInteger();
+    private final AtomicLong avoided = new AtomicLong();
+    private final AtomicLong metaspace = new AtomicLong();
+    private final AtomicLong metaspaceAvoided = new AtomicLong();
+    private final AtomicInteger children = new AtomicInteger();
+    
+    /**
+     * Creates a loader for the shared jars.
+     * 
+     * @param urls the jars used by more than one driver
+     * @param users the number of drivers using each jar, keyed by URL
+     */
+    public SharedClassLoader(URL[] urls, Map<String,Integer> users)
+    {
+        super(urls);
+        
+        this.users = new HashMap<>(users);
+    }
+    
+    private static MemoryPoolMXBean getMetaspacePool()
+    {
+        for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if(pool.getName().equals("Metaspace")) return pool;
+        }
+        
+        return null;
+    }
+    
+    private static long getMetaspacePoolUsed()
+    {
+        return (METASPACE == null) ? 0 : METASPACE.getUsage().getUsed();
+    }
+    
+    /**
+     * Returns true if the JVM reports a Metaspace pool that can be measured.
+     * 
+     * @return true if metaspace figures are available
+     */
+    static boolean isMetaspaceMeasured()
+    {
+        return METASPACE != null;
+    }
+    
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException
+    {
+        long before = getMetaspacePoolUsed();
+        Class<?> clazz = super.findClass(name);
+        long used = Math.max(0, getMetaspacePoolUsed() - before);
+        CodeSource source = clazz.getProtectionDomain().getCodeSource();
+        Integer count = (source == null || source.getLocation() == null) ? null : users.get(source.getLocation().toExternalForm());
+        
+        classes.incrementAndGet();
+        metaspace.addAndGet(used);
+        
+        if(count != null)
+        {
+            avoided.addAndGet(count - 1);
+            metaspaceAvoided.addAndGet(used * (count - 1));
+        }
+        
+        return clazz;
+    }
+    
+    /**
+     * Records a driver loader that uses this loader as its parent.
+     */
+    void acquire()
+    {
+        children.incrementAndGet();
+    }
+    
+    /**
+     * Called when a driver loader using this parent is released. The shared
+     * jars are closed once no driver loaders remain.
+     */
+    void release()
+    {
+        if(children.decrementAndGet() > 0) return;
+        
+        try
+        {
+            close();
+        }
+        catch(IOException e)
+        {
+            // Jars are closed on a best effort basis
+        }
+    }
+    
+    /**
+     * Returns the number of drivers using the jar.
+     * 
+     * @param url a jar in this loader
+     * @return the number of drivers sharing the jar
+     */
+    public int getUsers(URL url)
+    {
+        return users.getOrDefault(url.toExternalForm(), 0);
+    }
+    
+    /**
+     * Returns the number of classes defined by this loader so far.
+     * 
+     * @return the class count
+     */
+    public int getClassCount()
+    {
+        return classes.get();
+    }
+    
+    /**
+     * Returns the number of class definitions the drivers would have made on
+     * their own had they not shared this loader.
+     * 
+     * @return the number of duplicate classes avoided
+     */
+    public long getDuplicatesAvoided()
+    {
+        return avoided.get();
+    }
+    
+    /**
+     * Returns the metaspace measured while this loader defined its classes.
+     * 
+     * @return the metaspace used in bytes
+     */
+    public long getMetaspaceUsed()
+    {
+        return metaspace.get();
+    }
+    
+    /**
+     * Returns the metaspace the drivers would have used defining their own 
+     * copies of this loader's classes, based on what each class measured 
+     * here.
+     * 
+     * @return the metaspace avoided in bytes
+     */
+    public long getMetaspaceAvoided()
+    {
+        return metaspaceAvoided.get();
+    }
+}
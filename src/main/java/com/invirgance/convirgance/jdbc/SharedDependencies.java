@@ -0,0 +1,135 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+/**
+ * Diagnostics for drivers loaded with {@link AutomaticDrivers#loadShared(String...)}.
+ * Jars used by more than one driver are loaded once in a common parent loader.
+ * The counts reported here are live and grow as the drivers load more classes.
+ * Metaspace figures are measured from the JVM's Metaspace memory pool as each
+ * shared class is defined, and are zero on JVMs that do not report one.
+ *
+ * @author jbanes
+ */
+public class SharedDependencies
+{
+    private String[] drivers;
+    private SharedClassLoader loader;
+    
+    SharedDependencies(String[] drivers, SharedClassLoader loader)
+    {
+        this.drivers = drivers;
+        this.loader = loader;
+    }
+    
+    /**
+     * Returns the names of the drivers that were loaded together.
+     * 
+     * @return the driver names
+     */
+    public String[] getDrivers()
+    {
+        return drivers.clone();
+    }
+    
+    /**
+     * Returns the jars placed in the shared parent loader.
+     * 
+     * @return the paths of the shared jars
+     */
+    public String[] getSharedJars()
+    {
+        URL[] urls = (loader == null) ? new URL[0] : loader.getURLs();
+        String[] jars = new String[urls.length];
+        
+        for(int i=0; i<urls.length; i++)
+        {
+            try
+            {
+                jars[i] = new File(urls[i].toURI()).getPath();
+            }
+            catch(URISyntaxException | IllegalArgumentException e)
+            {
+                jars[i] = urls[i].toExternalForm();
+            }
+        }
+        
+        return jars;
+    }
+    
+    /**
+     * Returns the number of classes loaded from the shared jars so far.
+     * 
+     * @return the number of shared classes
+     */
+    public int getSharedClassCount()
+    {
+        return (loader == null) ? 0 : loader.getClassCount();
+    }
+    
+    /**
+     * Returns the number of class definitions avoided by sharing. A class 
+     * from a jar used by three drivers counts twice.
+     * 
+     * @return the number of duplicate classes that were not loaded
+     */
+    public long getDuplicateClassCount()
+    {
+        return (loader == null) ? 0 : loader.getDuplicatesAvoided();
+    }
+    
+    /**
+     * Returns the metaspace used by the classes loaded from the shared jars.
+     * 
+     * @return the shared metaspace in bytes
+     */
+    public long getSharedMetaspace()
+    {
+        return (loader == null) ? 0 : loader.getMetaspaceUsed();
+    }
+    
+    /**
+     * Returns the metaspace saved by sharing. This is what each shared class
+     * measured when it was defined, counted once for every driver that would
+     * otherwise have defined its own copy.
+     * 
+     * @return the metaspace avoided in bytes
+     */
+    public long getMetaspaceSaved()
+    {
+        return (loader == null) ? 0 : loader.getMetaspaceAvoided();
+    }
+    
+    @Override
+    public String toString()
+    {
+        return getSharedJars().length + " shared jars, " + getSharedClassCount() + " shared classes, " 
+                + getDuplicateClassCount() + " duplicate classes avoided, " 
+                + getMetaspaceSaved() / 1024 + " KB metaspace saved";
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc;
+
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Records the distinct SQL produced by 
+ * {@link com.invirgance.convirgance.jdbc.sql.SQLStatement#query()} against a
+ * {@link StoredConnection}, so the statements can be prepared ahead of time 
+ * with {@link StoredConnection#warmUp()}. Recording is enabled per stored 
+ * connection with {@link StoredConnection#setRecordingStatements(boolean)}.
+ * 
+ * New statements are queued and written to the connection store in batches
+ * on a background thread, so the query that first produces a statement never
+ * waits on the store. A statement only counts as recorded once it has been 
+ * written. Statements already recorded are ignored without touching the 
+ * store, so the cost of recording falls to zero once the application's query
+ * shapes have been seen. Statements still queued when the JVM exits are lost
+ * and recorded again the next time they are seen. At most 
+ * {@link #MAXIMUM_STATEMENTS} are kept per connection.
+ * 
+ * @author jbanes
+ */
+public class StatementRecorder
+{
+    /**
+     * The maximum number of statements recorded for each stored connection
+     */
+    public static final int MAXIMUM_STATEMENTS = 500;
+    
+    private static final Map<String, StatementRecorder> recorders = new ConcurrentHashMap<>();
+    
+    private static ThreadPoolExecutor writer;
+    
+    private final String name;
+    private final ConnectionDatabase database;
+    private final Set<String> statements = ConcurrentHashMap.newKeySet();
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    
+    private StatementRecorder(String name, ConnectionDatabase database)
+    {
+        this.name = name;
+        this.database = database;
+        
+        statements.addAll(getStatements(database.findDescriptorByName(name)));
+    }
+    
+    private static synchronized ThreadPoolExecutor getWriter()
+    {
+        if(writer != null) return writer;
+        
+        // One write at a time. The thread exits when idle.
+        writer = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "convirgance-jdbc-recorder");
+            
+            thread.setDaemon(true);
+            
+            return thread;
+        });
+        
+        writer.allowCoreThreadTimeOut(true);
+        
+        return writer;
+    }
+    
+    /**
+     * Returns the recorder shared by every StoredConnection with this name.
+     */
+    static StatementRecorder getRecorder(String name, ConnectionDatabase database)
+    {
+        return recorders.computeIfAbsent(name.toLowerCase(Locale.ROOT), key -> new StatementRecorder(name, database));
+    }
+    
+    /**
+     * Forgets the recorder for a connection that was deleted.
+     */
+    static void remove(String name)
+    {
+        recorders.remove(name.toLowerCase(Locale.ROOT));
+    }
+    
+    /**
+     * Returns the statements recorded in a connection descriptor.
+     */
+    static Set<String> getStatements(JSONObject descriptor)
+    {
+        Set<String> statements = new LinkedHashSet<>();
+        
+        if(descriptor == null || descriptor.isNull("statements")) return statements;
+        
+        for(Object sql : descriptor.getJSONArray("statements")) statements.add(sql.toString());
+        
+        return statements;
+    }
+    
+    /**
+     * Converts named bind variables such as <code>:zipcode</code> into JDBC
+     * <code>?</code> placeholders the way {@link com.invirgance.convirgance.dbms.DBMS}
+     * does before preparing a query. Colons inside quoted strings and 
+     * identifiers, and <code>::</code> casts, are left alone.
+     */
+    static String toPrepared(String sql)
+    {
+        StringBuilder buffer = new StringBuilder(sql.length());
+        char quote = 0;
+        char c;
+        
+        for(int i=0; i<sql.length(); i++)
+        {
+            c = sql.charAt(i);
+            
+            if(quote != 0)
+            {
+                if(c == quote) quote = 0;
+                
+                buffer.append(c);
+            }
+            else if(c == '\'' || c == '"')
+            {
+                quote = c;
+                
+                buffer.append(c);
+            }
+            else if(c == ':' && i+1 < sql.length() && sql.charAt(i+1) == ':')
+            {
+                buffer.append("::");
+                i++;
+            }
+            else if(c == ':' && i+1 < sql.length() && isBindCharacter(sql.charAt(i+1)))
+            {
+                buffer.append('?');
+                
+                while(i+1 < sql.length() && isBindCharacter(sql.charAt(i+1))) i++;
+            }
+            else
+            {
+                buffer.append(c);
+            }
+        }
+        
+        return buffer.toString();
+    }
+    
+    private static boolean isBindCharacter(char c)
+    {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-';
+    }
+    
+    /**
+     * Returns the name of the stored connection being recorded.
+     * 
+     * @return the stored connection name
+     */
+    public String getName()
+    {
+        return name;
+    }
+    
+    /**
+     * Records a SQL statement. Statements not seen before are queued and 
+     * written to the connection store in the background.
+     * 
+     * @param sql the SQL text
+     */
+    public void record(String sql)
+    {
+        if(sql == null || statements.contains(sql) || pending.contains(sql)) return;
+        if(statements.size() + pending.size() >= MAXIMUM_STATEMENTS) return;
+        
+        if(pending.add(sql) && scheduled.compareAndSet(false, true)) getWriter().execute(this::write);
+    }
+    
+    private void write()
+    {
+        try
+        {
+            flush();
+        }
+        catch(RuntimeException e)
+        {
+            // Dropped from the queue by flush() and retried when seen again
+        }
+    }
+    
+    /**
+     * Writes any queued statements to the connection store now rather than
+     * waiting for the background writer. Statements stay queued if the 
+     * connection has not been saved yet.
+     * 
+     * @throws com.invirgance.convirgance.ConvirganceException if the store 
+     *         can't be written
+     */
+    public synchronized void flush()
+    {
+        Set<String> batch;
+        
+        // Cleared first so that statements queued during the write schedule another
+        scheduled.set(false);
+        
+        batch = new LinkedHashSet<>(pending);
+        
+        if(batch.isEmpty()) return;
+        
+        try
+        {
+            // Read, merged and written under the store's lock so that a concurrent save() isn't lost
+            if(!database.updateDescriptor(name, descriptor -> merge(descriptor, batch))) return;
+            
+            statements.addAll(batch);
+            pending.removeAll(batch);
+        }
+        catch(RuntimeException e)
+        {
+            pending.removeAll(batch);
+            
+            throw e;
+        }
+    }
+    
+    private static JSONObject merge(JSONObject descriptor, Set<String> batch)
+    {
+        Set<String> merged;
+        
+        if(descriptor == null) return null; // Never saved or deleted
+        
+        merged = getStatements(descriptor);
+        
+        merged.addAll(batch);
+        descriptor.put("statements", new JSONArray<>(merged));
+        
+        return descriptor;
+    }
+}
@@ -24,12 +24,19 @@ package com.invirgance.convirgance.jdbc;
 import com.invirgance.convirgance.ConvirganceException;
 import com.invirgance.convirgance.dbms.DBMS;
 import com.invirgance.convirgance.jdbc.callback.ConnectionCallback;
+import com.invirgance.convirgance.jdbc.datasource.ConnectionMetrics;
 import com.invirgance.convirgance.jdbc.datasource.DataSourceManager;
 import com.invirgance.convirgance.jdbc.datasource.DriverDataSource;
+import com.invirgance.convirgance.jdbc.datasource.MonitoredDataSource;
 import com.invirgance.convirgance.jdbc.schema.DatabaseSchemaLayout;
+import com.invirgance.convirgance.json.JSONArray;
 import com.invirgance.convirgance.json.JSONObject;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import javax.sql.DataSource;
 
 /**
@@ -44,6 +51,8 @@ public class StoredConnection
     private JSONObject record;
     private ConnectionDatabase database;
     private DataSource source;
+    private DataSource monitored;
+    private DatabaseCapabilities capabilities;
 
     StoredConnection(JSONObject record, ConnectionDatabase database)
     {
@@ -101,6 +110,7 @@ public class StoredConnection
         
         // Reset the cache
         this.source = null;
+        this.monitored = null;
         
         return new DataSourceConfig(record.getJSONObject("datasourceConfig"), new DataSourceManager(source).getConfig());
     }
@@ -115,7 +125,7 @@ public class StoredConnection
     {
         try
         {
-            return getDataSource().getConnection();
+            return getMonitoredDataSource().getConnection();
         }
         catch(SQLException e)
         {
@@ -132,7 +142,7 @@ public class StoredConnection
      */
     public void execute(ConnectionCallback callback)
     {
-        ConnectionCallback.execute(getDataSource(), callback);
+        ConnectionCallback.execute(getMonitoredDataSource(), callback);
     }
     
     /**
@@ -140,15 +150,68 @@ public class StoredConnection
      * If the drivers configuration lacks a data source a new one is assigned 
      * based on the URL's prefix.
      * 
+     * Data sources built from the saved configuration are shared by every 
+     * StoredConnection with the same name, so repeated lookups through
+     * {@link StoredConnections#getConnection(String)} don't recreate and 
+     * reconfigure the data source. A connection that is unsaved or has 
+     * unsaved changes builds its own data source instead.
+     * 
      * @return The data source.
      */
     public DataSource getDataSource()
     {
-        DriverConfig config = getDriverConfig();
-        DataSourceManager manager;
-        DataSource source;
+        JSONObject stored;
+        String key;
         
         if(this.source != null) return this.source;
+        if(record.isNull("datasourceConfig") && record.isNull("driverConfig")) throw new ConvirganceException("Connection not configured!");
+        
+        stored = database.findDescriptorByName(getName());
+        key = getConfigKey();
+        
+        // Only the persisted configuration is shared
+        if(stored != null && key.equals(getConfigKey(stored))) this.source = DataSourceRegistry.getDataSource(getName(), key, this::createDataSource);
+        else this.source = createDataSource();
+        
+        return this.source;
+    }
+    
+    /**
+     * Returns the parts of the configuration that decide which database this
+     * connection reaches, serialized for use as a cache key.
+     */
+    String getConfigKey()
+    {
+        return getConfigKey(record);
+    }
+    
+    /**
+     * Returns the configuration key of a descriptor read from the store.
+     */
+    static String getConfigKey(JSONObject descriptor)
+    {
+        JSONObject key = new JSONObject(true);
+        
+        key.put("driver", descriptor.get("driver"));
+        key.put("driverConfig", descriptor.get("driverConfig"));
+        key.put("datasourceConfig", descriptor.get("datasourceConfig"));
+        
+        return key.toString();
+    }
+    
+    /**
+     * Builds a new data source from this configuration without sharing it.
+     * Unlike {@link #getDataSource()}, the caller owns the result and may
+     * change its settings, such as the login timeout, without affecting
+     * anyone else.
+     * 
+     * @return a new, unshared data source for this connection
+     */
+    public DataSource createDataSource()
+    {
+        DriverConfig config = getDriverConfig();
+        DataSourceManager manager;
+        DriverDataSource source;
         
         if(!record.isNull("datasourceConfig"))
         {
@@ -156,19 +219,45 @@ public class StoredConnection
             
             manager.setConfig(record.getJSONObject("datasourceConfig"));
             
-            this.source = manager.getDataSource();
-            
-            return this.source;
+            return manager.getDataSource();
         }
         
-        if(config != null) 
-        {
-            this.source = DriverDataSource.getDataSource(config.getURL(), config.getUsername(), config.getPassword());
+        source = DriverDataSource.getDataSource(config.getURL(), config.getUsername(), config.getPassword());
             
-            return this.source;
-        }
+        source.useMetrics(getMetrics());
+        
+        return source;
+    }
+    
+    /**
+     * Returns the connection metrics for this StoredConnection. Metrics are
+     * registered with JMX under the connection name and are shared by every
+     * StoredConnection with the same name.
+     * 
+     * @return the connection metrics
+     */
+    public ConnectionMetrics getMetrics()
+    {
+        return ConnectionMetrics.getMetrics(getName());
+    }
+    
+    /**
+     * Returns a data source that reports to {@link #getMetrics()}. The data 
+     * source from {@link #getDataSource()} reports on its own when it is a 
+     * {@link DriverDataSource}. Driver data sources are wrapped instead.
+     * 
+     * @return the monitored data source
+     */
+    private DataSource getMonitoredDataSource()
+    {
+        DataSource source = getDataSource();
         
-        throw new ConvirganceException("Connection not configured!");
+        if(this.monitored != null) return this.monitored;
+        
+        if(source instanceof DriverDataSource) this.monitored = source;
+        else this.monitored = new MonitoredDataSource(source, getMetrics());
+        
+        return this.monitored;
     }
     
     /**
@@ -179,7 +268,7 @@ public class StoredConnection
      */
     public DBMS getDBMS()
     {
-        return new DBMS(getDataSource());
+        return new DBMS(getMonitoredDataSource());
     }
     
     /**
@@ -190,7 +279,117 @@ public class StoredConnection
      */
     public DatabaseSchemaLayout getSchemaLayout()
     {
-        return new DatabaseSchemaLayout(getDriver(), getDataSource());
+        DatabaseSchemaLayout layout = new DatabaseSchemaLayout(getDriver(), getMonitoredDataSource());
+        
+        if(isRecordingStatements()) layout.setStatementRecorder(StatementRecorder.getRecorder(getName(), database));
+        
+        return layout;
+    }
+    
+    /**
+     * Returns the database capability profile for this connection. The 
+     * profile is probed the first time it is needed and saved with the
+     * connection. See {@link DatabaseCapabilities} for when it is refreshed.
+     * 
+     * @return the capability profile
+     * @throws ConvirganceException if the database can't be reached to 
+     *         verify or probe the profile
+     */
+    public DatabaseCapabilities getCapabilities()
+    {
+        if(capabilities == null) capabilities = DatabaseCapabilities.getCapabilities(this, record.getJSONObject("capabilities"), database);
+        
+        return capabilities;
+    }
+    
+    /**
+     * Returns true if SQL queries built from {@link #getSchemaLayout()} are 
+     * recorded for {@link #warmUp()}.
+     * 
+     * @return true if statements are being recorded
+     */
+    public boolean isRecordingStatements()
+    {
+        return record.getBoolean("recordStatements", false);
+    }
+    
+    /**
+     * Enables recording of the distinct SQL queries built from 
+     * {@link #getSchemaLayout()}. The setting takes effect once this 
+     * connection is saved, and only applies to layouts obtained after that.
+     * 
+     * @param recording true to record statements
+     * @see StatementRecorder
+     */
+    public void setRecordingStatements(boolean recording)
+    {
+        record.put("recordStatements", recording);
+    }
+    
+    /**
+     * Returns the SQL statements recorded for this connection.
+     * 
+     * @return the recorded statements in the order they were first seen
+     */
+    public String[] getRecordedStatements()
+    {
+        Set<String> statements = StatementRecorder.getStatements(record);
+        
+        statements.addAll(StatementRecorder.getStatements(database.findDescriptorByName(getName())));
+        
+        return statements.toArray(String[]::new);
+    }
+    
+    /**
+     * Prepares, but does not execute, every recorded statement on a single 
+     * connection. This loads the driver classes used to prepare statements 
+     * and lets the database parse and plan each query before the first 
+     * request needs it. Named bind variables are converted to JDBC 
+     * placeholders first. Statements that no longer prepare, for example 
+     * because the schema changed, are skipped and reported by 
+     * {@link StoredConnections#warmUp(java.lang.String...)}.
+     * 
+     * @return the number of statements prepared
+     * @throws ConvirganceException if the connection can't be opened
+     * @see StoredConnections#warmUp(java.lang.String...)
+     */
+    public int warmUp()
+    {
+        return warmUp(new ArrayList<>());
+    }
+    
+    /**
+     * Prepares every recorded statement, adding the SQL of statements that 
+     * failed to prepare to the skipped list.
+     */
+    int warmUp(List<String> skipped)
+    {
+        String[] statements = getRecordedStatements();
+        int prepared = 0;
+        
+        if(statements.length < 1) return 0;
+        
+        try(Connection connection = getConnection())
+        {
+            for(String sql : statements)
+            {
+                try(PreparedStatement statement = connection.prepareStatement(StatementRecorder.toPrepared(sql)))
+                {
+                    prepared++;
+                }
+                catch(SQLException e)
+                {
+                    // Stale statements are not worth failing the warm-up for
+                    skipped.add(sql);
+                }
+            }
+        }
+        catch(SQLException e)
+        {
+            throw new ConvirganceException(e);
+        }
+        
+        return prepared;
     }
     
     /**
@@ -204,7 +403,46 @@ public class StoredConnection
         
         if(driverConfig == null && datasourceConfig == null) throw new ConvirganceException("Connection not configured!");
         
-        database.saveDescriptor(record);
+        // Merged with the stored copy under the store's lock so that statements recorded meanwhile aren't lost
+        database.updateDescriptor(getName(), this::merge);
+        DataSourceRegistry.invalidate(getName());
+        DatabaseCapabilities.invalidate(getName());
+        
+        this.capabilities = null;
+    }
+    
+    /**
+     * Carries over what was recorded in the store since this connection was
+     * loaded and returns the record to save.
+     */
+    private JSONObject merge(JSONObject stored)
+    {
+        Set<String> statements;
+        
+        // Capabilities belong to the database. Drop them if the connection may point elsewhere.
+        if(stored == null || !isSameDatabase(stored)) record.remove("capabilities");
+        else if(!stored.isNull("capabilities")) record.put("capabilities", stored.get("capabilities"));
+        
+        // Keep statements recorded since this connection was loaded
+        statements = StatementRecorder.getStatements(stored);
+        
+        if(!statements.isEmpty())
+        {
+            statements.addAll(StatementRecorder.getStatements(record));
+            record.put("statements", new JSONArray<>(statements));
+        }
+        
+        return record;
+    }
+    
+    private boolean isSameDatabase(JSONObject descriptor)
+    {
+        for(String key : new String[]{ "driver", "driverConfig", "datasourceConfig" })
+        {
+            if(!String.valueOf(descriptor.get(key)).equals(String.valueOf(record.get(key)))) return false;
+        }
+        
+        return true;
     }
     
     /**
@@ -213,6 +451,9 @@ public class StoredConnection
     public void delete()
     {
         database.deleteDescriptor(record);
+        DataSourceRegistry.invalidate(getName());
+        DatabaseCapabilities.invalidate(getName());
+        StatementRecorder.remove(getName());
     }
 
     @Override
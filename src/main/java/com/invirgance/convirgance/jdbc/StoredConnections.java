@@ -22,8 +22,24 @@ SOFTWARE.
 package com.invirgance.convirgance.jdbc;
 
 import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.input.JSONInput;
+import com.invirgance.convirgance.jdbc.datasource.DriverDataSource;
 import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.source.Source;
+import com.invirgance.convirgance.target.Target;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import javax.sql.DataSource;
 
 /**
@@ -35,6 +51,9 @@ import javax.sql.DataSource;
  */
 public class StoredConnections implements Iterable<StoredConnection>
 {
+    private static final int WARMUP_THREADS = 4;
+    private static final int HEALTH_CHECK_THREADS = 64;
+    
     private static ConnectionDatabase database = new ConnectionDatabase();
     
     static StoredConnectionBuilder createConnection(AutomaticDriver driver, String name)
@@ -74,10 +93,225 @@ public class StoredConnections implements Iterable<StoredConnection>
         return new StoredConnections();
     }
     
+    /**
+     * Saves a batch of new connections in a single write to the connection
+     * store. Descriptors use the same format as {@link StoredConnection#toString()}
+     * and {@link #exportConnections(Target)}. Every descriptor must have a name
+     * that is not already stored and not repeated in the batch, and must have 
+     * a driver or data source configuration. If any descriptor is invalid, 
+     * nothing is saved.
+     * 
+     * This is much faster than building and saving connections one at a time
+     * when provisioning large numbers of connections, as each save rewrites 
+     * the store.
+     * The descriptors are read once and streamed through a staging file, so 
+     * memory use grows with the number of names rather than the size of the
+     * batch.
+     * 
+     * @param descriptors the connection descriptors to save
+     * @return the number of connections saved
+     * @throws ConvirganceException if a descriptor is invalid or its name is in use
+     */
+    public static int importConnections(Iterable<JSONObject> descriptors)
+    {
+        Set<String> names = new HashSet<>();
+        
+        return database.insertDescriptors(descriptors, descriptor -> {
+            String name = descriptor.getString("name");
+            
+            if(name == null) throw new ConvirganceException("Connection has no name: " + descriptor);
+            
+            if(descriptor.isNull("driverConfig") && descriptor.isNull("datasourceConfig"))
+            {
+                throw new ConvirganceException("Connection " + name + " not configured!");
+            }
+            
+            if(!names.add(name.toLowerCase(Locale.ROOT)))
+            {
+                throw new ConvirganceException("Connection " + name + " appears more than once");
+            }
+        });
+    }
+    
+    /**
+     * Reads a JSON array of connection descriptors from the source and saves
+     * them in a single write.
+     * 
+     * @param source JSON produced by {@link #exportConnections(Target)} or equivalent
+     * @return the number of connections saved
+     * @throws ConvirganceException if a descriptor is invalid or its name is in use
+     * @see #importConnections(Iterable)
+     */
+    public static int importConnections(Source source)
+    {
+        return importConnections(new JSONInput().read(source));
+    }
+    
+    /**
+     * Writes the descriptors of all stored connections to the target as JSON.
+     * The output can be loaded into another store with 
+     * {@link #importConnections(Source)}.
+     * 
+     * @param target the destination for the connection descriptors
+     */
+    public static void exportConnections(Target target)
+    {
+        database.exportDescriptors(target);
+    }
+    
+    private static WarmUpResult warmUp(String name)
+    {
+        long start = System.nanoTime();
+        StoredConnection connection = getConnection(name);
+        List<String> skipped = new ArrayList<>();
+        int prepared;
+        
+        try
+        {
+            if(connection == null) throw new ConvirganceException("Unknown connection " + name);
+            
+            prepared = connection.warmUp(skipped);
+            
+            return new WarmUpResult(name, prepared, skipped.size(), System.nanoTime() - start, null);
+        }
+        catch(RuntimeException e)
+        {
+            return new WarmUpResult(name, 0, skipped.size(), System.nanoTime() - start, e);
+        }
+    }
+    
+    /**
+     * Prepares the statements recorded for the named connections in the 
+     * background, so that first requests after startup don't pay for driver
+     * class loading and query planning. Connections are warmed up in parallel
+     * on a bounded pool of daemon threads. If no names are provided, every 
+     * connection that records statements is warmed up.
+     * 
+     * @param names the names of the stored connections to warm up
+     * @return a future completing with one result per connection once all 
+     *         connections have been attempted. Failures are reported in the 
+     *         results rather than by completing the future exceptionally.
+     * @see StoredConnection#warmUp()
+     */
+    public static CompletableFuture<WarmUpResult[]> warmUp(String... names)
+    {
+        return warmUp(WARMUP_THREADS, names);
+    }
+    
+    /**
+     * Prepares the statements recorded for the named connections in the 
+     * background using up to the requested number of threads. If no names are
+     * provided, every connection that records statements is warmed up.
+     * 
+     * @param threads the maximum number of connections to warm up at once
+     * @param names the names of the stored connections to warm up
+     * @return a future completing with one result per connection once all 
+     *         connections have been attempted
+     * @see #warmUp(String...)
+     */
+    public static CompletableFuture<WarmUpResult[]> warmUp(int threads, String... names)
+    {
+        List<String> list = new ArrayList<>(Arrays.asList(names));
+        
+        if(list.isEmpty())
+        {
+            for(StoredConnection connection : list()) 
+            {
+                if(connection.isRecordingStatements()) list.add(connection.getName());
+            }
+        }
+        
+        return ParallelTasks.run("convirgance-jdbc-warmup", threads, list, StoredConnections::warmUp, WarmUpResult[]::new);
+    }
+    
+    private static HealthCheckResult checkHealth(String name, long timeout)
+    {
+        long start = System.nanoTime();
+        StoredConnection stored = getConnection(name);
+        DataSource source;
+        DatabaseMetaData metadata;
+        
+        if(stored == null) return new HealthCheckResult(name, 0, null, new ConvirganceException("Unknown connection " + name));
+        
+        try
+        {
+            source = stored.getDataSource();
+            
+            // Other data sources only take a login timeout, so set it on a private copy
+            if(!(source instanceof DriverDataSource))
+            {
+                source = stored.createDataSource();
+                source.setLoginTimeout((int)Math.max(1, (timeout + 999) / 1000));
+            }
+            
+            try(Connection connection = (source instanceof DriverDataSource) ? ((DriverDataSource)source).getConnection(timeout, TimeUnit.MILLISECONDS) : source.getConnection())
+            {
+                metadata = connection.getMetaData();
+                
+                return new HealthCheckResult(name, System.nanoTime() - start, metadata.getDatabaseProductName() + " " + metadata.getDatabaseProductVersion(), null);
+            }
+        }
+        catch(Exception e)
+        {
+            return new HealthCheckResult(name, System.nanoTime() - start, null, e);
+        }
+    }
+    
+    /**
+     * Connects to each of the named connections at the same time, reporting 
+     * how long each connection took, the server version, or the error that 
+     * prevented connecting. Connections that don't respond within the timeout 
+     * are reported as failed, so the result is available after roughly the 
+     * timeout even if some hosts hang. The timeout is also handed to the 
+     * driver or data source so that the abandoned attempt gives up as well.
+     * If no names are provided, every stored connection is checked.
+     * 
+     * Checking a connection also loads its driver and data source, so 
+     * checking at startup warms them for the first request.
+     * 
+     * @param timeout the time allowed for each connection in milliseconds
+     * @param names the names of the stored connections to check
+     * @return a future completing with one result per connection once every
+     *         connection has answered or timed out. Failures are reported in 
+     *         the results rather than by completing the future exceptionally.
+     */
+    public static CompletableFuture<HealthCheckResult[]> checkHealth(long timeout, String... names)
+    {
+        return checkHealth(HEALTH_CHECK_THREADS, timeout, names);
+    }
+    
+    /**
+     * Connects to the named connections using up to the requested number of
+     * threads. Each connection's timeout starts when its check starts, so 
+     * with fewer threads than connections the total time can exceed the 
+     * timeout. If no names are provided, every stored connection is checked.
+     * 
+     * @param threads the maximum number of connections to check at once
+     * @param timeout the time allowed for each connection in milliseconds
+     * @param names the names of the stored connections to check
+     * @return a future completing with one result per connection
+     * @see #checkHealth(long, String...)
+     */
+    public static CompletableFuture<HealthCheckResult[]> checkHealth(int threads, long timeout, String... names)
+    {
+        List<String> list = new ArrayList<>(Arrays.asList(names));
+        Function<String, HealthCheckResult> expired;
+        
+        if(list.isEmpty())
+        {
+            for(StoredConnection connection : list()) list.add(connection.getName());
+        }
+        
+        // Hosts that hang are reported once the timeout passes rather than waited for
+        expired = name -> new HealthCheckResult(name, TimeUnit.MILLISECONDS.toNanos(timeout), null, new SQLTimeoutException("No response from " + name + " after " + timeout + "ms"));
+        
+        return ParallelTasks.run("convirgance-jdbc-health", threads, list, name -> checkHealth(name, timeout), timeout, expired, HealthCheckResult[]::new);
+    }
+    
     @Override
     public Iterator<StoredConnection> iterator()
     {
-        Iterator<JSONObject> connections = new ConnectionDatabase().iterator();
+        Iterator<JSONObject> connections = database.iterator();
         
         return new Iterator<StoredConnection>() {
             
@@ -293,4 +527,159 @@ public class StoredConnections implements Iterable<StoredConnection>
         }
     }
             
+    
+    /**
+     * Reports the outcome of warming up a single connection during 
+     * {@link StoredConnections#warmUp(String...)}.
+     */
+    public static class WarmUpResult
+    {
+        private String name;
+        private int prepared;
+        private int skipped;
+        private long nanos;
+        private Throwable error;
+        
+        WarmUpResult(String name, int prepared, int skipped, long nanos, Throwable error)
+        {
+            this.name = name;
+            this.prepared = prepared;
+            this.skipped = skipped;
+            this.nanos = nanos;
+            this.error = error;
+        }
+        
+        /**
+         * Returns the name of the connection that was requested.
+         * 
+         * @return the connection name
+         */
+        public String getName()
+        {
+            return name;
+        }
+        
+        /**
+         * Returns the number of statements that were prepared.
+         * 
+         * @return the prepared statement count
+         */
+        public int getPrepared()
+        {
+            return prepared;
+        }
+        
+        /**
+         * Returns the number of recorded statements that failed to prepare,
+         * for example because the schema changed since they were recorded.
+         * 
+         * @return the skipped statement count
+         */
+        public int getSkipped()
+        {
+            return skipped;
+        }
+        
+        /**
+         * Returns how long it took to warm up the connection.
+         * 
+         * @return the elapsed time in milliseconds
+         */
+        public long getTime()
+        {
+            return nanos / 1000000;
+        }
+        
+        /**
+         * Returns the error that prevented the connection from warming up.
+         * 
+         * @return the error, or null if the connection was warmed up
+         */
+        public Throwable getError()
+        {
+            return error;
+        }
+        
+        /**
+         * Returns true if the connection was warmed up.
+         * 
+         * @return true if the warm-up completed without error
+         */
+        public boolean isWarm()
+        {
+            return error == null;
+        }
+    }
+    
+    /**
+     * Reports the outcome of checking a single connection during 
+     * {@link StoredConnections#checkHealth(long, String...)}.
+     */
+    public static class HealthCheckResult
+    {
+        private String name;
+        private long nanos;
+        private String version;
+        private Throwable error;
+        
+        HealthCheckResult(String name, long nanos, String version, Throwable error)
+        {
+            this.name = name;
+            this.nanos = nanos;
+            this.version = version;
+            this.error = error;
+        }
+        
+        /**
+         * Returns the name of the connection that was checked.
+         * 
+         * @return the connection name
+         */
+        public String getName()
+        {
+            return name;
+        }
+        
+        /**
+         * Returns how long it took to connect, or how long the check ran 
+         * before failing.
+         * 
+         * @return the elapsed time in milliseconds
+         */
+        public long getLatency()
+        {
+            return nanos / 1000000;
+        }
+        
+        /**
+         * Returns the database product name and version reported by the server.
+         * 
+         * @return the server version, or null if the connection failed
+         */
+        public String getServerVersion()
+        {
+            return version;
+        }
+        
+        /**
+         * Returns the error that prevented connecting. A connection that did
+         * not answer in time reports a <code>SQLTimeoutException</code>.
+         * 
+         * @return the error, or null if the connection succeeded
+         */
+        public Throwable getError()
+        {
+            return error;
+        }
+        
+        /**
+         * Returns true if the connection succeeded within the timeout.
+         * 
+         * @return true if the connection is healthy
+         */
+        public boolean isHealthy()
+        {
+            return error == null;
+        }
+    }
 }
@@ -0,0 +1,66 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc.datasource;
+
+/**
+ * JMX view of {@link ConnectionMetrics}. Times are reported in milliseconds.
+ *
+ * @author jbanes
+ */
+public interface ConnectionMetricsMBean
+{
+    public String getName();
+    
+    public int getOpenConnections();
+    
+    public long getTotalConnections();
+    
+    public long getFailures();
+    
+    public double getConnectTime50thPercentile();
+    
+    public double getConnectTime95thPercentile();
+    
+    public double getConnectTime99thPercentile();
+    
+    public double getHeldTime50thPercentile();
+    
+    public double getHeldTime95thPercentile();
+    
+    public double getHeldTime99thPercentile();
+    
+    public double getMaxHeldTime();
+    
+    public long getLeaks();
+    
+    public long getLeakThreshold();
+    
+    public void setLeakThreshold(long leakThreshold);
+    
+    public double getLeakSampleRate();
+    
+    public void setLeakSampleRate(double leakSampleRate);
+    
+    public void reset();
+}
@@ -26,21 +26,75 @@ package com.invirgance.convirgance.jdbc.datasource;
 import com.invirgance.convirgance.ConvirganceException;
 import com.invirgance.convirgance.json.JSONArray;
 import com.invirgance.convirgance.json.JSONObject;
-import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
 import javax.sql.DataSource;
 
 /**
  * Exposes data source properties at runtime, allowing for dynamic configuration
  * of {@link javax.sql.DataSource} instances.
  * 
+ * Property accessors are looked up once per data source class and kept as 
+ * {@link MethodHandle}s along with the conversion needed for the property's 
+ * type. Configuring many data sources of the same class only pays for bean 
+ * introspection the first time.
+ * 
  * @author jbanes
  */
 public class DataSourceManager
 {
+    private static final Map<Class, Function<String, Object>> parsers = new HashMap<>();
+    private static final Map<Class, Function<Number, Object>> converters = new HashMap<>();
+    private static final Map<Class, Class> wrappers = new HashMap<>();
+    
+    // Kept on each Class, so accessors are released along with driver class loaders
+    private static final ClassValue<Map<String, Accessor>> accessors = new ClassValue<Map<String, Accessor>>() {
+        @Override
+        protected Map<String, Accessor> computeValue(Class<?> type)
+        {
+            return getAccessors(type);
+        }
+    };
+    
+    static
+    {
+        parsers.put(Integer.class, Integer::valueOf);
+        parsers.put(Double.class, Double::valueOf);
+        parsers.put(Boolean.class, Boolean::valueOf);
+        parsers.put(Long.class, Long::valueOf);
+        parsers.put(Float.class, Float::valueOf);
+        parsers.put(Short.class, Short::valueOf);
+        parsers.put(Byte.class, Byte::valueOf);
+        parsers.put(Character.class, value -> value.charAt(0));
+        
+        converters.put(Integer.class, Number::intValue);
+        converters.put(Double.class, Number::doubleValue);
+        converters.put(Long.class, Number::longValue);
+        converters.put(Float.class, Number::floatValue);
+        converters.put(Short.class, Number::shortValue);
+        converters.put(Byte.class, Number::byteValue);
+        
+        wrappers.put(int.class, Integer.class);
+        wrappers.put(double.class, Double.class);
+        wrappers.put(boolean.class, Boolean.class);
+        wrappers.put(long.class, Long.class);
+        wrappers.put(float.class, Float.class);
+        wrappers.put(short.class, Short.class);
+        wrappers.put(byte.class, Byte.class);
+        wrappers.put(char.class, Character.class);
+    }
+    
     private DataSource source;
     private JSONArray<String> excluded;
 
@@ -55,13 +109,29 @@ public class DataSourceManager
         return source;
     }
     
-    private BeanInfo getBeanInfo()
+    private static Map<String, Accessor> getAccessors(Class type)
     {
+        Map<String, Accessor> map = new LinkedHashMap<>();
+        
         try
         {
-            return Introspector.getBeanInfo(source.getClass());
+            for(PropertyDescriptor descriptor : Introspector.getBeanInfo(type).getPropertyDescriptors())
+            {
+                map.put(descriptor.getName(), new Accessor(descriptor));
+            }
         }
         catch(IntrospectionException e) { throw new ConvirganceException(e); }
+        
+        return Collections.unmodifiableMap(map);
+    }
+    
+    private Accessor getAccessor(String name)
+    {
+        Accessor accessor = accessors.get(source.getClass()).get(name);
+        
+        if(accessor == null) throw new ConvirganceException("Property " + name + " not found");
+        
+        return accessor;
     }
     
     /**
@@ -73,15 +143,14 @@ public class DataSourceManager
      */
     public String[] getProperties()
     {
-        BeanInfo info = getBeanInfo();
         JSONArray<String> array = new JSONArray<>();
         
-        for(PropertyDescriptor descriptor : info.getPropertyDescriptors())
+        for(Accessor accessor : accessors.get(source.getClass()).values())
         {
-            if(excluded.contains(descriptor.getName())) continue;
-            if(descriptor.getWriteMethod() == null) continue;
+            if(excluded.contains(accessor.name)) continue;
+            if(accessor.setter == null) continue;
             
-            array.add(descriptor.getName());
+            array.add(accessor.name);
         }
         
         array.sort(null);
@@ -97,23 +166,7 @@ public class DataSourceManager
      */
     public Object getProperty(String name)
     {
-        BeanInfo info = getBeanInfo();
-        Object result;
-        
-        for(PropertyDescriptor descriptor : info.getPropertyDescriptors())
-        {
-            if(!descriptor.getName().equals(name)) continue;
-            
-            try
-            {
-                if(descriptor.getReadMethod() == null) return null;
-                
-                return descriptor.getReadMethod().invoke(source);
-            }
-            catch(IllegalAccessException | InvocationTargetException e) { throw new ConvirganceException(e); }
-        }
-        
-        throw new ConvirganceException("Property " + name + " not found");
+        return getAccessor(name).get(source);
     }
     
     /**
@@ -129,79 +182,24 @@ public class DataSourceManager
         setProperty(name, (Object)value);
     }
     
-    private static boolean isWrapperType(Class primitiveType, Class argumentType) 
-    {
-        if(primitiveType == int.class) return argumentType == Integer.class;
-        else if (primitiveType == double.class) return argumentType == Double.class;
-        else if (primitiveType == boolean.class) return argumentType == Boolean.class;
-        else if (primitiveType == long.class) return argumentType == Long.class;
-        else if (primitiveType == float.class) return argumentType == Float.class;
-        else if (primitiveType == short.class) return argumentType == Short.class;
-        else if (primitiveType == byte.class) return argumentType == Byte.class;
-        else if (primitiveType == char.class) return argumentType == Character.class;
-        
-        return false;
-    }
-    
-    private Object coerceStringToPrimitive(Class primitiveType, String value)
-    {
-        if(primitiveType == int.class) return Integer.valueOf(value);
-        else if(primitiveType == double.class) return Double.valueOf(value);
-        else if(primitiveType == boolean.class) return Boolean.valueOf(value);
-        else if(primitiveType == long.class) return Long.valueOf(value);
-        else if(primitiveType == float.class) return Float.valueOf(value);
-        else if(primitiveType == short.class) return Short.valueOf(value);
-        else if(primitiveType == byte.class) return Byte.valueOf(value);
-        else if(primitiveType == char.class) return value.charAt(0);
-        
-        throw new ConvirganceException("Unable to transform " + String.class + " to " + primitiveType + " for [" + value + "]");
-    }
-    
-    private Object coerceStringToNumber(Class type, String value)
-    {
-        if(type == Integer.class) return Integer.valueOf(value);
-        else if(type == Double.class) return Double.valueOf(value);
-        else if(type == Boolean.class) return Boolean.valueOf(value);
-        else if(type == Long.class) return Long.valueOf(value);
-        else if(type == Float.class) return Float.valueOf(value);
-        else if(type == Short.class) return Short.valueOf(value);
-        else if(type == Byte.class) return Byte.valueOf(value);
-        else if(type == Character.class) return value.charAt(0);
-        
-        throw new ConvirganceException("Unable to transform " + String.class + " to " + type + " for [" + value + "]");
-    }
-    
-    private Object coerceNumber(Class type, Number value)
-    {
-        if(type == Integer.class || type == int.class) return value.intValue();
-        else if(type == Double.class || type == double.class) return value.doubleValue();
-        else if(type == Long.class || type == long.class) return value.longValue();
-        else if(type == Float.class || type == float.class) return value.floatValue();
-        else if(type == Short.class || type == short.class) return value.shortValue();
-        else if(type == Byte.class || type == byte.class) return value.byteValue();
-        
-        throw new ConvirganceException("Unable to transform " + String.class + " to " + type + " for [" + value + "]");
-    }
-    
-    private Object coerceValue(Class source, Class target, Object value)
+    /**
+     * Returns a function that converts values to the target type. Strings are
+     * parsed and numbers are narrowed or widened as needed. Values that are
+     * already of the target type are returned unchanged.
+     */
+    private static Function<Object, Object> getCoercion(Class target)
     {
-        if(source.equals(target)) return value;
-        if(target.isAssignableFrom(source)) return value;
-
-        // Check for auto-boxing
-        if(target.isPrimitive() && isWrapperType(target, source)) return value;
-        if(source.isPrimitive() && isWrapperType(source, target)) return value;
+        Class type = wrappers.getOrDefault(target, target);
+        Function<String, Object> parser = parsers.get(type);
+        Function<Number, Object> converter = converters.get(type);
         
-        // Handle strings that need to be parsed
-        if(source.equals(String.class) && target.isPrimitive()) return coerceStringToPrimitive(target, (String)value);
-        if(source.equals(String.class) && Number.class.isAssignableFrom(target)) return coerceStringToNumber(target, (String)value);
-        if(source.equals(String.class) && Boolean.class.isAssignableFrom(target)) return coerceStringToNumber(target, (String)value);
-
-        // Handle number casts
-        if(Number.class.isAssignableFrom(source) && target.isPrimitive()) return coerceNumber(target, (Number)value);
-        if(Number.class.isAssignableFrom(source) && Number.class.isAssignableFrom(target)) return coerceNumber(target, (Number)value);
-        
-        throw new ConvirganceException("Unable to transform " + source + " to " + target + " for [" + value + "]");
+        return value -> {
+            if(type.isInstance(value)) return value;
+            if(parser != null && value instanceof String) return parser.apply((String)value);
+            if(converter != null && value instanceof Number) return converter.apply((Number)value);
+            
+            throw new ConvirganceException("Unable to transform " + value.getClass() + " to " + target + " for [" + value + "]");
+        };
     }
     
     /**
@@ -214,27 +212,7 @@ public class DataSourceManager
      */
     public void setProperty(String name, Object value)
     {
-        BeanInfo info = getBeanInfo();
-        
-        for(PropertyDescriptor descriptor : info.getPropertyDescriptors())
-        {
-            if(!descriptor.getName().equals(name)) continue;
-            
-            try
-            {
-                if(value != null) 
-                {
-                    value = coerceValue(value.getClass(), descriptor.getPropertyType(), value);
-                }
-                
-                descriptor.getWriteMethod().invoke(source, value);
-                
-                return;
-            }
-            catch(IllegalAccessException | InvocationTargetException e) { throw new ConvirganceException(e); }
-        }
-        
-        throw new ConvirganceException("Property " + name + " not found");
+        getAccessor(name).set(source, value);
     }
     
     /**
@@ -261,4 +239,66 @@ public class DataSourceManager
     {
         for(String key : config.keySet()) setProperty(key, config.get(key));
     }
+    
+    private static MethodHandle unreflect(Method method, MethodType type)
+    {
+        if(method == null) return null;
+        
+        try
+        {
+            return MethodHandles.lookup().unreflect(method).asType(type);
+        }
+        catch(IllegalAccessException e)
+        {
+            // Public methods declared on a class we can't see
+            try
+            {
+                method.setAccessible(true);
+                
+                return MethodHandles.lookup().unreflect(method).asType(type);
+            }
+            catch(IllegalAccessException | RuntimeException ex) { throw new ConvirganceException(e); }
+        }
+    }
+    
+    private static class Accessor
+    {
+        private final String name;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final Function<Object, Object> coercion;
+        
+        public Accessor(PropertyDescriptor descriptor)
+        {
+            this.name = descriptor.getName();
+            this.getter = unreflect(descriptor.getReadMethod(), MethodType.methodType(Object.class, Object.class));
+            this.setter = unreflect(descriptor.getWriteMethod(), MethodType.methodType(void.class, Object.class, Object.class));
+            this.coercion = (descriptor.getPropertyType() == null) ? null : getCoercion(descriptor.getPropertyType());
+        }
+        
+        public Object get(Object source)
+        {
+            if(getter == null) return null;
+            
+            try
+            {
+                return getter.invokeExact(source);
+            }
+            catch(Error e) { throw e; }
+            catch(Throwable e) { throw new ConvirganceException(new InvocationTargetException(e)); }
+        }
+        
+        public void set(Object source, Object value)
+        {
+            if(setter == null) throw new ConvirganceException("Property " + name + " is read only");
+            if(value != null && coercion != null) value = coercion.apply(value);
+            
+            try
+            {
+                setter.invokeExact(source, value);
+            }
+            catch(Error e) { throw e; }
+            catch(Throwable e) { throw new ConvirganceException(new InvocationTargetException(e)); }
+        }
+    }
 }
@@ -26,12 +26,24 @@ package com.invirgance.convirgance.jdbc.datasource;
 import com.invirgance.convirgance.jdbc.AutomaticDriver;
 import com.invirgance.convirgance.jdbc.AutomaticDrivers;
 import com.invirgance.convirgance.jdbc.schema.DatabaseSchemaLayout;
+import com.invirgance.convirgance.json.JSONObject;
 import java.io.PrintWriter;
 import java.sql.Connection;
 import java.sql.Driver;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 import javax.sql.DataSource;
 
@@ -47,12 +59,30 @@ import javax.sql.DataSource;
  */
 public class DriverDataSource implements DataSource
 {
+    private static final int PENDING = 0;
+    private static final int COMPLETE = 1;
+    private static final int ABANDONED = 2;
+    
+    private static final int CONNECT_THREADS = 32;
+    
+    private static ThreadPoolExecutor connector;
+    
     private String url;
     private String username;
     private String password;
     
-    private AutomaticDriver autoDriver;
-    private Driver driver;
+    private volatile AutomaticDriver autoDriver;
+    private volatile Driver driver;
+    
+    private int loginTimeout = 30;
+    private boolean connectThread = true;
+    
+    private boolean sessionState;
+    private int statementCacheSize;
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    
+    private ConnectionMetrics metrics;
 
     public DriverDataSource()
     {
@@ -78,6 +108,26 @@ public class DriverDataSource implements DataSource
         return new DriverDataSource(url, username, password);
     }
     
+    /**
+     * Returns a connection pool for the provided login info. The pool can be 
+     * configured with the options described in {@link PooledDataSource}, 
+     * for example <code>{"maximumSize": 20, "borrowTimeout": 5000}</code>.
+     * 
+     * @param url The connection URL.
+     * @param username The username.
+     * @param password The password.
+     * @param options Pool settings, or null for the defaults.
+     * @return A pooled DataSource. Close it to release the connections.
+     */
+    public static PooledDataSource getPooledDataSource(String url, String username, String password, JSONObject options)
+    {
+        PooledDataSource pool = new PooledDataSource(new DriverDataSource(url, username, password));
+        
+        if(options != null) new DataSourceManager(pool).setConfig(options);
+        
+        return pool;
+    }
+    
     public AutomaticDriver getAutoDriver()
     {
         if(autoDriver == null) 
@@ -98,6 +148,40 @@ public class DriverDataSource implements DataSource
         return driver;
     }
     
+    /**
+     * Loads the driver for the connection URL without blocking the calling 
+     * thread. Maven resolution, if needed, runs on the provided executor and
+     * is shared with any concurrent requests for the same driver. Once the 
+     * future completes, {@link #getConnection()} no longer needs to resolve.
+     * 
+     * @param executor runs the resolution if the driver is not yet loaded
+     * @return a future completing with the driver
+     */
+    public CompletableFuture<Driver> getDriverAsync(Executor executor)
+    {
+        AutomaticDriver automatic;
+        CompletableFuture<Driver> failed;
+        
+        if(driver != null) return CompletableFuture.completedFuture(driver);
+        
+        automatic = getAutoDriver();
+        
+        if(automatic == null)
+        {
+            failed = new CompletableFuture<>();
+            
+            failed.completeExceptionally(new SQLException("No driver found for URL " + url));
+            
+            return failed;
+        }
+        
+        return automatic.getDriverAsync(executor).thenApply(loaded -> {
+            if(driver == null) driver = loaded;
+            
+            return driver;
+        });
+    }
+    
     public DatabaseSchemaLayout getSchemaLayout()
     {
         return new DatabaseSchemaLayout(getAutoDriver(), this);
@@ -165,9 +249,317 @@ public class DriverDataSource implements DataSource
         this.password = password;
     }
 
+    /**
+     * Wraps connections returned by this data source in a 
+     * {@link SessionStateConnection}, which skips redundant changes to 
+     * auto-commit, read-only, isolation, schema and catalog. The wrapper is a
+     * proxy, so callers that need the driver's own connection type must use
+     * <code>unwrap()</code> rather than a cast. Disabled by default. Only 
+     * affects connections opened afterward.
+     * 
+     * @param enabled true to track session state on new connections
+     */
+    public void useSessionState(boolean enabled)
+    {
+        this.sessionState = enabled;
+    }
+    
+    /**
+     * Returns true if connections are wrapped to track session state.
+     * 
+     * @return true if session state is tracked
+     * @see #useSessionState(boolean)
+     */
+    public boolean isSessionStateTracked()
+    {
+        return sessionState;
+    }
+    
+    /**
+     * Opens connections on a separate thread so that a driver that ignores
+     * its connect timeout cannot block the caller past the deadline. The 
+     * driver is still given the deadline where its configuration names a
+     * timeout property. Threads are shared by all data sources and capped, so
+     * attempts beyond the cap wait in line until the deadline. Enabled by 
+     * default, since many drivers have no timeout property or only apply it
+     * to part of the handshake. Disable it to connect on the calling thread,
+     * for example when the driver relies on thread-local state, and rely on
+     * the driver's own timeout alone.
+     * 
+     * @param enabled true to connect on a separate thread
+     */
+    public void useConnectThread(boolean enabled)
+    {
+        this.connectThread = enabled;
+    }
+    
+    /**
+     * Returns true if connections are opened on a separate thread.
+     * 
+     * @return true if the connect thread is used
+     * @see #useConnectThread(boolean)
+     */
+    public boolean isConnectThreadUsed()
+    {
+        return connectThread;
+    }
+    
+    /**
+     * Enables a per-connection cache of prepared statements on connections 
+     * returned by this data source. Statements are cached by SQL text and 
+     * result set options. Closing a cached statement returns it to the cache,
+     * avoiding repeated parsing and planning on databases whose drivers do not
+     * cache statements themselves. Only affects connections opened afterward.
+     * 
+     * @param size the number of idle statements to keep per connection, or 
+     *             0 to disable the cache
+     */
+    public void useStatementCache(int size)
+    {
+        this.statementCacheSize = Math.max(0, size);
+    }
+    
+    /**
+     * Returns the number of idle statements cached per connection.
+     * 
+     * @return the cache size, or 0 if statements are not cached
+     * @see #useStatementCache(int)
+     */
+    public int getStatementCacheSize()
+    {
+        return statementCacheSize;
+    }
+    
+    /**
+     * Returns the number of prepared statements served from the cache by 
+     * connections from this data source.
+     * 
+     * @return the number of cache hits
+     */
+    public long getStatementCacheHits()
+    {
+        return statementCacheHits.get();
+    }
+    
+    /**
+     * Returns the number of prepared statements that had to be prepared by
+     * the database because they were not in the cache.
+     * 
+     * @return the number of cache misses
+     */
+    public long getStatementCacheMisses()
+    {
+        return statementCacheMisses.get();
+    }
+    
+    /**
+     * Returns the connection metrics for this data source. Unless 
+     * {@link #useMetrics(ConnectionMetrics)} was called, metrics are shared by
+     * every DriverDataSource with the same URL, ignoring any connection 
+     * properties in the URL.
+     * 
+     * @return the connection metrics
+     */
+    public ConnectionMetrics getMetrics()
+    {
+        if(metrics == null) metrics = ConnectionMetrics.getMetrics(ConnectionMetrics.getName(url));
+        
+        return metrics;
+    }
+    
+    /**
+     * Reports connections to the provided metrics instead of the metrics for
+     * the URL. Stored connections use this to report under their name.
+     * 
+     * @param metrics the metrics to report to
+     */
+    public void useMetrics(ConnectionMetrics metrics)
+    {
+        this.metrics = metrics;
+    }
+    
+    private static synchronized ThreadPoolExecutor getConnector()
+    {
+        if(connector != null) return connector;
+        
+        // Bounded so a stalled database cannot pile up threads. Threads exit when idle.
+        connector = new ThreadPoolExecutor(CONNECT_THREADS, CONNECT_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "convirgance-jdbc-connect");
+            
+            thread.setDaemon(true);
+            
+            return thread;
+        });
+        
+        connector.allowCoreThreadTimeOut(true);
+        
+        return connector;
+    }
+    
+    /**
+     * Passes the deadline to the driver through the connection property named
+     * by the driver's <code>connectTimeoutProperty</code> setting. The value 
+     * is in seconds unless <code>connectTimeoutUnit</code> is 
+     * <code>milliseconds</code>. Properties already set are left alone.
+     * 
+     * @param properties The connection properties.
+     * @param timeout The maximum time to wait in milliseconds.
+     */
+    private void applyTimeout(Properties properties, long timeout)
+    {
+        AutomaticDriver automatic = getAutoDriver();
+        String property;
+        
+        if(automatic == null || timeout <= 0) return;
+        
+        property = automatic.getConfiguration("connectTimeoutProperty", null);
+        
+        if(property == null || properties.containsKey(property)) return;
+        
+        if(automatic.getConfiguration("connectTimeoutUnit", "seconds").equals("milliseconds"))
+        {
+            properties.put(property, String.valueOf(timeout));
+        }
+        else
+        {
+            // Round up so that short deadlines do not become "wait forever"
+            properties.put(property, String.valueOf((timeout + 999) / 1000));
+        }
+    }
+    
+    private Connection wrap(Connection connection)
+    {
+        if(statementCacheSize > 0) connection = StatementCache.wrap(connection, statementCacheSize, statementCacheHits, statementCacheMisses);
+        
+        return sessionState ? SessionStateConnection.wrap(connection) : connection;
+    }
+    
+    private static void discard(Connection connection)
+    {
+        try
+        {
+            if(connection != null) connection.close();
+        }
+        catch(SQLException e)
+        {
+            // Nobody is waiting for this connection any more
+        }
+    }
+    
+    /**
+     * Opens a connection, giving up once the timeout expires. The deadline is
+     * passed to the driver when it supports one. If the connect thread is in 
+     * use, the driver connects on a separate thread so that the caller is 
+     * never blocked past the deadline, and a connection that completes after
+     * the caller gave up is closed as soon as it arrives.
+     * 
+     * @param properties The connection properties.
+     * @param timeout The maximum time to wait in milliseconds, or 0 to wait indefinitely.
+     * @return A connection.
+     * @throws SQLException When the connection fails or times out.
+     */
+    private Connection open(Properties properties, long timeout) throws SQLException
+    {
+        Driver loaded = getDriver();
+        AtomicInteger state = new AtomicInteger(PENDING);
+        Future<Connection> future;
+        
+        applyTimeout(properties, timeout);
+        
+        if(timeout <= 0 || !connectThread) return loaded.connect(url, properties);
+        
+        future = getConnector().submit(() -> {
+            Connection connection = loaded.connect(url, properties);
+            
+            // The caller gave up. Clean up rather than leak the connection.
+            if(!state.compareAndSet(PENDING, COMPLETE)) discard(connection);
+            
+            return connection;
+        });
+        
+        try
+        {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        }
+        catch(TimeoutException e)
+        {
+            if(!state.compareAndSet(PENDING, ABANDONED)) return getQuietly(future);
+            
+            future.cancel(true);
+            
+            throw new SQLTimeoutException("Timed out after " + timeout + "ms connecting to " + url);
+        }
+        catch(InterruptedException e)
+        {
+            if(!state.compareAndSet(PENDING, ABANDONED)) discard(getQuietly(future));
+            
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            
+            throw new SQLException("Interrupted while connecting to " + url, e);
+        }
+        catch(ExecutionException e)
+        {
+            if(e.getCause() instanceof SQLException) throw (SQLException)e.getCause();
+            if(e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+            
+            throw new SQLException(e.getCause());
+        }
+    }
+    
+    /**
+     * Opens a connection and records the attempt in the connection metrics.
+     * 
+     * @param properties The connection properties.
+     * @param timeout The maximum time to wait in milliseconds, or 0 to wait indefinitely.
+     * @return A connection.
+     * @throws SQLException When the connection fails or times out.
+     */
+    private Connection connect(Properties properties, long timeout) throws SQLException
+    {
+        ConnectionMetrics metrics = getMetrics();
+        long start = System.nanoTime();
+        Connection connection;
+        
+        try
+        {
+            connection = open(properties, timeout);
+        }
+        catch(SQLException | RuntimeException e)
+        {
+            metrics.failed(System.nanoTime() - start);
+            
+            throw e;
+        }
+        
+        if(connection == null)
+        {
+            metrics.failed(System.nanoTime() - start);
+            
+            return null;
+        }
+        
+        metrics.connected(System.nanoTime() - start);
+        
+        return wrap(MonitoredConnection.wrap(connection, metrics));
+    }
+    
+    private static Connection getQuietly(Future<Connection> future) throws SQLException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch(InterruptedException | ExecutionException e)
+        {
+            throw new SQLException(e);
+        }
+    }
+    
     /**
      * Returns a connection to the database using the current username and password.
      * The password is optional when connecting with this method.
+     * Waits no longer than the login timeout for the connection.
      * 
      * @return A connection.
      * @throws SQLException When the username and password are incorrect or the something else.
@@ -180,7 +572,28 @@ public class DriverDataSource implements DataSource
         properties.put("user", this.username);
         if(this.password != null) properties.put("password", this.password);
         
-        return getDriver().connect(url, properties);
+        return connect(properties, loginTimeout * 1000L);
+    }
+    
+    /**
+     * Returns a connection to the database using the current username and 
+     * password, waiting no longer than the provided timeout instead of the
+     * login timeout.
+     * 
+     * @param timeout The maximum time to wait, or 0 to wait indefinitely.
+     * @param unit The unit of the timeout.
+     * @return A connection.
+     * @throws SQLTimeoutException When the connect thread is in use and the connection is not established in time.
+     * @throws SQLException When the username and password are incorrect or the something else.
+     */
+    public Connection getConnection(long timeout, TimeUnit unit) throws SQLException
+    {
+        Properties properties = new Properties();
+        
+        properties.put("user", this.username);
+        if(this.password != null) properties.put("password", this.password);
+        
+        return connect(properties, unit.toMillis(timeout));
     }
 
     /**
@@ -199,7 +612,7 @@ public class DriverDataSource implements DataSource
         properties.put("user", username);
         properties.put("password", password);
         
-        return getDriver().connect(url, properties);
+        return connect(properties, loginTimeout * 1000L);
     }
 
     @Override
@@ -214,16 +627,25 @@ public class DriverDataSource implements DataSource
         // No op
     }
 
+    /**
+     * Sets the maximum time to wait for a connection to be established. The
+     * timeout is passed to drivers that support one. When the connect thread
+     * is in use, attempts that exceed the timeout fail with an 
+     * {@link SQLTimeoutException}. Defaults to 30 seconds.
+     * 
+     * @param seconds The timeout in seconds, or 0 to wait indefinitely.
+     * @throws SQLException Never thrown.
+     */
     @Override
     public void setLoginTimeout(int seconds) throws SQLException
     {
-        // No op
+        this.loginTimeout = Math.max(0, seconds);
     }
 
     @Override
     public int getLoginTimeout() throws SQLException
     {
-        return 30;
+        return loginTimeout;
     }
 
     @Override
@@ -0,0 +1,625 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc.datasource;
+
+import com.invirgance.convirgance.jdbc.StoredConnection;
+import com.invirgance.convirgance.jdbc.StoredConnections;
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import java.io.PrintWriter;
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * Connects to the first available node from an ordered list of databases. 
+ * Each node has a circuit breaker that opens after 
+ * <code>failureThreshold</code> consecutive failures. Open nodes are skipped
+ * without attempting to connect, so callers move on to the next node 
+ * immediately rather than waiting for a dead host to time out. If every node
+ * is open, {@link #getConnection()} fails fast.
+ * 
+ * Nodes are checked in the background as soon as the first connection is 
+ * requested, then every <code>healthCheckInterval</code> milliseconds. A 
+ * successful check closes the breaker, returning the node to service. If 
+ * health checks are disabled, an open node admits a single trial connection
+ * once <code>resetTimeout</code> has passed. All nodes are checked at once
+ * and share one deadline. Each check runs on a thread of its own, so a node
+ * that hangs past the deadline only ties up its own thread. A node whose 
+ * previous check has still not returned is counted as failing without 
+ * starting another. The threads stop when the data source is closed or 
+ * garbage collected.
+ * 
+ * The data source is configured through bean properties, so it can be set up
+ * from JSON using {@link DataSourceManager#setConfig(com.invirgance.convirgance.json.JSONObject)}:
+ * 
+ * <ul>
+ *   <li><code>failureThreshold</code> - consecutive failures before a node is skipped (default 1)</li>
+ *   <li><code>resetTimeout</code> - milliseconds before an open node is tried again (default 30 seconds)</li>
+ *   <li><code>healthCheckInterval</code> - milliseconds between health checks, or 0 to disable them (default 5 seconds)</li>
+ *   <li><code>healthCheckTimeout</code> - milliseconds a health check may take (default 5 seconds)</li>
+ * </ul>
+ * 
+ * @author jbanes
+ */
+public class FailoverDataSource implements DataSource, AutoCloseable
+{
+    private final List<Node> nodes = new ArrayList<>();
+    
+    private int failureThreshold = 1;
+    private long resetTimeout = 30000;
+    private long healthCheckInterval = 5000;
+    private long healthCheckTimeout = 5000;
+    
+    private ScheduledThreadPoolExecutor checker;
+    private ThreadPoolExecutor opener;
+    private volatile boolean started;
+    private volatile boolean closed;
+
+    /**
+     * Creates a failover data source from an ordered list of nodes.
+     * 
+     * @param sources the nodes, most preferred first
+     */
+    public FailoverDataSource(List<DataSource> sources)
+    {
+        if(sources.isEmpty()) throw new IllegalArgumentException("At least one node is required");
+        
+        for(DataSource source : sources) nodes.add(new Node(source, source, getName(source)));
+    }
+    
+    /**
+     * Creates a failover data source from an ordered list of nodes.
+     * 
+     * @param sources the nodes, most preferred first
+     */
+    public FailoverDataSource(DataSource... sources)
+    {
+        this(Arrays.asList(sources));
+    }
+    
+    /**
+     * Creates a failover data source from an ordered list of stored connections.
+     * Health checks connect through a private copy of each connection's data
+     * source, so the check timeout can be applied without changing the data
+     * source shared with the rest of the application.
+     * 
+     * @param connections the nodes, most preferred first
+     */
+    public FailoverDataSource(StoredConnection... connections)
+    {
+        if(connections.length < 1) throw new IllegalArgumentException("At least one node is required");
+        
+        for(StoredConnection connection : connections) nodes.add(new Node(connection.getDataSource(), connection.createDataSource(), connection.getName()));
+    }
+    
+    /**
+     * Returns a failover data source for an ordered list of URLs that share 
+     * the same login.
+     * 
+     * @param username The username.
+     * @param password The password.
+     * @param urls The connection URLs, most preferred first.
+     * @return A failover data source.
+     */
+    public static FailoverDataSource getDataSource(String username, String password, String... urls)
+    {
+        List<DataSource> sources = new ArrayList<>();
+        
+        for(String url : urls) sources.add(DriverDataSource.getDataSource(url, username, password));
+        
+        return new FailoverDataSource(sources);
+    }
+    
+    /**
+     * Returns a failover data source for an ordered list of stored connection
+     * names.
+     * 
+     * @param names The stored connection names, most preferred first.
+     * @return A failover data source.
+     */
+    public static FailoverDataSource getStoredDataSource(String... names)
+    {
+        StoredConnection[] connections = new StoredConnection[names.length];
+        
+        for(int i=0; i<names.length; i++)
+        {
+            connections[i] = StoredConnections.getConnection(names[i]);
+            
+            if(connections[i] == null) throw new IllegalArgumentException("No stored connection named " + names[i]);
+        }
+        
+        return new FailoverDataSource(connections);
+    }
+    
+    private static String getName(DataSource source)
+    {
+        if(source instanceof DriverDataSource) return ConnectionMetrics.getName(((DriverDataSource)source).getUrl());
+        
+        return source.toString();
+    }
+    
+    private synchronized ScheduledThreadPoolExecutor getChecker()
+    {
+        if(checker != null) return checker;
+        
+        checker = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "convirgance-jdbc-health");
+            
+            thread.setDaemon(true);
+            
+            return thread;
+        });
+        
+        checker.setRemoveOnCancelPolicy(true);
+        
+        if(closed) checker.shutdown();
+        
+        return checker;
+    }
+    
+    private synchronized ThreadPoolExecutor getOpener()
+    {
+        if(opener != null) return opener;
+        
+        // Unbounded, but each node has at most one check running. Threads exit when idle.
+        opener = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "convirgance-jdbc-health-open");
+            
+            thread.setDaemon(true);
+            
+            return thread;
+        });
+        
+        if(closed) opener.shutdown();
+        
+        return opener;
+    }
+    
+    /**
+     * Returns the number of consecutive failures that open a node's breaker.
+     * 
+     * @return the failure threshold
+     */
+    public int getFailureThreshold()
+    {
+        return failureThreshold;
+    }
+
+    /**
+     * Sets the number of consecutive failures that open a node's breaker.
+     * 
+     * @param failureThreshold the failure threshold
+     */
+    public void setFailureThreshold(int failureThreshold)
+    {
+        this.failureThreshold = Math.max(1, failureThreshold);
+    }
+
+    /**
+     * Returns how long an open node is skipped before a caller may try it.
+     * 
+     * @return the reset timeout in milliseconds
+     */
+    public long getResetTimeout()
+    {
+        return resetTimeout;
+    }
+
+    /**
+     * Sets how long an open node is skipped before a caller may try it.
+     * 
+     * @param resetTimeout the reset timeout in milliseconds
+     */
+    public void setResetTimeout(long resetTimeout)
+    {
+        this.resetTimeout = Math.max(0, resetTimeout);
+    }
+
+    /**
+     * Returns the time between background health checks.
+     * 
+     * @return the interval in milliseconds, or 0 if health checks are disabled
+     */
+    public long getHealthCheckInterval()
+    {
+        return healthCheckInterval;
+    }
+
+    /**
+     * Sets the time between background health checks. Takes effect before 
+     * the first connection is requested.
+     * 
+     * @param healthCheckInterval the interval in milliseconds, or 0 to disable health checks
+     */
+    public void setHealthCheckInterval(long healthCheckInterval)
+    {
+        this.healthCheckInterval = Math.max(0, healthCheckInterval);
+    }
+
+    /**
+     * Returns how long a health check may take before the node is considered
+     * down.
+     * 
+     * @return the timeout in milliseconds
+     */
+    public long getHealthCheckTimeout()
+    {
+        return healthCheckTimeout;
+    }
+
+    /**
+     * Sets how long a health check may take before the node is considered 
+     * down. The timeout is also passed to {@link DriverDataSource} nodes so 
+     * that the driver gives up on its own.
+     * 
+     * @param healthCheckTimeout the timeout in milliseconds
+     */
+    public void setHealthCheckTimeout(long healthCheckTimeout)
+    {
+        this.healthCheckTimeout = Math.max(1, healthCheckTimeout);
+    }
+    
+    /**
+     * Returns the state of each node in order. Each record contains the node 
+     * <code>name</code>, whether it is <code>available</code>, and its 
+     * consecutive <code>failures</code>.
+     * 
+     * @return the node states
+     */
+    public JSONArray<JSONObject> getStatus()
+    {
+        JSONArray<JSONObject> status = new JSONArray<>();
+        JSONObject record;
+        
+        for(Node node : nodes)
+        {
+            record = new JSONObject(true);
+            
+            record.put("name", node.name);
+            record.put("available", node.openUntil.get() == 0);
+            record.put("failures", node.failures.get());
+            
+            status.add(record);
+        }
+        
+        return status;
+    }
+    
+    private synchronized void startHealthChecks()
+    {
+        if(started || closed) return;
+        
+        started = true;
+        
+        if(healthCheckInterval <= 0) return;
+        
+        getChecker().scheduleWithFixedDelay(new HealthCheck(this), 0, healthCheckInterval, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Checks every node immediately, opening or closing their breakers. 
+     * Called periodically in the background.
+     */
+    public void checkHealth()
+    {
+        List<CompletableFuture<Boolean>> checks = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(healthCheckTimeout);
+        
+        for(Node node : nodes) checks.add(start(node));
+        
+        for(int i=0; i<nodes.size(); i++)
+        {
+            if(!finish(nodes.get(i), checks.get(i), deadline)) return;
+        }
+    }
+    
+    /**
+     * Starts a check of the node on a thread of its own.
+     * 
+     * @return the pending result, or null if the previous check of the node
+     *         has not returned yet
+     */
+    private CompletableFuture<Boolean> start(Node node)
+    {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        
+        if(!node.checking.compareAndSet(false, true)) return null;
+        
+        try
+        {
+            getOpener().execute(() -> {
+                try(Connection connection = open(node))
+                {
+                    future.complete(connection.isValid((int)Math.max(1, TimeUnit.MILLISECONDS.toSeconds(healthCheckTimeout))));
+                }
+                catch(SQLException | RuntimeException e)
+                {
+                    future.completeExceptionally(e);
+                }
+                finally
+                {
+                    node.checking.set(false);
+                }
+            });
+        }
+        catch(RejectedExecutionException e)
+        {
+            node.checking.set(false);
+            future.completeExceptionally(e);
+        }
+        
+        return future;
+    }
+    
+    /**
+     * Connects to the node, passing the health check timeout on to the data
+     * source where it can be applied.
+     */
+    private Connection open(Node node) throws SQLException
+    {
+        if(node.probe instanceof DriverDataSource) return ((DriverDataSource)node.probe).getConnection(healthCheckTimeout, TimeUnit.MILLISECONDS);
+        
+        // Only a private copy may have its timeout changed
+        if(node.probe != node.source) node.probe.setLoginTimeout((int)Math.max(1, (healthCheckTimeout + 999) / 1000));
+        
+        return node.probe.getConnection();
+    }
+    
+    /**
+     * Waits until the deadline for the node's check and records the result.
+     * 
+     * @return false if the wait was interrupted
+     */
+    private boolean finish(Node node, CompletableFuture<Boolean> check, long deadline)
+    {
+        // Still stuck on an earlier check
+        if(check == null)
+        {
+            node.failed();
+            return true;
+        }
+        
+        try
+        {
+            if(check.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) node.succeeded();
+            else node.failed();
+        }
+        catch(TimeoutException | ExecutionException e)
+        {
+            node.failed();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        
+        return true;
+    }
+
+    /**
+     * Returns a connection from the first node whose breaker is closed. 
+     * Nodes that fail are skipped and the next node is tried.
+     * 
+     * @return a connection
+     * @throws SQLException if every node is unavailable or failed
+     */
+    @Override
+    public Connection getConnection() throws SQLException
+    {
+        return connect(null, null);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException
+    {
+        return connect(username, password);
+    }
+    
+    private Connection connect(String username, String password) throws SQLException
+    {
+        SQLException failure = null;
+        Connection connection;
+        
+        if(closed) throw new SQLException("Failover data source is closed");
+        if(!started) startHealthChecks();
+        
+        for(Node node : nodes)
+        {
+            if(!node.isAvailable()) continue;
+            
+            try
+            {
+                connection = (username == null) ? node.source.getConnection() : node.source.getConnection(username, password);
+                
+                node.succeeded();
+                
+                return connection;
+            }
+            catch(SQLException e)
+            {
+                node.failed();
+                
+                if(failure == null) failure = e;
+                else failure.setNextException(e);
+            }
+        }
+        
+        if(failure != null) throw failure;
+        
+        throw new SQLException("No database available. All " + nodes.size() + " nodes are failing.");
+    }
+    
+    /**
+     * Stops the background health checks.
+     */
+    @Override
+    public synchronized void close()
+    {
+        closed = true;
+        
+        if(checker != null) checker.shutdownNow();
+        if(opener != null) opener.shutdownNow();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException
+    {
+        return nodes.get(0).source.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException
+    {
+        for(Node node : nodes) node.source.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException
+    {
+        for(Node node : nodes) node.source.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException
+    {
+        return nodes.get(0).source.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException
+    {
+        return nodes.get(0).source.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException
+    {
+        if(iface.isInstance(this)) return iface.cast(this);
+        
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException
+    {
+        return iface.isInstance(this);
+    }
+    
+    /**
+     * Periodic check of every node. Holds the data source weakly so that a 
+     * data source nobody closed can still be collected, at which point the 
+     * checker threads are shut down.
+     */
+    private static class HealthCheck implements Runnable
+    {
+        private final WeakReference<FailoverDataSource> reference;
+        private final ScheduledThreadPoolExecutor checker;
+        private final ThreadPoolExecutor opener;
+        
+        public HealthCheck(FailoverDataSource source)
+        {
+            this.reference = new WeakReference<>(source);
+            this.checker = source.getChecker();
+            this.opener = source.getOpener();
+        }
+        
+        @Override
+        public void run()
+        {
+            FailoverDataSource source = reference.get();
+            
+            if(source == null)
+            {
+                checker.shutdown();
+                opener.shutdown();
+                return;
+            }
+            
+            source.checkHealth();
+        }
+    }
+    
+    private class Node
+    {
+        private final DataSource source;
+        private final DataSource probe;
+        private final String name;
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicLong openUntil = new AtomicLong();
+        private final AtomicBoolean checking = new AtomicBoolean();
+
+        public Node(DataSource source, DataSource probe, String name)
+        {
+            this.source = source;
+            this.probe = probe;
+            this.name = name;
+        }
+        
+        /**
+         * Returns true if the breaker is closed. Once the reset timeout has 
+         * passed, the first caller to ask is let through as a trial while 
+         * the node stays closed to everyone else.
+         */
+        public boolean isAvailable()
+        {
+            long until = openUntil.get();
+            long now = System.currentTimeMillis();
+            
+            if(until == 0) return true;
+            if(now < until) return false;
+            
+            return openUntil.compareAndSet(until, now + resetTimeout);
+        }
+        
+        public void succeeded()
+        {
+            failures.set(0);
+            openUntil.set(0);
+        }
+        
+        public void failed()
+        {
+            if(failures.incrementAndGet() >= failureThreshold) openUntil.set(System.currentTimeMillis() + resetTimeout);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc.datasource;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Reports connections that are held longer than the leak threshold of their
+ * {@link ConnectionMetrics}. Borrowing a connection schedules a check that is
+ * cancelled when the connection is closed, so connections that are closed in
+ * time cost one scheduled task. The stack of the borrowing thread is captured 
+ * for a sampled fraction of borrows only, since capturing it on every borrow 
+ * is expensive.
+ * 
+ * Leaks are logged through <code>java.util.logging</code> as warnings on the
+ * <code>com.invirgance.convirgance.jdbc.datasource.LeakDetector</code> logger.
+ *
+ * @author jbanes
+ */
+class LeakDetector
+{
+    private static final Logger logger = Logger.getLogger(LeakDetector.class.getName());
+    private static final ThreadLocal<Integer> suspended = new ThreadLocal<>();
+    
+    private static ScheduledExecutorService detector;
+    
+    private static synchronized ScheduledExecutorService getDetector()
+    {
+        ScheduledThreadPoolExecutor executor;
+        
+        if(detector != null) return detector;
+        
+        executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "convirgance-jdbc-leak-detector");
+            
+            thread.setDaemon(true);
+            
+            return thread;
+        });
+        
+        // Most checks are cancelled. Don't let them pile up in the queue.
+        executor.setRemoveOnCancelPolicy(true);
+        
+        detector = executor;
+        
+        return detector;
+    }
+    
+    /**
+     * Stops tracking connections opened by the current thread until 
+     * {@link #resume()} is called. Used by pools, whose physical connections 
+     * are expected to stay open.
+     */
+    static void suspend()
+    {
+        Integer depth = suspended.get();
+        
+        suspended.set((depth == null) ? 1 : depth + 1);
+    }
+    
+    /**
+     * Returns true if the current thread is opening connections for a pool.
+     * 
+     * @return true if tracking is suspended
+     */
+    static boolean isSuspended()
+    {
+        return suspended.get() != null;
+    }
+    
+    /**
+     * Undoes a call to {@link #suspend()}.
+     */
+    static void resume()
+    {
+        Integer depth = suspended.get();
+        
+        if(depth == null || depth <= 1) suspended.remove();
+        else suspended.set(depth - 1);
+    }
+    
+    /**
+     * Starts tracking a borrowed connection.
+     * 
+     * @param metrics the metrics providing the threshold and sample rate
+     * @param description describes the connection in the log
+     * @return the lease to close when the connection is closed, or null if 
+     *         leak detection is disabled
+     */
+    static Lease borrow(ConnectionMetrics metrics, String description)
+    {
+        long threshold;
+        Throwable stack = null;
+        
+        if(metrics == null || suspended.get() != null) return null;
+        
+        threshold = metrics.getLeakThreshold();
+        
+        if(threshold <= 0) return null;
+        
+        if(ThreadLocalRandom.current().nextDouble() < metrics.getLeakSampleRate())
+        {
+            stack = new Throwable("Connection borrowed here");
+        }
+        
+        return new Lease(metrics, description, threshold, stack);
+    }
+    
+    static class Lease implements Runnable
+    {
+        private final ConnectionMetrics metrics;
+        private final String description;
+        private final Throwable stack;
+        private final long borrowed = System.nanoTime();
+        private final ScheduledFuture<?> check;
+        
+        private volatile boolean reported;
+        
+        private Lease(ConnectionMetrics metrics, String description, long threshold, Throwable stack)
+        {
+            this.metrics = metrics;
+            this.description = description;
+            this.stack = stack;
+            this.check = getDetector().schedule(this, threshold, TimeUnit.MILLISECONDS);
+        }
+        
+        private long getHeldTime()
+        {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - borrowed);
+        }
+        
+        @Override
+        public void run()
+        {
+            String message = "Possible connection leak: " + description + " to " + metrics.getName() + " has been held for " + getHeldTime() + "ms without being closed";
+            LogRecord record;
+            
+            reported = true;
+            
+            metrics.leaked();
+            
+            if(stack == null) message += ". Increase the leak sample rate to capture where it was borrowed.";
+            
+            record = new LogRecord(Level.WARNING, message);
+            
+            record.setLoggerName(logger.getName());
+            record.setThrown(stack);
+            
+            logger.log(record);
+        }
+        
+        /**
+         * Stops tracking the connection once it is closed.
+         */
+        public void close()
+        {
+            check.cancel(false);
+            
+            if(reported) logger.info("Previously reported " + description + " to " + metrics.getName() + " was closed after " + getHeldTime() + "ms");
+        }
+    }
+}
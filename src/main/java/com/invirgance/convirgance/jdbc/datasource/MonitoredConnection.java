@@ -0,0 +1,107 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc.datasource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Connection wrapper that reports to {@link ConnectionMetrics} how long the 
+ * connection was held once it is closed. Connections that are not closed in
+ * time are reported by the {@link LeakDetector}. Connections opened for a 
+ * pool only report that they closed, since the pool reports the time each
+ * borrow was held.
+ *
+ * @author jbanes
+ */
+class MonitoredConnection implements InvocationHandler
+{
+    private final Connection connection;
+    private final ConnectionMetrics metrics;
+    private final long opened = System.nanoTime();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final boolean pooled = LeakDetector.isSuspended();
+    private final LeakDetector.Lease lease;
+    
+    private MonitoredConnection(Connection connection, ConnectionMetrics metrics)
+    {
+        this.connection = connection;
+        this.metrics = metrics;
+        this.lease = LeakDetector.borrow(metrics, "Connection");
+    }
+    
+    /**
+     * Wraps a connection that has just been opened.
+     * 
+     * @param connection the connection to wrap
+     * @param metrics the metrics to report to
+     * @return the wrapped connection, or null if the connection was null
+     */
+    static Connection wrap(Connection connection, ConnectionMetrics metrics)
+    {
+        if(connection == null) return null;
+        
+        return (Connection)Proxy.newProxyInstance(MonitoredConnection.class.getClassLoader(), new Class[]{ Connection.class }, new MonitoredConnection(connection, metrics));
+    }
+    
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+    {
+        switch(method.getName())
+        {
+            case "equals":
+                return proxy == args[0];
+            
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            
+            case "toString":
+                return connection.toString();
+            
+            case "close":
+                if(closed.compareAndSet(false, true))
+                {
+                    metrics.closed();
+                    
+                    if(!pooled) metrics.held(System.nanoTime() - opened);
+                    
+                    if(lease != null) lease.close();
+                }
+                break;
+        }
+        
+        try
+        {
+            return method.invoke(connection, args);
+        }
+        catch(InvocationTargetException e)
+        {
+            throw e.getCause();
+        }
+    }
+}
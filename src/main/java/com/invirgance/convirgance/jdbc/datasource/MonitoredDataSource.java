@@ -0,0 +1,153 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc.datasource;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * Wraps any DataSource to report connection attempts, failures, and held 
+ * times to {@link ConnectionMetrics}. {@link DriverDataSource} reports on its
+ * own and does not need to be wrapped.
+ *
+ * @author jbanes
+ */
+public class MonitoredDataSource implements DataSource
+{
+    private final DataSource source;
+    private final ConnectionMetrics metrics;
+    
+    /**
+     * Creates a monitored view of the data source.
+     * 
+     * @param source the data source to monitor
+     * @param metrics the metrics to report to
+     */
+    public MonitoredDataSource(DataSource source, ConnectionMetrics metrics)
+    {
+        this.source = source;
+        this.metrics = metrics;
+    }
+    
+    /**
+     * Returns the data source being monitored.
+     * 
+     * @return the underlying data source
+     */
+    public DataSource getDataSource()
+    {
+        return source;
+    }
+    
+    /**
+     * Returns the metrics this data source reports to.
+     * 
+     * @return the connection metrics
+     */
+    public ConnectionMetrics getMetrics()
+    {
+        return metrics;
+    }
+    
+    private Connection monitor(String username, String password, boolean credentials) throws SQLException
+    {
+        long start = System.nanoTime();
+        Connection connection;
+        
+        try
+        {
+            connection = credentials ? source.getConnection(username, password) : source.getConnection();
+        }
+        catch(SQLException | RuntimeException e)
+        {
+            metrics.failed(System.nanoTime() - start);
+            
+            throw e;
+        }
+        
+        metrics.connected(System.nanoTime() - start);
+        
+        return MonitoredConnection.wrap(connection, metrics);
+    }
+    
+    @Override
+    public Connection getConnection() throws SQLException
+    {
+        return monitor(null, null, false);
+    }
+    
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException
+    {
+        return monitor(username, password, true);
+    }
+    
+    @Override
+    public PrintWriter getLogWriter() throws SQLException
+    {
+        return source.getLogWriter();
+    }
+    
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException
+    {
+        source.setLogWriter(out);
+    }
+    
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException
+    {
+        source.setLoginTimeout(seconds);
+    }
+    
+    @Override
+    public int getLoginTimeout() throws SQLException
+    {
+        return source.getLoginTimeout();
+    }
+    
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException
+    {
+        return source.getParentLogger();
+    }
+    
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException
+    {
+        if(iface.isInstance(source)) return iface.cast(source);
+        
+        return source.unwrap(iface);
+    }
+    
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException
+    {
+        return iface.isInstance(source) || source.isWrapperFor(iface);
+    }
+}
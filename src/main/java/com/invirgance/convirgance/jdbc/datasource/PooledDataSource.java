@@ -0,0 +1,1053 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc.datasource;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * A connection pool in front of another {@link DataSource}. Physical 
+ * connections are reused across calls to {@link #getConnection()}, avoiding 
+ * a new network and authentication handshake for every unit of work.
+ * 
+ * Connections handed out by the pool are proxies. Calling <code>close()</code>
+ * returns the physical connection to the pool rather than closing it. Any 
+ * open transaction is rolled back when a connection is returned, and 
+ * auto-commit, read-only, transaction isolation, catalog, schema and 
+ * holdability are restored to the values the connection was opened with.
+ * Statements and result sets the borrower left open are closed first.
+ * Statements, result sets and metadata obtained through a pooled connection 
+ * are wrapped so that <code>getConnection()</code> returns the pooled 
+ * connection, and <code>unwrap(Connection.class)</code> returns the pooled
+ * connection itself. The physical connection is never handed out.
+ * Connections that sat idle are checked with <code>isValid()</code> before
+ * being handed out again. When the underlying data source reports {@link ConnectionMetrics},
+ * leak detection and held times apply to each borrowed connection rather 
+ * than to the physical connections held by the pool.
+ * 
+ * The pool is configured through bean properties, so it can be set up from 
+ * JSON using {@link DataSourceManager#setConfig(com.invirgance.convirgance.json.JSONObject)}:
+ * 
+ * <ul>
+ *   <li><code>minimumSize</code> - idle connections kept open (default 0)</li>
+ *   <li><code>maximumSize</code> - total connections allowed (default 10)</li>
+ *   <li><code>idleTimeout</code> - milliseconds before an idle connection above the minimum is closed (default 10 minutes)</li>
+ *   <li><code>maxLifetime</code> - milliseconds before a connection is retired (default 30 minutes)</li>
+ *   <li><code>borrowTimeout</code> - milliseconds to wait for a free connection (default 30 seconds)</li>
+ *   <li><code>validationTimeout</code> - milliseconds allowed to validate an idle connection, or 0 to skip validation (default 5 seconds)</li>
+ * </ul>
+ * 
+ * The minimum size is filled in the background by a shared set of up to 16
+ * daemon threads. Each pool runs at most one fill at a time, so a slow host
+ * ties up a single thread and only delays its own pool.
+ * 
+ * @author jbanes
+ */
+public class PooledDataSource implements DataSource, AutoCloseable
+{
+    private static final long HOUSEKEEPING_INTERVAL = 30000;
+    private static final long VALIDATION_INTERVAL = 500;
+    private static final int FILL_THREADS = 16;
+    private static final int PRUNE_SIZE = 16;
+    private static final Set<String> SESSION_SETTERS = new HashSet<>(Arrays.asList("setReadOnly", "setTransactionIsolation", "setCatalog", "setSchema", "setHoldability"));
+    private static final Set<Class<?>> WRAPPED = new HashSet<>(Arrays.asList(Statement.class, PreparedStatement.class, CallableStatement.class, ResultSet.class, DatabaseMetaData.class));
+    
+    private static ScheduledExecutorService housekeeper;
+    private static ThreadPoolExecutor filler;
+    
+    private DataSource source;
+    
+    private int minimumSize = 0;
+    private int maximumSize = 10;
+    private long idleTimeout = 600000;
+    private long maxLifetime = 1800000;
+    private long borrowTimeout = 30000;
+    private long validationTimeout = 5000;
+    
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private int total;
+    private boolean closed;
+    private ScheduledFuture<?> housekeeping;
+    private boolean filling;
+    
+    /**
+     * Creates a pool of connections obtained from the provided data source.
+     * 
+     * @param source the data source that opens physical connections
+     */
+    public PooledDataSource(DataSource source)
+    {
+        this.source = source;
+    }
+    
+    private static synchronized ScheduledExecutorService getHousekeeper()
+    {
+        if(housekeeper != null) return housekeeper;
+        
+        housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "convirgance-jdbc-pool");
+            
+            thread.setDaemon(true);
+            
+            return thread;
+        });
+        
+        return housekeeper;
+    }
+    
+    private static synchronized ThreadPoolExecutor getFiller()
+    {
+        if(filler != null) return filler;
+        
+        // One fill per pool at a time. Threads exit when idle.
+        filler = new ThreadPoolExecutor(FILL_THREADS, FILL_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "convirgance-jdbc-pool-fill");
+            
+            thread.setDaemon(true);
+            
+            return thread;
+        });
+        
+        filler.allowCoreThreadTimeOut(true);
+        
+        return filler;
+    }
+    
+    /**
+     * Returns the data source used to open physical connections.
+     * 
+     * @return the underlying data source
+     */
+    public DataSource getDataSource()
+    {
+        return source;
+    }
+    
+    /**
+     * Returns the number of idle connections the pool keeps open.
+     * 
+     * @return the minimum pool size
+     */
+    public int getMinimumSize()
+    {
+        return minimumSize;
+    }
+    
+    /**
+     * Sets the number of idle connections the pool keeps open, even when
+     * they exceed the idle timeout.
+     * 
+     * @param minimumSize the minimum pool size
+     */
+    public void setMinimumSize(int minimumSize)
+    {
+        this.minimumSize = minimumSize;
+    }
+    
+    /**
+     * Returns the maximum number of physical connections.
+     * 
+     * @return the maximum pool size
+     */
+    public int getMaximumSize()
+    {
+        return maximumSize;
+    }
+    
+    /**
+     * Sets the maximum number of physical connections, counting both idle
+     * and borrowed connections.
+     * 
+     * @param maximumSize the maximum pool size
+     */
+    public synchronized void setMaximumSize(int maximumSize)
+    {
+        this.maximumSize = maximumSize;
+        
+        notifyAll();
+    }
+    
+    /**
+     * Returns how long a connection may sit idle before being closed.
+     * 
+     * @return the idle timeout in milliseconds
+     */
+    public long getIdleTimeout()
+    {
+        return idleTimeout;
+    }
+    
+    /**
+     * Sets how long a connection may sit idle before being closed. Idle 
+     * connections within the minimum size are kept.
+     * 
+     * @param idleTimeout the idle timeout in milliseconds, or 0 to disable
+     */
+    public void setIdleTimeout(long idleTimeout)
+    {
+        this.idleTimeout = idleTimeout;
+    }
+    
+    /**
+     * Returns how long a physical connection is kept before being replaced.
+     * 
+     * @return the maximum lifetime in milliseconds
+     */
+    public long getMaxLifetime()
+    {
+        return maxLifetime;
+    }
+    
+    /**
+     * Sets how long a physical connection is kept before being replaced. 
+     * Borrowed connections are retired when they are returned.
+     * 
+     * @param maxLifetime the maximum lifetime in milliseconds, or 0 to disable
+     */
+    public void setMaxLifetime(long maxLifetime)
+    {
+        this.maxLifetime = maxLifetime;
+    }
+    
+    /**
+     * Returns how long {@link #getConnection()} waits for a free connection.
+     * 
+     * @return the borrow timeout in milliseconds
+     */
+    public long getBorrowTimeout()
+    {
+        return borrowTimeout;
+    }
+    
+    /**
+     * Sets how long {@link #getConnection()} waits for a free connection when
+     * the pool is at its maximum size.
+     * 
+     * @param borrowTimeout the borrow timeout in milliseconds
+     */
+    public void setBorrowTimeout(long borrowTimeout)
+    {
+        this.borrowTimeout = borrowTimeout;
+    }
+    
+    /**
+     * Returns how long an idle connection may take to pass validation.
+     * 
+     * @return the validation timeout in milliseconds
+     */
+    public long getValidationTimeout()
+    {
+        return validationTimeout;
+    }
+    
+    /**
+     * Sets how long an idle connection may take to pass validation before it
+     * is discarded. Connections returned within the last half second are 
+     * handed out without validating.
+     * 
+     * @param validationTimeout the validation timeout in milliseconds, or 0 to disable
+     */
+    public void setValidationTimeout(long validationTimeout)
+    {
+        this.validationTimeout = validationTimeout;
+    }
+    
+    /**
+     * Returns the number of physical connections, both idle and borrowed.
+     * 
+     * @return the pool size
+     */
+    public synchronized int getTotalCount()
+    {
+        return total;
+    }
+    
+    /**
+     * Returns the number of connections waiting in the pool.
+     * 
+     * @return the idle connection count
+     */
+    public synchronized int getIdleCount()
+    {
+        return idle.size();
+    }
+    
+    /**
+     * Returns the number of connections currently borrowed.
+     * 
+     * @return the active connection count
+     */
+    public synchronized int getActiveCount()
+    {
+        return total - idle.size();
+    }
+    
+    /**
+     * Returns true once the pool has been closed.
+     * 
+     * @return true if the pool is closed
+     */
+    public synchronized boolean isClosed()
+    {
+        return closed;
+    }
+    
+    private boolean isExpired(PooledConnection pooled, long now)
+    {
+        return maxLifetime > 0 && now - pooled.created >= maxLifetime;
+    }
+    
+    private boolean isIdleExpired(PooledConnection pooled, long now)
+    {
+        return idleTimeout > 0 && now - pooled.returned >= idleTimeout;
+    }
+    
+    private void discard(PooledConnection pooled)
+    {
+        try
+        {
+            pooled.connection.close();
+        }
+        catch(SQLException e)
+        {
+            // The connection is being thrown away regardless
+        }
+    }
+    
+    private synchronized void startHousekeeping()
+    {
+        long interval = HOUSEKEEPING_INTERVAL;
+        
+        if(housekeeping != null || closed) return;
+        if(idleTimeout > 0) interval = Math.min(interval, Math.max(idleTimeout / 2, 10));
+        
+        housekeeping = getHousekeeper().scheduleWithFixedDelay(this::housekeep, interval, interval, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Closes idle and expired connections above the minimum size, then starts
+     * opening connections in the background until the minimum size is 
+     * reached. Called periodically.
+     */
+    void housekeep()
+    {
+        List<PooledConnection> expired = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> iterator;
+        PooledConnection pooled;
+        int missing = 0;
+        
+        synchronized(this)
+        {
+            if(closed) return;
+            
+            iterator = idle.descendingIterator(); // Oldest returned first
+            
+            while(iterator.hasNext())
+            {
+                pooled = iterator.next();
+                
+                if(isExpired(pooled, now) || (total - expired.size() > minimumSize && isIdleExpired(pooled, now)))
+                {
+                    iterator.remove();
+                    expired.add(pooled);
+                }
+            }
+            
+            total -= expired.size();
+            
+            if(!filling) missing = Math.min(minimumSize, maximumSize) - total;
+            
+            if(missing > 0)
+            {
+                total += missing;
+                filling = true;
+            }
+            
+            notifyAll();
+        }
+        
+        for(PooledConnection connection : expired) discard(connection);
+        
+        if(missing > 0) fill(missing);
+    }
+    
+    private void fill(int missing)
+    {
+        try
+        {
+            getFiller().execute(() -> {
+                try
+                {
+                    for(int i=0; i<missing; i++) addIdle();
+                }
+                finally
+                {
+                    synchronized(this)
+                    {
+                        filling = false;
+                    }
+                }
+            });
+        }
+        catch(RuntimeException e)
+        {
+            synchronized(this)
+            {
+                total -= missing;
+                filling = false;
+                notifyAll();
+            }
+        }
+    }
+    
+    private void addIdle()
+    {
+        PooledConnection pooled;
+        
+        try
+        {
+            pooled = new PooledConnection(open());
+            
+            synchronized(this)
+            {
+                if(!closed)
+                {
+                    idle.addLast(pooled);
+                    notifyAll();
+                    return;
+                }
+                
+                total--;
+                notifyAll();
+            }
+            
+            discard(pooled);
+        }
+        catch(SQLException | RuntimeException e)
+        {
+            synchronized(this)
+            {
+                total--;
+                notifyAll();
+            }
+        }
+    }
+    
+    /**
+     * Closes every idle connection, regardless of the minimum size. Used to
+     * free connections for other pools that share a connection limit.
+     * 
+     * @return the number of connections closed
+     */
+    int closeIdle()
+    {
+        List<PooledConnection> connections;
+        
+        synchronized(this)
+        {
+            connections = new ArrayList<>(idle);
+            
+            total -= idle.size();
+            idle.clear();
+            
+            notifyAll();
+        }
+        
+        for(PooledConnection pooled : connections) discard(pooled);
+        
+        return connections.size();
+    }
+
+    private Connection open() throws SQLException
+    {
+        // Pooled connections are meant to stay open. Leaks are tracked per borrow.
+        LeakDetector.suspend();
+        
+        try
+        {
+            return source.getConnection();
+        }
+        finally
+        {
+            LeakDetector.resume();
+        }
+    }
+    
+    private ConnectionMetrics getMetrics()
+    {
+        if(source instanceof DriverDataSource) return ((DriverDataSource)source).getMetrics();
+        if(source instanceof MonitoredDataSource) return ((MonitoredDataSource)source).getMetrics();
+        
+        return null;
+    }
+    
+    private boolean isValid(PooledConnection pooled)
+    {
+        if(validationTimeout <= 0) return true;
+        if(System.currentTimeMillis() - pooled.returned < VALIDATION_INTERVAL) return true;
+        
+        try
+        {
+            return pooled.connection.isValid((int)Math.max(1, (validationTimeout + 999) / 1000));
+        }
+        catch(SQLException | RuntimeException e)
+        {
+            return false;
+        }
+    }
+    
+    private PooledConnection borrow() throws SQLException
+    {
+        long deadline = System.currentTimeMillis() + borrowTimeout;
+        PooledConnection pooled;
+        
+        startHousekeeping();
+        
+        while(true)
+        {
+            pooled = reserve(deadline);
+            
+            if(pooled == null) break;
+            
+            // Validate outside of the lock so that a dead host doesn't block returns
+            if(isValid(pooled)) return pooled;
+            
+            synchronized(this)
+            {
+                total--;
+                notifyAll();
+            }
+            
+            discard(pooled);
+        }
+        
+        // Open outside of the lock so that slow connects don't block returns
+        try
+        {
+            return new PooledConnection(open());
+        }
+        catch(SQLException | RuntimeException e)
+        {
+            synchronized(this)
+            {
+                total--;
+                notifyAll();
+            }
+            
+            throw e;
+        }
+    }
+    
+    /**
+     * Takes an idle connection, or reserves room for a new one.
+     * 
+     * @param deadline the time to give up waiting for a connection
+     * @return an idle connection, or null if the caller should open one
+     * @throws SQLException if the pool is closed or the deadline passes
+     */
+    private PooledConnection reserve(long deadline) throws SQLException
+    {
+        List<PooledConnection> expired = new ArrayList<>();
+        PooledConnection pooled;
+        long now;
+        
+        try
+        {
+            synchronized(this)
+            {
+                while(true)
+                {
+                    if(closed) throw new SQLException("Connection pool is closed");
+                    
+                    now = System.currentTimeMillis();
+                    
+                    while(!idle.isEmpty())
+                    {
+                        pooled = idle.removeFirst(); // Most recently used first
+                        
+                        if(!isExpired(pooled, now)) return pooled;
+                        
+                        expired.add(pooled);
+                        total--;
+                    }
+                    
+                    if(total < maximumSize)
+                    {
+                        total++;
+                        return null;
+                    }
+                    
+                    if(now >= deadline) throw new SQLException("Timed out after " + borrowTimeout + "ms waiting for a connection. All " + total + " connections are in use.");
+                    
+                    try
+                    {
+                        wait(deadline - now);
+                    }
+                    catch(InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                        
+                        throw new SQLException("Interrupted while waiting for a connection", e);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            for(PooledConnection connection : expired) discard(connection);
+        }
+    }
+    
+    private void giveBack(PooledConnection pooled)
+    {
+        boolean reusable;
+        
+        try
+        {
+            reusable = !pooled.connection.isClosed();
+            
+            if(reusable && !pooled.connection.getAutoCommit())
+            {
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+            
+            if(reusable && pooled.modified) pooled.reset();
+        }
+        catch(SQLException e)
+        {
+            reusable = false;
+        }
+        
+        synchronized(this)
+        {
+            if(reusable && !closed && total <= maximumSize && !isExpired(pooled, System.currentTimeMillis()))
+            {
+                pooled.returned = System.currentTimeMillis();
+                
+                idle.addFirst(pooled);
+                notifyAll();
+                
+                return;
+            }
+            
+            total--;
+            notifyAll();
+        }
+        
+        discard(pooled);
+    }
+    
+    /**
+     * Borrows a connection from the pool, opening a new physical connection 
+     * if none are idle and the pool is below its maximum size. Closing the 
+     * returned connection gives it back to the pool.
+     * 
+     * @return a pooled connection
+     * @throws SQLException if no connection becomes available within the 
+     *         borrow timeout or the underlying data source fails
+     */
+    @Override
+    public Connection getConnection() throws SQLException
+    {
+        PooledConnection pooled = borrow();
+        
+        ConnectionMetrics metrics = getMetrics();
+        
+        return (Connection)Proxy.newProxyInstance(PooledDataSource.class.getClassLoader(), new Class[]{ Connection.class }, new ConnectionHandler(pooled, metrics, LeakDetector.borrow(metrics, "Pooled connection")));
+    }
+    
+    /**
+     * Opens a connection with different credentials. These connections are 
+     * not pooled and are closed normally.
+     * 
+     * @param username The username.
+     * @param password The password.
+     * @return an unpooled connection
+     * @throws SQLException if the underlying data source fails
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException
+    {
+        return source.getConnection(username, password);
+    }
+    
+    /**
+     * Closes all idle connections and stops handing out new ones. Borrowed 
+     * connections are closed when they are returned.
+     */
+    @Override
+    public void close()
+    {
+        List<PooledConnection> connections;
+        
+        synchronized(this)
+        {
+            closed = true;
+            connections = new ArrayList<>(idle);
+            
+            total -= idle.size();
+            idle.clear();
+            
+            if(housekeeping != null) housekeeping.cancel(false);
+            
+            notifyAll();
+        }
+        
+        for(PooledConnection pooled : connections) discard(pooled);
+    }
+    
+    @Override
+    public PrintWriter getLogWriter() throws SQLException
+    {
+        return source.getLogWriter();
+    }
+    
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException
+    {
+        source.setLogWriter(out);
+    }
+    
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException
+    {
+        source.setLoginTimeout(seconds);
+    }
+    
+    @Override
+    public int getLoginTimeout() throws SQLException
+    {
+        return source.getLoginTimeout();
+    }
+    
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException
+    {
+        return source.getParentLogger();
+    }
+    
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException
+    {
+        if(iface.isInstance(this)) return (T)this;
+        
+        return source.unwrap(iface);
+    }
+    
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException
+    {
+        return iface.isInstance(this) || source.isWrapperFor(iface);
+    }
+    
+    private static class PooledConnection
+    {
+        private final Connection connection;
+        private final long created = System.currentTimeMillis();
+        private long returned = created;
+        
+        private final boolean readOnly;
+        private final int isolation;
+        private final String catalog;
+        private final String schema;
+        private final int holdability;
+        private volatile boolean modified;
+        
+        public PooledConnection(Connection connection) throws SQLException
+        {
+            this.connection = connection;
+            
+            try
+            {
+                this.readOnly = connection.isReadOnly();
+                this.isolation = connection.getTransactionIsolation();
+                this.catalog = connection.getCatalog();
+                this.schema = getSchema(connection);
+                this.holdability = connection.getHoldability();
+            }
+            catch(SQLException | RuntimeException e)
+            {
+                connection.close();
+                
+                throw e;
+            }
+        }
+        
+        private static String getSchema(Connection connection)
+        {
+            try
+            {
+                return connection.getSchema();
+            }
+            catch(SQLException | AbstractMethodError e)
+            {
+                return null; // Pre-JDBC 4.1 drivers have no schema support
+            }
+        }
+        
+        /**
+         * Restores the session state the connection was opened with.
+         */
+        public void reset() throws SQLException
+        {
+            if(connection.isReadOnly() != readOnly) connection.setReadOnly(readOnly);
+            if(connection.getTransactionIsolation() != isolation) connection.setTransactionIsolation(isolation);
+            if(!Objects.equals(connection.getCatalog(), catalog)) connection.setCatalog(catalog);
+            if(schema != null && !schema.equals(getSchema(connection))) connection.setSchema(schema);
+            if(connection.getHoldability() != holdability) connection.setHoldability(holdability);
+            
+            modified = false;
+        }
+    }
+    
+    private static boolean isClosed(AutoCloseable child)
+    {
+        try
+        {
+            if(child instanceof Statement) return ((Statement)child).isClosed();
+            if(child instanceof ResultSet) return ((ResultSet)child).isClosed();
+        }
+        catch(SQLException | RuntimeException e)
+        {
+            return false; // Kept so that close() is still attempted on return
+        }
+        
+        return false;
+    }
+    
+    private class ConnectionHandler implements InvocationHandler
+    {
+        private volatile PooledConnection pooled;
+        private final ConnectionMetrics metrics;
+        private final LeakDetector.Lease lease;
+        private final long borrowed = System.nanoTime();
+        
+        private final List<AutoCloseable> children = new ArrayList<>();
+        private int prune = PRUNE_SIZE;
+        
+        public ConnectionHandler(PooledConnection pooled, ConnectionMetrics metrics, LeakDetector.Lease lease)
+        {
+            this.pooled = pooled;
+            this.metrics = metrics;
+            this.lease = lease;
+        }
+        
+        /**
+         * Wraps statements, result sets and metadata so that they lead back to
+         * the pooled connection. Statements and result sets are tracked so 
+         * that they can be closed when the connection is returned.
+         */
+        private Object wrap(Connection proxy, Object parent, Object child, Class<?> type)
+        {
+            if(child == null || !WRAPPED.contains(type)) return child;
+            if(child instanceof AutoCloseable) track((AutoCloseable)child);
+            
+            return Proxy.newProxyInstance(PooledDataSource.class.getClassLoader(), new Class[]{ type }, new ChildHandler(this, proxy, parent, child));
+        }
+        
+        private synchronized void track(AutoCloseable child)
+        {
+            // Drop closed children as the list grows, so long borrows stay small
+            if(children.size() >= prune)
+            {
+                children.removeIf(PooledDataSource::isClosed);
+                
+                prune = Math.max(PRUNE_SIZE, children.size() * 2);
+            }
+            
+            children.add(child);
+        }
+        
+        private void closeChildren()
+        {
+            List<AutoCloseable> open;
+            
+            synchronized(this)
+            {
+                open = new ArrayList<>(children);
+                
+                children.clear();
+            }
+            
+            // Result sets before the statements that produced them
+            for(int i=open.size()-1; i>=0; i--)
+            {
+                try
+                {
+                    open.get(i).close();
+                }
+                catch(Exception e)
+                {
+                    // The connection is returned regardless
+                }
+            }
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            PooledConnection current;
+            
+            switch(method.getName())
+            {
+                case "close":
+                    synchronized(this)
+                    {
+                        current = pooled;
+                        pooled = null;
+                    }
+                    
+                    if(current != null) closeChildren();
+                    if(current != null && metrics != null) metrics.held(System.nanoTime() - borrowed);
+                    if(current != null && lease != null) lease.close();
+                    if(current != null) giveBack(current);
+                    
+                    return null;
+                
+                case "isClosed":
+                    return pooled == null || pooled.connection.isClosed();
+                
+                case "equals":
+                    return proxy == args[0];
+                
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                
+                case "toString":
+                    return "Pooled " + ((pooled == null) ? "closed connection" : pooled.connection.toString());
+                
+                case "unwrap":
+                    if(((Class<?>)args[0]).isInstance(proxy)) return proxy;
+                    break;
+            }
+            
+            current = pooled;
+            
+            if(current == null) throw new SQLException("Connection is closed");
+            
+            if(SESSION_SETTERS.contains(method.getName())) current.modified = true;
+            
+            try
+            {
+                return wrap((Connection)proxy, proxy, method.invoke(current.connection, args), method.getReturnType());
+            }
+            catch(InvocationTargetException e)
+            {
+                throw e.getCause();
+            }
+        }
+    }
+    
+    private static class ChildHandler implements InvocationHandler
+    {
+        private final ConnectionHandler owner;
+        private final Connection connection;
+        private final Object parent;
+        private final Object target;
+        
+        public ChildHandler(ConnectionHandler owner, Connection connection, Object parent, Object target)
+        {
+            this.owner = owner;
+            this.connection = connection;
+            this.parent = parent;
+            this.target = target;
+        }
+        
+        @Override
+        public Object invoke(Object wrapper, Method method, Object[] args) throws Throwable
+        {
+            switch(method.getName())
+            {
+                case "equals":
+                    return wrapper == args[0];
+                
+                case "hashCode":
+                    return System.identityHashCode(wrapper);
+                
+                case "toString":
+                    return String.valueOf(target);
+                
+                case "getConnection":
+                    return connection;
+                
+                case "getStatement":
+                    if(parent instanceof Statement) return parent;
+                    break;
+                
+                case "unwrap":
+                    if(((Class<?>)args[0]).isInstance(wrapper)) return wrapper;
+                    break;
+                
+                case "close":
+                    if(owner.pooled == null) return null; // Closed when the connection was returned
+                    break;
+                
+                case "isClosed":
+                    if(owner.pooled == null) return true;
+                    break;
+            }
+            
+            if(owner.pooled == null) throw new SQLException("Connection is closed");
+            
+            try
+            {
+                return owner.wrap(connection, wrapper, method.invoke(target, args), method.getReturnType());
+            }
+            catch(InvocationTargetException e)
+            {
+                throw e.getCause();
+            }
+        }
+    }
+}
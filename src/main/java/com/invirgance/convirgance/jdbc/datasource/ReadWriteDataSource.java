@@ -0,0 +1,608 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc.datasource;
+
+import com.invirgance.convirgance.jdbc.StoredConnection;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * Routes connections between a set of primary databases and a set of read 
+ * replicas. Connections are opened lazily: the database is chosen by the 
+ * first call that needs one. Connections marked read-only with 
+ * <code>setReadOnly(true)</code> go to a replica, all other connections go 
+ * to a primary.
+ * 
+ * Marking a connection read-only after it is in use moves it to a replica
+ * as long as it is in auto-commit mode, has no open statements, and a replica
+ * can be reached. Session settings such as the isolation level, catalog, 
+ * schema, holdability, network timeout, client info, and type map are applied
+ * again on the new database. Otherwise the setting is passed to the current
+ * database, so a transaction or result never spans two databases. Either way
+ * the database the connection ends up on is told it is read-only, so 
+ * <code>isReadOnly()</code> reports the setting even without replicas.
+ * 
+ * Within each set, the database with the fewest connections currently open 
+ * through this data source is chosen, moving on to the next database if it 
+ * cannot be reached. Reads fall back to the primaries if no replica can be 
+ * reached.
+ * 
+ * {@link com.invirgance.convirgance.jdbc.schema.DatabaseSchemaLayout} reads
+ * metadata and table contents through {@link #getReadOnlyDataSource()}, so 
+ * schema browsing and <code>Table.iterator()</code> are served by replicas.
+ * 
+ * @author jbanes
+ */
+public class ReadWriteDataSource implements DataSource
+{
+    private static final int PRUNE_SIZE = 16;
+    private static final Set<String> SESSION_SETTERS = new HashSet<>(Arrays.asList("setTransactionIsolation", "setCatalog", "setSchema", "setHoldability", "setNetworkTimeout", "setClientInfo", "setTypeMap"));
+    
+    private final List<Member> primaries;
+    private final List<Member> replicas;
+    private final AtomicInteger next;
+    private final boolean readOnly;
+    
+    private ReadWriteDataSource readOnlyView;
+    
+    /**
+     * Creates a data source with a single primary.
+     * 
+     * @param primary the database that receives writes
+     * @param replicas the databases that receive read-only work
+     */
+    public ReadWriteDataSource(DataSource primary, DataSource... replicas)
+    {
+        this(Arrays.asList(primary), Arrays.asList(replicas));
+    }
+    
+    /**
+     * Creates a data source from stored connections.
+     * 
+     * @param primary the stored connection that receives writes
+     * @param replicas the stored connections that receive read-only work
+     */
+    public ReadWriteDataSource(StoredConnection primary, StoredConnection... replicas)
+    {
+        this(Arrays.asList(primary.getDataSource()), getDataSources(replicas));
+    }
+    
+    /**
+     * Creates a data source from a set of primaries and a set of replicas.
+     * 
+     * @param primaries the databases that receive writes
+     * @param replicas the databases that receive read-only work
+     */
+    public ReadWriteDataSource(List<DataSource> primaries, List<DataSource> replicas)
+    {
+        if(primaries.isEmpty()) throw new IllegalArgumentException("At least one primary is required");
+        
+        this.primaries = getMembers(primaries);
+        this.replicas = getMembers(replicas);
+        this.next = new AtomicInteger();
+        this.readOnly = false;
+    }
+    
+    private ReadWriteDataSource(ReadWriteDataSource parent)
+    {
+        this.primaries = parent.primaries;
+        this.replicas = parent.replicas;
+        this.next = parent.next;
+        this.readOnly = true;
+        this.readOnlyView = this;
+    }
+    
+    private static List<DataSource> getDataSources(StoredConnection[] connections)
+    {
+        List<DataSource> sources = new ArrayList<>();
+        
+        for(StoredConnection connection : connections) sources.add(connection.getDataSource());
+        
+        return sources;
+    }
+    
+    private static List<Member> getMembers(List<DataSource> sources)
+    {
+        List<Member> members = new ArrayList<>();
+        
+        for(DataSource source : sources) members.add(new Member(source));
+        
+        return members;
+    }
+    
+    /**
+     * Returns a view of this data source whose connections start out 
+     * read-only and are therefore opened on a replica.
+     * 
+     * @return the read-only view
+     */
+    public synchronized ReadWriteDataSource getReadOnlyDataSource()
+    {
+        if(readOnlyView == null) readOnlyView = new ReadWriteDataSource(this);
+        
+        return readOnlyView;
+    }
+    
+    /**
+     * Returns true if connections from this data source start out read-only.
+     * 
+     * @return true for the view returned by {@link #getReadOnlyDataSource()}
+     */
+    public boolean isReadOnly()
+    {
+        return readOnly;
+    }
+    
+    /**
+     * Returns the number of connections currently open on each primary, in
+     * the order the primaries were provided.
+     * 
+     * @return the outstanding connection counts
+     */
+    public int[] getPrimaryOutstanding()
+    {
+        return getOutstanding(primaries);
+    }
+    
+    /**
+     * Returns the number of connections currently open on each replica, in
+     * the order the replicas were provided.
+     * 
+     * @return the outstanding connection counts
+     */
+    public int[] getReplicaOutstanding()
+    {
+        return getOutstanding(replicas);
+    }
+    
+    private static int[] getOutstanding(List<Member> members)
+    {
+        int[] counts = new int[members.size()];
+        
+        for(int i=0; i<counts.length; i++) counts[i] = members.get(i).outstanding.get();
+        
+        return counts;
+    }
+    
+    /**
+     * Orders the members by outstanding connections. The starting point 
+     * rotates so that ties are spread across the members.
+     */
+    private List<Member> order(List<Member> members)
+    {
+        List<Member> ordered = new ArrayList<>(members.size());
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(1, members.size()));
+        
+        for(int i=0; i<members.size(); i++) ordered.add(members.get((start + i) % members.size()));
+        
+        ordered.sort(Comparator.comparingInt(member -> member.outstanding.get()));
+        
+        return ordered;
+    }
+    
+    private Lease open(boolean readOnly, String username, String password) throws SQLException
+    {
+        List<Member> candidates = new ArrayList<>();
+        
+        if(readOnly) candidates.addAll(order(replicas));
+        
+        candidates.addAll(order(primaries));
+        
+        return open(candidates, username, password);
+    }
+    
+    private Lease open(List<Member> candidates, String username, String password) throws SQLException
+    {
+        SQLException failure = null;
+        
+        for(Member member : candidates)
+        {
+            member.outstanding.incrementAndGet();
+            
+            try
+            {
+                return new Lease(member, (username == null) ? member.source.getConnection() : member.source.getConnection(username, password));
+            }
+            catch(SQLException e)
+            {
+                member.outstanding.decrementAndGet();
+                
+                if(failure == null) failure = e;
+                else failure.setNextException(e);
+            }
+            catch(RuntimeException e)
+            {
+                member.outstanding.decrementAndGet();
+                
+                throw e;
+            }
+        }
+        
+        throw failure;
+    }
+    
+    private Connection route(String username, String password)
+    {
+        return (Connection)Proxy.newProxyInstance(ReadWriteDataSource.class.getClassLoader(), new Class[]{ Connection.class }, new RoutedConnection(username, password));
+    }
+    
+    /**
+     * Returns a connection that is opened on a primary or replica on first use.
+     * 
+     * @return a routed connection
+     * @throws SQLException never thrown, failures are reported on first use
+     */
+    @Override
+    public Connection getConnection() throws SQLException
+    {
+        return route(null, null);
+    }
+    
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException
+    {
+        return route(username, password);
+    }
+    
+    @Override
+    public PrintWriter getLogWriter() throws SQLException
+    {
+        return primaries.get(0).source.getLogWriter();
+    }
+    
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException
+    {
+        for(Member member : primaries) member.source.setLogWriter(out);
+        for(Member member : replicas) member.source.setLogWriter(out);
+    }
+    
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException
+    {
+        for(Member member : primaries) member.source.setLoginTimeout(seconds);
+        for(Member member : replicas) member.source.setLoginTimeout(seconds);
+    }
+    
+    @Override
+    public int getLoginTimeout() throws SQLException
+    {
+        return primaries.get(0).source.getLoginTimeout();
+    }
+    
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException
+    {
+        return primaries.get(0).source.getParentLogger();
+    }
+    
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException
+    {
+        if(iface.isInstance(this)) return iface.cast(this);
+        
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+    
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException
+    {
+        return iface.isInstance(this);
+    }
+    
+    private static class Member
+    {
+        private final DataSource source;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        
+        public Member(DataSource source)
+        {
+            this.source = source;
+        }
+    }
+    
+    private static class Lease
+    {
+        private final Member member;
+        private final Connection connection;
+        private boolean released;
+        
+        public Lease(Member member, Connection connection)
+        {
+            this.member = member;
+            this.connection = connection;
+        }
+        
+        public void release() throws SQLException
+        {
+            if(released) return;
+            
+            released = true;
+            
+            try
+            {
+                connection.close();
+            }
+            finally
+            {
+                member.outstanding.decrementAndGet();
+            }
+        }
+    }
+    
+    private class RoutedConnection implements InvocationHandler
+    {
+        private final String username;
+        private final String password;
+        
+        private boolean readOnly = ReadWriteDataSource.this.readOnly;
+        private boolean replica;
+        private boolean closed;
+        private Lease lease;
+        
+        private final Map<String,Object[]> session = new LinkedHashMap<>();
+        private final Map<String,Method> setters = new LinkedHashMap<>();
+        private final List<Statement> statements = new ArrayList<>();
+        private int prune = PRUNE_SIZE;
+        
+        public RoutedConnection(String username, String password)
+        {
+            this.username = username;
+            this.password = password;
+        }
+        
+        private Connection getTarget() throws SQLException
+        {
+            if(closed) throw new SQLException("Connection is closed");
+            
+            if(lease == null)
+            {
+                lease = prepare(open(readOnly, username, password));
+                replica = replicas.contains(lease.member);
+            }
+            
+            return lease.connection;
+        }
+        
+        /**
+         * Brings a new connection up to the session state of this one, or 
+         * releases it if that fails.
+         */
+        private Lease prepare(Lease opened) throws SQLException
+        {
+            try
+            {
+                // Lets drivers and proxies in front of the database optimize for reads
+                if(readOnly) opened.connection.setReadOnly(true);
+                
+                restore(opened.connection);
+                
+                return opened;
+            }
+            catch(SQLException | RuntimeException e)
+            {
+                opened.release();
+                
+                throw e;
+            }
+        }
+        
+        /**
+         * Opens a connection to a replica for a connection moving off a 
+         * primary.
+         * 
+         * @return the replica connection, or null if no replica can be reached
+         */
+        private Lease openReplica()
+        {
+            if(replicas.isEmpty()) return null;
+            
+            try
+            {
+                return prepare(open(order(replicas), username, password));
+            }
+            catch(SQLException e)
+            {
+                return null;
+            }
+        }
+        
+        private void record(Method method, Object[] args)
+        {
+            String key = method.getName();
+            
+            // Client info is set one property at a time or replaced wholesale
+            if(key.equals("setClientInfo") && args[0] instanceof String)
+            {
+                key = key + ":" + args[0];
+            }
+            else if(key.equals("setClientInfo"))
+            {
+                session.keySet().removeIf(name -> name.startsWith("setClientInfo"));
+            }
+            
+            session.remove(key);
+            session.put(key, args);
+            setters.put(key, method);
+        }
+        
+        private void restore(Connection connection) throws SQLException
+        {
+            for(Map.Entry<String,Object[]> entry : session.entrySet())
+            {
+                try
+                {
+                    setters.get(entry.getKey()).invoke(connection, entry.getValue());
+                }
+                catch(InvocationTargetException e)
+                {
+                    if(e.getCause() instanceof SQLException) throw (SQLException)e.getCause();
+                    
+                    throw new SQLException(e.getCause());
+                }
+                catch(IllegalAccessException e)
+                {
+                    throw new SQLException(e);
+                }
+            }
+        }
+        
+        private void track(Statement statement) throws SQLException
+        {
+            Iterator<Statement> iterator;
+            
+            // Drop closed statements as the list grows, so long-lived connections stay small
+            if(statements.size() >= prune)
+            {
+                iterator = statements.iterator();
+                
+                while(iterator.hasNext())
+                {
+                    if(iterator.next().isClosed()) iterator.remove();
+                }
+                
+                prune = Math.max(PRUNE_SIZE, statements.size() * 2);
+            }
+            
+            statements.add(statement);
+        }
+        
+        private boolean hasOpenStatements() throws SQLException
+        {
+            Iterator<Statement> iterator = statements.iterator();
+            
+            while(iterator.hasNext())
+            {
+                if(!iterator.next().isClosed()) return true;
+                
+                iterator.remove();
+            }
+            
+            return false;
+        }
+        
+        private void setReadOnly(boolean readOnly) throws SQLException
+        {
+            Lease moved = null;
+            Lease previous = lease;
+            
+            this.readOnly = readOnly;
+            
+            if(previous == null) return;
+            
+            // Moving would split a transaction or strand a statement
+            if(readOnly != replica && previous.connection.getAutoCommit() && !hasOpenStatements())
+            {
+                // Writes always move. Reads only move if a replica answers.
+                if(readOnly) moved = openReplica();
+                
+                if(!readOnly || moved != null)
+                {
+                    lease = moved;
+                    replica = (moved != null);
+                    statements.clear();
+                    
+                    previous.release();
+                    return;
+                }
+            }
+            
+            previous.connection.setReadOnly(readOnly);
+        }
+        
+        private void close() throws SQLException
+        {
+            closed = true;
+            
+            if(lease != null) lease.release();
+        }
+        
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            Object result;
+            
+            switch(method.getName())
+            {
+                case "equals":
+                    return proxy == args[0];
+                
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                
+                case "toString":
+                    return "Routed " + ((lease == null) ? "unopened connection" : lease.connection.toString());
+                
+                case "isReadOnly":
+                    if(lease == null) return readOnly;
+                    break;
+                
+                case "setReadOnly":
+                    setReadOnly((Boolean)args[0]);
+                    return null;
+                
+                case "close":
+                    close();
+                    return null;
+                
+                case "isClosed":
+                    if(closed || lease == null) return closed;
+                    break;
+            }
+            
+            try
+            {
+                result = method.invoke(getTarget(), args);
+            }
+            catch(InvocationTargetException e)
+            {
+                throw e.getCause();
+            }
+            
+            if(SESSION_SETTERS.contains(method.getName())) record(method, args);
+            if(result instanceof Statement) track((Statement)result);
+            
+            return result;
+        }
+    }
+}
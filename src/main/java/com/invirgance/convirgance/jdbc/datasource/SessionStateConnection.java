@@ -0,0 +1,268 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc.datasource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connection wrapper that tracks session state locally to avoid redundant 
+ * round trips to the database. Code that defensively calls 
+ * <code>setAutoCommit</code>, <code>setReadOnly</code>, 
+ * <code>setTransactionIsolation</code>, <code>setSchema</code>, or 
+ * <code>setCatalog</code> on every unit of work only pays for the calls
+ * that actually change something.
+ * 
+ * Setting a value that is already in effect is dropped. Other changes are 
+ * held and applied together right before the next call that needs the 
+ * database, such as creating or executing a statement, committing, or 
+ * reading metadata.
+ * As a result, an invalid value is reported by that next call rather than by
+ * the setter. Enabling auto-commit is always applied immediately since it 
+ * commits any open transaction. Getters for tracked values are answered 
+ * locally once the value is known.
+ * 
+ * Changes made directly with SQL, such as <code>SET SCHEMA</code>, bypass
+ * this wrapper and are not seen by it.
+ * 
+ * Wrapping is opt-in, either by calling {@link #wrap(Connection)} or with
+ * {@link DriverDataSource#useSessionState(boolean)}. The wrapper is a proxy
+ * implementing only {@link Connection}. Code that needs a vendor connection
+ * type must call <code>unwrap()</code> instead of casting.
+ *
+ * @author jbanes
+ */
+public class SessionStateConnection implements InvocationHandler
+{
+    private static final AtomicLong saved = new AtomicLong();
+    
+    private static final int CATALOG = 0;
+    private static final int SCHEMA = 1;
+    private static final int READ_ONLY = 2;
+    private static final int ISOLATION = 3;
+    private static final int AUTO_COMMIT = 4;
+    
+    private static final String[] GETTERS = { "getCatalog", "getSchema", "isReadOnly", "getTransactionIsolation", "getAutoCommit" };
+    private static final String[] SETTERS = { "setCatalog", "setSchema", "setReadOnly", "setTransactionIsolation", "setAutoCommit" };
+    
+    private static final Object UNKNOWN = new Object();
+    
+    private final Connection connection;
+    private final Object[] applied = { UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN };
+    private final Object[] pending = { UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN };
+    
+    private SessionStateConnection(Connection connection)
+    {
+        this.connection = connection;
+    }
+    
+    /**
+     * Wraps the connection. Connections that are already wrapped are 
+     * returned as they are.
+     * 
+     * @param connection the connection to wrap
+     * @return the wrapped connection, or null if the connection was null
+     */
+    public static Connection wrap(Connection connection)
+    {
+        if(connection == null) return null;
+        if(Proxy.isProxyClass(connection.getClass()) && Proxy.getInvocationHandler(connection) instanceof SessionStateConnection) return connection;
+        
+        return (Connection)Proxy.newProxyInstance(SessionStateConnection.class.getClassLoader(), new Class[]{ Connection.class }, new SessionStateConnection(connection));
+    }
+    
+    /**
+     * Returns the number of setter calls that never reached the database,
+     * across all wrapped connections since the JVM started. A setter is 
+     * saved when its value was already in effect or was replaced before
+     * being applied.
+     * 
+     * @return the number of saved round trips
+     */
+    public static long getSavedRoundTrips()
+    {
+        return saved.get();
+    }
+    
+    private static int indexOf(String[] names, String name)
+    {
+        for(int i=0; i<names.length; i++)
+        {
+            if(names[i].equals(name)) return i;
+        }
+        
+        return -1;
+    }
+    
+    private Object getCurrent(int index)
+    {
+        return (pending[index] != UNKNOWN) ? pending[index] : applied[index];
+    }
+    
+    private Object invokeTarget(Method method, Object[] args) throws Throwable
+    {
+        try
+        {
+            return method.invoke(connection, args);
+        }
+        catch(InvocationTargetException e)
+        {
+            throw e.getCause();
+        }
+    }
+    
+    private void apply(int index) throws SQLException
+    {
+        Object value = pending[index];
+        
+        if(value == UNKNOWN) return;
+        
+        switch(index)
+        {
+            case CATALOG: connection.setCatalog((String)value); break;
+            case SCHEMA: connection.setSchema((String)value); break;
+            case READ_ONLY: connection.setReadOnly((Boolean)value); break;
+            case ISOLATION: connection.setTransactionIsolation((Integer)value); break;
+            case AUTO_COMMIT: connection.setAutoCommit((Boolean)value); break;
+        }
+        
+        pending[index] = UNKNOWN;
+        applied[index] = value;
+        
+        saved.decrementAndGet();
+    }
+    
+    private void applyPending() throws SQLException
+    {
+        // Read-only and isolation must be set before a transaction starts
+        for(int i=0; i<pending.length; i++) apply(i);
+    }
+    
+    private Object get(int index, Method method, Object[] args) throws Throwable
+    {
+        Object value = getCurrent(index);
+        
+        if(value != UNKNOWN) return value;
+        
+        value = invokeTarget(method, args);
+        applied[index] = value;
+        
+        return value;
+    }
+    
+    private void set(int index, Object value) throws SQLException
+    {
+        // Counted as saved until it is actually applied
+        saved.incrementAndGet();
+        
+        if(Objects.equals(value, applied[index])) pending[index] = UNKNOWN;
+        else pending[index] = value;
+        
+        // Enabling auto-commit commits the open transaction, so it can't wait
+        if(index == AUTO_COMMIT && Boolean.TRUE.equals(value)) apply(AUTO_COMMIT);
+    }
+    
+    @Override
+    public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+    {
+        String name = method.getName();
+        int index;
+        
+        switch(name)
+        {
+            case "equals":
+                return proxy == args[0];
+            
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            
+            case "toString":
+                return connection.toString();
+            
+            case "close":
+            case "isClosed":
+            case "isValid":
+                return invokeTarget(method, args);
+        }
+        
+        if(args == null && (index = indexOf(GETTERS, name)) >= 0) return get(index, method, args);
+        
+        if(args != null && args.length == 1 && (index = indexOf(SETTERS, name)) >= 0)
+        {
+            set(index, args[0]);
+            
+            return null;
+        }
+        
+        applyPending();
+        
+        if(Statement.class.isAssignableFrom(method.getReturnType()))
+        {
+            return wrapStatement((Connection)proxy, (Statement)invokeTarget(method, args), method.getReturnType());
+        }
+        
+        return invokeTarget(method, args);
+    }
+    
+    private Object wrapStatement(Connection proxy, Statement statement, Class type)
+    {
+        if(statement == null) return null;
+        
+        return Proxy.newProxyInstance(SessionStateConnection.class.getClassLoader(), new Class[]{ type }, (wrapper, method, args) -> {
+            
+            switch(method.getName())
+            {
+                case "equals": return wrapper == args[0];
+                case "hashCode": return System.identityHashCode(wrapper);
+                case "toString": return statement.toString();
+                case "getConnection": return proxy;
+            }
+            
+            // Statements created before a change still need to see it
+            if(method.getName().startsWith("execute"))
+            {
+                synchronized(this)
+                {
+                    applyPending();
+                }
+            }
+            
+            try
+            {
+                return method.invoke(statement, args);
+            }
+            catch(InvocationTargetException e)
+            {
+                throw e.getCause();
+            }
+        });
+    }
+}
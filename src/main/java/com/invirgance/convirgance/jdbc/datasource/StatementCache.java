@@ -0,0 +1,345 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc.datasource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Least-recently-used cache of prepared statements for a single connection. 
+ * Statements are keyed by SQL text, result set type, concurrency, and 
+ * holdability. Closing a statement obtained from the cache clears its 
+ * parameters and batch, restores any limits the caller changed, and returns it
+ * to the cache instead of closing it, so the next request for the same SQL 
+ * skips the parse and plan round trip. Statements whose cursor name, poolable
+ * flag, or close-on-completion setting were changed are closed instead.
+ * 
+ * A statement is only handed to one caller at a time. Preparing SQL that is
+ * already in use creates a second statement. Statements evicted from the 
+ * cache, and all cached statements when the connection closes, are closed.
+ *
+ * @author jbanes
+ */
+class StatementCache implements InvocationHandler
+{
+    private final Connection connection;
+    private final int size;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    
+    private static final Set<String> RESETTABLE = new HashSet<>(Arrays.asList(
+        "setMaxRows", "setLargeMaxRows", "setQueryTimeout", "setFetchSize", 
+        "setFetchDirection", "setMaxFieldSize", "setEscapeProcessing"
+    ));
+    
+    private static final Set<String> UNCACHEABLE = new HashSet<>(Arrays.asList(
+        "setCursorName", "setPoolable", "closeOnCompletion"
+    ));
+    
+    private final LinkedHashMap<List<Object>,PreparedStatement> idle = new LinkedHashMap<>(16, 0.75f, true);
+    
+    private StatementCache(Connection connection, int size, AtomicLong hits, AtomicLong misses)
+    {
+        this.connection = connection;
+        this.size = size;
+        this.hits = hits;
+        this.misses = misses;
+    }
+    
+    /**
+     * Wraps the connection with a statement cache.
+     * 
+     * @param connection the connection to wrap
+     * @param size the maximum number of idle statements to keep
+     * @param hits incremented when a statement is reused
+     * @param misses incremented when a statement has to be prepared
+     * @return the wrapped connection, or null if the connection was null
+     */
+    static Connection wrap(Connection connection, int size, AtomicLong hits, AtomicLong misses)
+    {
+        if(connection == null) return null;
+        
+        return (Connection)Proxy.newProxyInstance(StatementCache.class.getClassLoader(), new Class[]{ Connection.class }, new StatementCache(connection, size, hits, misses));
+    }
+    
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable
+    {
+        try
+        {
+            return method.invoke(target, args);
+        }
+        catch(InvocationTargetException e)
+        {
+            throw e.getCause();
+        }
+    }
+    
+    private static void discard(PreparedStatement statement)
+    {
+        try
+        {
+            statement.close();
+        }
+        catch(SQLException e)
+        {
+            // The statement is being thrown away regardless
+        }
+    }
+    
+    private List<Object> getKey(Object[] args)
+    {
+        // prepareStatement(sql), (sql, type, concurrency), or (sql, type, concurrency, holdability)
+        if(args.length == 1) return Arrays.asList(args[0], ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, -1);
+        if(args.length == 3) return Arrays.asList(args[0], args[1], args[2], -1);
+        
+        return Arrays.asList(args);
+    }
+    
+    private boolean isCacheable(Method method)
+    {
+        Class[] types = method.getParameterTypes();
+        
+        if(!method.getName().equals("prepareStatement")) return false;
+        if(types.length == 1) return true;
+        
+        // Statements returning generated keys are left alone
+        return (types.length == 3 || types.length == 4) && types[1] == int.class && types[2] == int.class;
+    }
+    
+    private synchronized PreparedStatement borrow(List<Object> key)
+    {
+        return idle.remove(key);
+    }
+    
+    private void giveBack(List<Object> key, PreparedStatement statement, Settings settings)
+    {
+        List<PreparedStatement> evicted = new ArrayList<>();
+        Iterator<PreparedStatement> iterator;
+        PreparedStatement previous;
+        
+        try
+        {
+            if(connection.isClosed() || statement.isClosed())
+            {
+                discard(statement);
+                return;
+            }
+            
+            if(statement.getResultSet() != null) statement.getResultSet().close();
+            
+            statement.clearParameters();
+            statement.clearBatch();
+            statement.clearWarnings();
+            
+            if(settings != null) settings.restore(statement);
+        }
+        catch(SQLException e)
+        {
+            discard(statement);
+            return;
+        }
+        
+        synchronized(this)
+        {
+            previous = idle.put(key, statement);
+            
+            if(previous != null) evicted.add(previous);
+            
+            iterator = idle.values().iterator();
+            
+            while(idle.size() > size && iterator.hasNext())
+            {
+                evicted.add(iterator.next());
+                iterator.remove();
+            }
+        }
+        
+        for(PreparedStatement old : evicted) discard(old);
+    }
+    
+    private synchronized List<PreparedStatement> clear()
+    {
+        List<PreparedStatement> statements = new ArrayList<>(idle.values());
+        
+        idle.clear();
+        
+        return statements;
+    }
+    
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+    {
+        PreparedStatement statement;
+        List<Object> key;
+        
+        switch(method.getName())
+        {
+            case "equals":
+                return proxy == args[0];
+            
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            
+            case "toString":
+                return connection.toString();
+            
+            case "close":
+                for(PreparedStatement cached : clear()) discard(cached);
+                
+                return invokeTarget(connection, method, args);
+        }
+        
+        if(!isCacheable(method)) return invokeTarget(connection, method, args);
+        
+        key = getKey(args);
+        statement = borrow(key);
+        
+        if(statement != null && !statement.isClosed())
+        {
+            hits.incrementAndGet();
+        }
+        else
+        {
+            misses.incrementAndGet();
+            
+            statement = (PreparedStatement)invokeTarget(connection, method, args);
+        }
+        
+        return wrapStatement((Connection)proxy, key, statement);
+    }
+    
+    private PreparedStatement wrapStatement(Connection proxy, List<Object> key, PreparedStatement statement)
+    {
+        CachedStatement handler = new CachedStatement(proxy, key, statement);
+        
+        return (PreparedStatement)Proxy.newProxyInstance(StatementCache.class.getClassLoader(), new Class[]{ PreparedStatement.class }, handler);
+    }
+    
+    private class CachedStatement implements InvocationHandler
+    {
+        private final Connection proxy;
+        private final List<Object> key;
+        private PreparedStatement statement;
+        private Settings settings;
+        private boolean uncacheable;
+        
+        public CachedStatement(Connection proxy, List<Object> key, PreparedStatement statement)
+        {
+            this.proxy = proxy;
+            this.key = key;
+            this.statement = statement;
+        }
+        
+        @Override
+        public Object invoke(Object wrapper, Method method, Object[] args) throws Throwable
+        {
+            PreparedStatement current;
+            
+            switch(method.getName())
+            {
+                case "equals":
+                    return wrapper == args[0];
+                
+                case "hashCode":
+                    return System.identityHashCode(wrapper);
+                
+                case "toString":
+                    return String.valueOf(statement);
+                
+                case "getConnection":
+                    return proxy;
+                
+                case "close":
+                    synchronized(this)
+                    {
+                        current = statement;
+                        statement = null;
+                    }
+                    
+                    if(current == null) return null;
+                    if(uncacheable) discard(current);
+                    else giveBack(key, current, settings);
+                    
+                    return null;
+                
+                case "isClosed":
+                    return statement == null || statement.isClosed();
+            }
+            
+            current = statement;
+            
+            if(current == null) throw new SQLException("Statement is closed");
+            
+            // Capture the limits as they were handed out before the first change
+            if(settings == null && RESETTABLE.contains(method.getName())) settings = new Settings(current);
+            if(UNCACHEABLE.contains(method.getName())) uncacheable = true;
+            
+            return invokeTarget(current, method, args);
+        }
+    }
+    
+    private static class Settings
+    {
+        private final int maxRows;
+        private final int queryTimeout;
+        private final int fetchSize;
+        private final int fetchDirection;
+        private final int maxFieldSize;
+        
+        public Settings(PreparedStatement statement) throws SQLException
+        {
+            this.maxRows = statement.getMaxRows();
+            this.queryTimeout = statement.getQueryTimeout();
+            this.fetchSize = statement.getFetchSize();
+            this.fetchDirection = statement.getFetchDirection();
+            this.maxFieldSize = statement.getMaxFieldSize();
+        }
+        
+        public void restore(PreparedStatement statement) throws SQLException
+        {
+            statement.setMaxRows(maxRows);
+            statement.setQueryTimeout(queryTimeout);
+            statement.setFetchSize(fetchSize);
+            statement.setFetchDirection(fetchDirection);
+            statement.setMaxFieldSize(maxFieldSize);
+            
+            // There is no getter, but the JDBC default is on
+            statement.setEscapeProcessing(true);
+        }
+    }
+}
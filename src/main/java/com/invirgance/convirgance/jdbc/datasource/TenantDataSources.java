@@ -0,0 +1,753 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc.datasource;
+
+import com.invirgance.convirgance.jdbc.StoredConnection;
+import com.invirgance.convirgance.jdbc.StoredConnections;
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * Routes connections to per-tenant connection pools. Each tenant is a 
+ * {@link StoredConnection} by default, and its {@link PooledDataSource} is 
+ * created the first time the tenant asks for a connection.
+ * 
+ * The number of physical connections across all tenants is capped by 
+ * <code>maximumConnections</code>. When the cap is reached, the least 
+ * recently used tenant pool with no borrowed connections is evicted and its
+ * connections closed. If every pool is busy, idle connections are closed 
+ * from the least recently used pools instead. The caller waits up to 
+ * <code>borrowTimeout</code> for a connection to be freed. The number of 
+ * pools is also capped by <code>maximumTenants</code>, evicting idle pools 
+ * the same way.
+ * 
+ * Hits, misses, and evictions are counted per tenant and are kept after the
+ * tenant's pool is evicted. See {@link #getStatus()}.
+ * 
+ * The router is configured through bean properties, so it can be set up
+ * from JSON using {@link DataSourceManager#setConfig(com.invirgance.convirgance.json.JSONObject)}:
+ * 
+ * <ul>
+ *   <li><code>maximumConnections</code> - physical connections allowed across all tenants (default 100)</li>
+ *   <li><code>maximumTenants</code> - tenant pools kept open (default 50)</li>
+ *   <li><code>maximumPoolSize</code> - connections allowed per tenant (default 10)</li>
+ *   <li><code>idleTimeout</code> - milliseconds before an idle connection is closed (default 10 minutes)</li>
+ *   <li><code>borrowTimeout</code> - milliseconds to wait for a free connection (default 30 seconds)</li>
+ * </ul>
+ * 
+ * Pool settings take effect for pools created after they are changed.
+ * 
+ * @author jbanes
+ */
+public class TenantDataSources implements AutoCloseable
+{
+    private static final long EVICTION_POLL = 50;
+    
+    private final Function<String, DataSource> resolver;
+    
+    private int maximumConnections = 100;
+    private int maximumTenants = 50;
+    private int maximumPoolSize = 10;
+    private long idleTimeout = 600000;
+    private long borrowTimeout = 30000;
+    
+    private final Map<String, PooledDataSource> pools = new LinkedHashMap<>(16, 0.75f, true); // Access order
+    private final Map<String, Tenant> tenants = new LinkedHashMap<>();
+    private final Permits permits = new Permits(maximumConnections);
+    private boolean closed;
+    
+    /**
+     * Creates a router for tenants stored as {@link StoredConnection}s. The 
+     * tenant name is the stored connection name.
+     */
+    public TenantDataSources()
+    {
+        this(TenantDataSources::getStoredDataSource);
+    }
+    
+    /**
+     * Creates a router that looks up each tenant's database with the provided
+     * function. The function is called once per pool, when the tenant's pool
+     * is created.
+     * 
+     * @param resolver returns the data source for a tenant name
+     */
+    public TenantDataSources(Function<String, DataSource> resolver)
+    {
+        this.resolver = resolver;
+    }
+    
+    private static DataSource getStoredDataSource(String name)
+    {
+        StoredConnection connection = StoredConnections.getConnection(name);
+        
+        if(connection == null) throw new IllegalArgumentException("No stored connection named " + name);
+        
+        return connection.getDataSource();
+    }
+    
+    /**
+     * Returns the maximum number of physical connections across all tenants.
+     * 
+     * @return the maximum connection count
+     */
+    public int getMaximumConnections()
+    {
+        return maximumConnections;
+    }
+    
+    /**
+     * Sets the maximum number of physical connections across all tenants.
+     * Lowering the limit does not close connections already open.
+     * 
+     * @param maximumConnections the maximum connection count
+     */
+    public synchronized void setMaximumConnections(int maximumConnections)
+    {
+        int change = Math.max(1, maximumConnections) - this.maximumConnections;
+        
+        this.maximumConnections += change;
+        
+        if(change > 0) permits.release(change);
+        else permits.reducePermits(-change);
+    }
+    
+    /**
+     * Returns the maximum number of tenant pools kept open.
+     * 
+     * @return the maximum tenant count
+     */
+    public int getMaximumTenants()
+    {
+        return maximumTenants;
+    }
+    
+    /**
+     * Sets the maximum number of tenant pools kept open. Pools over the limit
+     * are evicted once they have no borrowed connections.
+     * 
+     * @param maximumTenants the maximum tenant count
+     */
+    public void setMaximumTenants(int maximumTenants)
+    {
+        this.maximumTenants = Math.max(1, maximumTenants);
+    }
+    
+    /**
+     * Returns the maximum number of connections per tenant.
+     * 
+     * @return the maximum pool size
+     */
+    public int getMaximumPoolSize()
+    {
+        return maximumPoolSize;
+    }
+    
+    /**
+     * Sets the maximum number of connections per tenant.
+     * 
+     * @param maximumPoolSize the maximum pool size
+     */
+    public void setMaximumPoolSize(int maximumPoolSize)
+    {
+        this.maximumPoolSize = Math.max(1, maximumPoolSize);
+    }
+    
+    /**
+     * Returns how long a connection may sit idle in a tenant pool.
+     * 
+     * @return the idle timeout in milliseconds
+     */
+    public long getIdleTimeout()
+    {
+        return idleTimeout;
+    }
+    
+    /**
+     * Sets how long a connection may sit idle in a tenant pool before being 
+     * closed.
+     * 
+     * @param idleTimeout the idle timeout in milliseconds, or 0 to disable
+     */
+    public void setIdleTimeout(long idleTimeout)
+    {
+        this.idleTimeout = idleTimeout;
+    }
+    
+    /**
+     * Returns how long {@link #getConnection(java.lang.String)} waits for a 
+     * free connection.
+     * 
+     * @return the borrow timeout in milliseconds
+     */
+    public long getBorrowTimeout()
+    {
+        return borrowTimeout;
+    }
+    
+    /**
+     * Sets how long {@link #getConnection(java.lang.String)} waits for a free
+     * connection, either in the tenant's pool or under the global limit.
+     * 
+     * @param borrowTimeout the borrow timeout in milliseconds
+     */
+    public void setBorrowTimeout(long borrowTimeout)
+    {
+        this.borrowTimeout = borrowTimeout;
+    }
+    
+    /**
+     * Returns the number of physical connections open across all tenants.
+     * 
+     * @return the total connection count
+     */
+    public synchronized int getTotalCount()
+    {
+        return maximumConnections - permits.availablePermits();
+    }
+    
+    /**
+     * Returns the number of tenant pools currently open.
+     * 
+     * @return the tenant pool count
+     */
+    public synchronized int getPoolCount()
+    {
+        return pools.size();
+    }
+    
+    /**
+     * Returns the state of every tenant that has requested a connection. Each
+     * record contains the tenant <code>name</code>, whether it is currently 
+     * <code>pooled</code>, its <code>active</code> and <code>idle</code> 
+     * connections, and its <code>hits</code>, <code>misses</code>, and 
+     * <code>evictions</code>. A miss is a request that had to create the 
+     * tenant's pool.
+     * 
+     * @return the tenant states
+     */
+    public synchronized JSONArray<JSONObject> getStatus()
+    {
+        JSONArray<JSONObject> status = new JSONArray<>();
+        Map<String, PooledDataSource> current = new HashMap<>(pools); // Copied so that reading doesn't reorder the LRU
+        PooledDataSource pool;
+        JSONObject record;
+        
+        for(Tenant tenant : tenants.values())
+        {
+            pool = current.get(tenant.name);
+            record = new JSONObject(true);
+            
+            record.put("name", tenant.name);
+            record.put("pooled", pool != null);
+            record.put("active", (pool == null) ? 0 : pool.getActiveCount());
+            record.put("idle", (pool == null) ? 0 : pool.getIdleCount());
+            record.put("hits", tenant.hits.get());
+            record.put("misses", tenant.misses.get());
+            record.put("evictions", tenant.evictions.get());
+            
+            status.add(record);
+        }
+        
+        return status;
+    }
+    
+    /**
+     * Returns a data source bound to the tenant. Connections from the data 
+     * source are routed through this object, so they count toward the global
+     * limit and the tenant's pool may be evicted and recreated between calls.
+     * 
+     * @param tenant the tenant name
+     * @return a data source for the tenant
+     */
+    public DataSource getDataSource(String tenant)
+    {
+        return new TenantDataSource(tenant);
+    }
+    
+    /**
+     * Borrows a connection from the tenant's pool, creating the pool if the 
+     * tenant does not have one. Closing the connection returns it to the pool.
+     * 
+     * @param tenant the tenant name
+     * @return a pooled connection
+     * @throws SQLException if no connection becomes available within the 
+     *         borrow timeout or the tenant's database fails
+     */
+    public Connection getConnection(String tenant) throws SQLException
+    {
+        return borrow(tenant, null, null);
+    }
+    
+    private Connection borrow(String tenant, String username, String password) throws SQLException
+    {
+        PooledDataSource pool;
+        
+        while(true)
+        {
+            pool = getPool(tenant);
+            
+            try
+            {
+                if(username == null) return pool.getConnection();
+                
+                return pool.getConnection(username, password);
+            }
+            catch(SQLException e)
+            {
+                // Retry if the pool was evicted between lookup and borrow
+                if(!pool.isClosed() || isClosed()) throw e;
+            }
+        }
+    }
+    
+    private synchronized boolean isClosed()
+    {
+        return closed;
+    }
+    
+    private PooledDataSource getPool(String name) throws SQLException
+    {
+        PooledDataSource pool;
+        PooledDataSource created;
+        Tenant tenant;
+        DataSource source;
+        boolean added;
+        
+        synchronized(this)
+        {
+            if(closed) throw new SQLException("Tenant router is closed");
+            
+            tenant = tenants.computeIfAbsent(name, Tenant::new);
+            pool = pools.get(name);
+            
+            if(pool != null)
+            {
+                tenant.hits.incrementAndGet();
+                
+                return pool;
+            }
+        }
+        
+        // Resolve outside of the lock so that a slow driver load doesn't block other tenants
+        try
+        {
+            source = resolver.apply(name);
+        }
+        catch(RuntimeException e)
+        {
+            throw new SQLException("Unable to resolve tenant " + name, e);
+        }
+        
+        created = new PooledDataSource(new LimitedDataSource(name, source));
+        
+        created.setMaximumSize(maximumPoolSize);
+        created.setIdleTimeout(idleTimeout);
+        created.setBorrowTimeout(borrowTimeout);
+        
+        synchronized(this)
+        {
+            pool = pools.get(name);
+            added = (!closed && pool == null);
+            
+            if(added)
+            {
+                pools.put(name, created);
+                tenant.misses.incrementAndGet();
+            }
+            else if(pool != null)
+            {
+                tenant.hits.incrementAndGet();
+            }
+        }
+        
+        // Lost the race to another caller, or closed while resolving
+        if(!added)
+        {
+            created.close();
+            
+            if(pool == null) throw new SQLException("Tenant router is closed");
+            
+            return pool;
+        }
+        
+        evictTenants(name);
+        
+        return created;
+    }
+    
+    private void evictTenants(String requester)
+    {
+        PooledDataSource pool;
+        
+        while((pool = evict(requester, true)) != null) pool.close();
+    }
+    
+    /**
+     * Removes the least recently used pool without borrowed connections. 
+     * When <code>overTenantLimit</code> is true, a pool is only removed if
+     * there are more pools than allowed.
+     */
+    private synchronized PooledDataSource evict(String requester, boolean overTenantLimit)
+    {
+        PooledDataSource pool;
+        
+        if(overTenantLimit && pools.size() <= maximumTenants) return null;
+        
+        for(Map.Entry<String, PooledDataSource> entry : pools.entrySet())
+        {
+            pool = entry.getValue();
+            
+            if(entry.getKey().equals(requester) || pool.getActiveCount() > 0) continue;
+            
+            // Iteration doesn't count as access, so this is LRU first
+            pools.remove(entry.getKey());
+            tenants.get(entry.getKey()).evictions.incrementAndGet();
+            
+            return pool;
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Frees physical connections for a tenant that needs one. Evicts an idle 
+     * pool if there is one, otherwise closes idle connections in the least 
+     * recently used pools.
+     */
+    private boolean reclaim(String requester)
+    {
+        PooledDataSource pool = evict(requester, false);
+        List<PooledDataSource> candidates;
+        
+        if(pool != null)
+        {
+            pool.close();
+            return true;
+        }
+        
+        synchronized(this)
+        {
+            candidates = new ArrayList<>();
+            
+            for(Map.Entry<String, PooledDataSource> entry : pools.entrySet())
+            {
+                if(!entry.getKey().equals(requester)) candidates.add(entry.getValue());
+            }
+        }
+        
+        for(PooledDataSource candidate : candidates)
+        {
+            if(candidate.closeIdle() > 0) return true;
+        }
+        
+        return false;
+    }
+    
+    private void acquire(String requester) throws SQLException
+    {
+        long deadline = System.currentTimeMillis() + borrowTimeout;
+        long now;
+        
+        try
+        {
+            while(!permits.tryAcquire())
+            {
+                if(reclaim(requester)) continue;
+                
+                now = System.currentTimeMillis();
+                
+                if(now >= deadline) throw new SQLException("Timed out after " + borrowTimeout + "ms waiting for a connection. All " + maximumConnections + " tenant connections are in use.");
+                
+                // Returned connections stay idle in their pools, so poll for them
+                if(permits.tryAcquire(Math.min(deadline - now, EVICTION_POLL), TimeUnit.MILLISECONDS)) return;
+            }
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+    }
+    
+    /**
+     * Closes every tenant pool. Borrowed connections are closed when they are
+     * returned.
+     */
+    @Override
+    public void close()
+    {
+        List<PooledDataSource> closing;
+        
+        synchronized(this)
+        {
+            closed = true;
+            closing = new ArrayList<>(pools.values());
+            
+            pools.clear();
+        }
+        
+        for(PooledDataSource pool : closing) pool.close();
+    }
+    
+    private static class Permits extends Semaphore
+    {
+        public Permits(int permits)
+        {
+            super(permits, true);
+        }
+        
+        @Override
+        public void reducePermits(int reduction)
+        {
+            super.reducePermits(reduction);
+        }
+    }
+    
+    private static class Tenant
+    {
+        private final String name;
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong evictions = new AtomicLong();
+        
+        public Tenant(String name)
+        {
+            this.name = name;
+        }
+    }
+    
+    /**
+     * Opens physical connections for a tenant pool, holding one global permit 
+     * for each connection until it is closed.
+     */
+    private class LimitedDataSource implements DataSource
+    {
+        private final String tenant;
+        private final DataSource source;
+        
+        public LimitedDataSource(String tenant, DataSource source)
+        {
+            this.tenant = tenant;
+            this.source = source;
+        }
+        
+        private Connection limit(Connection connection)
+        {
+            AtomicBoolean released = new AtomicBoolean();
+            InvocationHandler handler = (Object proxy, Method method, Object[] args) -> {
+                switch(method.getName())
+                {
+                    case "equals":
+                        return proxy == args[0];
+                    
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    
+                    case "close":
+                        if(released.compareAndSet(false, true)) permits.release();
+                        break;
+                }
+                
+                try
+                {
+                    return method.invoke(connection, args);
+                }
+                catch(InvocationTargetException e)
+                {
+                    throw e.getCause();
+                }
+            };
+            
+            return (Connection)Proxy.newProxyInstance(TenantDataSources.class.getClassLoader(), new Class[]{ Connection.class }, handler);
+        }
+        
+        @Override
+        public Connection getConnection() throws SQLException
+        {
+            acquire(tenant);
+            
+            try
+            {
+                return limit(source.getConnection());
+            }
+            catch(SQLException | RuntimeException e)
+            {
+                permits.release();
+                
+                throw e;
+            }
+        }
+        
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException
+        {
+            acquire(tenant);
+            
+            try
+            {
+                return limit(source.getConnection(username, password));
+            }
+            catch(SQLException | RuntimeException e)
+            {
+                permits.release();
+                
+                throw e;
+            }
+        }
+        
+        @Override
+        public PrintWriter getLogWriter() throws SQLException
+        {
+            return source.getLogWriter();
+        }
+        
+        @Override
+        public void setLogWriter(PrintWriter out) throws SQLException
+        {
+            source.setLogWriter(out);
+        }
+        
+        @Override
+        public void setLoginTimeout(int seconds) throws SQLException
+        {
+            source.setLoginTimeout(seconds);
+        }
+        
+        @Override
+        public int getLoginTimeout() throws SQLException
+        {
+            return source.getLoginTimeout();
+        }
+        
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException
+        {
+            return source.getParentLogger();
+        }
+        
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException
+        {
+            if(iface.isInstance(source)) return iface.cast(source);
+            
+            return source.unwrap(iface);
+        }
+        
+        @Override
+        public boolean isWrapperFor(Class<?> iface) throws SQLException
+        {
+            return iface.isInstance(source) || source.isWrapperFor(iface);
+        }
+    }
+    
+    private class TenantDataSource implements DataSource
+    {
+        private final String tenant;
+        private PrintWriter out;
+        private int loginTimeout;
+        
+        public TenantDataSource(String tenant)
+        {
+            this.tenant = tenant;
+        }
+        
+        @Override
+        public Connection getConnection() throws SQLException
+        {
+            return TenantDataSources.this.getConnection(tenant);
+        }
+        
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException
+        {
+            return borrow(tenant, username, password);
+        }
+        
+        @Override
+        public PrintWriter getLogWriter() throws SQLException
+        {
+            return out;
+        }
+        
+        @Override
+        public void setLogWriter(PrintWriter out) throws SQLException
+        {
+            this.out = out;
+        }
+        
+        @Override
+        public void setLoginTimeout(int seconds) throws SQLException
+        {
+            this.loginTimeout = seconds;
+        }
+        
+        @Override
+        public int getLoginTimeout() throws SQLException
+        {
+            return loginTimeout;
+        }
+        
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException
+        {
+            throw new SQLFeatureNotSupportedException();
+        }
+        
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException
+        {
+            if(iface.isInstance(this)) return iface.cast(this);
+            
+            throw new SQLException("Not a wrapper for " + iface.getName());
+        }
+        
+        @Override
+        public boolean isWrapperFor(Class<?> iface) throws SQLException
+        {
+            return iface.isInstance(this);
+        }
+    }
+}
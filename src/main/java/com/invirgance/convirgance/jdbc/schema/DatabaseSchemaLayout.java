@@ -25,9 +25,11 @@ package com.invirgance.convirgance.jdbc.schema;
 
 import com.invirgance.convirgance.ConvirganceException;
 import com.invirgance.convirgance.jdbc.AutomaticDriver;
+import com.invirgance.convirgance.jdbc.StatementRecorder;
 import com.invirgance.convirgance.jdbc.callback.ConnectionCallback;
 import com.invirgance.convirgance.jdbc.callback.DatabaseMetaDataCallback;
 import com.invirgance.convirgance.jdbc.datasource.DriverDataSource;
+import com.invirgance.convirgance.jdbc.datasource.ReadWriteDataSource;
 import com.invirgance.convirgance.json.JSONArray;
 import com.invirgance.convirgance.json.JSONObject;
 import java.sql.*;
@@ -51,6 +53,7 @@ public class DatabaseSchemaLayout
 {
     private AutomaticDriver driver;
     private DataSource source;
+    private StatementRecorder recorder;
     
     String tableType;
     String viewType;
@@ -87,7 +90,7 @@ public class DatabaseSchemaLayout
     
     void useMetaData(DatabaseMetaDataCallback callback)
     {
-        ConnectionCallback.execute(source, callback);
+        ConnectionCallback.execute(getReadDataSource(), callback);
     }
     
     /**
@@ -108,6 +111,37 @@ public class DatabaseSchemaLayout
         return source;
     }
     
+    /**
+     * Returns the recorder that SQL built against this layout is reported to.
+     * @return The recorder, or null if statements are not recorded.
+     */
+    public StatementRecorder getStatementRecorder()
+    {
+        return recorder;
+    }
+    
+    /**
+     * Sets the recorder that SQL built against this layout is reported to.
+     * @param recorder The recorder, or null to stop recording.
+     */
+    public void setStatementRecorder(StatementRecorder recorder)
+    {
+        this.recorder = recorder;
+    }
+    
+    /**
+     * Returns the data source used for metadata and reading table contents.
+     * A {@link ReadWriteDataSource} is read through its replicas.
+     * 
+     * @return The data source for read-only work.
+     */
+    DataSource getReadDataSource()
+    {
+        if(source instanceof ReadWriteDataSource) return ((ReadWriteDataSource)source).getReadOnlyDataSource();
+        
+        return source;
+    }
+    
     JSONArray<JSONObject> getObjects(ResultSet set) throws SQLException
     {
         ResultSetMetaData metadata = set.getMetaData();
@@ -225,7 +259,7 @@ public class DatabaseSchemaLayout
     {
         JSONObject record = new JSONObject();
         
-        try(Connection connection = source.getConnection())
+        try(Connection connection = getReadDataSource().getConnection())
         {
             record.put("TABLE_CAT", connection.getCatalog());
             
@@ -247,7 +281,7 @@ public class DatabaseSchemaLayout
         Catalog catalog = getCurrentCatalog();
         String name;
         
-        try(Connection connection = source.getConnection())
+        try(Connection connection = getReadDataSource().getConnection())
         {
             name = connection.getSchema();
             
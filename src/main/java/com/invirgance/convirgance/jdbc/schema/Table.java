@@ -139,7 +139,7 @@ public class Table extends TabularStructure implements Iterable<JSONObject>
     @Override
     public Iterator<JSONObject> iterator()
     {
-        return new DBMS(getLayout().getDataSource()).query(select().query()).iterator();
+        return new DBMS(getLayout().getReadDataSource()).query(select().query()).iterator();
     }
     
     public class PrimaryKey
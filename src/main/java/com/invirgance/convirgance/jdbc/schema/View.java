@@ -55,6 +55,6 @@ public class View extends TabularStructure implements Iterable<JSONObject>
     @Override
     public Iterator<JSONObject> iterator()
     {
-        return new DBMS(getLayout().getDataSource()).query(select().query()).iterator();
+        return new DBMS(getLayout().getReadDataSource()).query(select().query()).iterator();
     }
 }
@@ -23,6 +23,8 @@
  */
 package com.invirgance.convirgance.jdbc.sql;
 
+import com.invirgance.convirgance.dbms.Query;
+import com.invirgance.convirgance.jdbc.StatementRecorder;
 import com.invirgance.convirgance.jdbc.schema.*;
 import com.invirgance.convirgance.json.JSONArray;
 
@@ -208,6 +210,24 @@ public class SelectStatement implements SQLStatement
         return order(new ColumnExpressionStatement(layout, column), order);
     }
 
+    /**
+     * Obtain a {@link Query} object for execution. The SQL is reported to the
+     * layout's {@link StatementRecorder}, if it has one.
+     * 
+     * @param renderer the SQL renderer to use when creating the query
+     * @return a Query object
+     */
+    @Override
+    public Query query(SQLRenderer renderer)
+    {
+        String sql = render(renderer).toString();
+        StatementRecorder recorder = layout.getStatementRecorder();
+        
+        if(recorder != null) recorder.record(sql);
+        
+        return new Query(sql);
+    }
+
     @Override
     public SQLRenderer render(SQLRenderer renderer)
     {
@@ -23,7 +23,22 @@
  */
 package com.invirgance.convirgance.jdbc;
 
+import com.invirgance.convirgance.json.JSONArray;
 import com.invirgance.convirgance.json.JSONObject;
+import java.lang.ref.WeakReference;
+import java.sql.Driver;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -33,6 +48,12 @@ import static org.junit.jupiter.api.Assertions.*;
  */
 public class AutomaticDriverTest
 {
+    @BeforeAll
+    public static void setup()
+    {
+        System.setProperty("convirgance.jdbc.drivers", "target/unit-test-work/drivers");
+    }
+    
     @Test
     public void testSymmetry()
     {
@@ -69,6 +90,159 @@ public class AutomaticDriverTest
         assertEquals(examples.length, driver.getExamples().length);
     }
 
+    @Test
+    public void testClassLoaderCache()
+    {
+        AutomaticDriver driver = AutomaticDrivers.getDriverByName("HSQLDB");
+        ClassLoader loader = driver.getDriver().getClass().getClassLoader();
+        String[] artifacts = driver.getArtifacts();
+        
+        assertSame(loader, driver.getDriver().getClass().getClassLoader());
+        assertSame(loader, driver.getDataSource().getClass().getClassLoader());
+        assertSame(loader, AutomaticDrivers.getDriverByName("HSQLDB").getDriver().getClass().getClassLoader());
+        
+        // Same coordinates must not invalidate the cache
+        driver.setArtifacts(artifacts);
+        
+        assertSame(loader, driver.getDriver().getClass().getClassLoader());
+        
+        // Unsaved edits leave the shared loader alone
+        driver.setArtifacts();
+        driver.setArtifacts(artifacts);
+        
+        assertSame(loader, driver.getDriver().getClass().getClassLoader());
+    }
+    
+    @Test
+    public void testLoaderRelease() throws Exception
+    {
+        AutomaticDriver driver = AutomaticDrivers
+                                        .createDriver("Derby Client Release")
+                                        .artifact("org.apache.derby:derbyclient:10.17.1.0")
+                                        .driver("org.apache.derby.client.ClientAutoloadedDriver")
+                                        .build();
+        Driver instance = driver.getDriver();
+        WeakReference<ClassLoader> loader = new WeakReference<>(instance.getClass().getClassLoader());
+        
+        assertEquals(1, driver.getReferenceCount());
+        
+        driver.save();
+        
+        // Saving a new version retires the old loader until its driver is collected
+        driver.setArtifacts("org.apache.derby:derbyclient:10.17.1.0", "org.apache.derby:derbyshared:10.17.1.0");
+        
+        assertEquals(0, driver.getReferenceCount());
+        
+        driver.save();
+        
+        instance = null;
+        
+        for(int i=0; i<200 && loader.get() != null; i++)
+        {
+            System.gc();
+            Thread.sleep(50);
+        }
+        
+        assertNull(loader.get());
+        
+        // Forced release closes the loader even while the driver is in use
+        instance = driver.getDriver();
+        
+        assertEquals(1, driver.getReferenceCount());
+        assertTrue(driver.release());
+        assertFalse(driver.release());
+        assertEquals(0, driver.getReferenceCount());
+        assertNotSame(instance.getClass().getClassLoader(), driver.getDriver().getClass().getClassLoader());
+        
+        driver.delete();
+    }
+    
+    @Test
+    public void testLeasedLoader() throws Exception
+    {
+        JSONArray<String> artifacts = new JSONArray<>(Arrays.asList("org.apache.derby:derbyclient:10.17.1.0"));
+        DriverClassLoader loader = DriverClassLoaders.acquireClassLoader(artifacts);
+        
+        // Invalidating a leased loader must not close it under the caller
+        DriverClassLoaders.invalidate(artifacts);
+        
+        assertFalse(loader.isReleased());
+        assertFalse(loader.acquire());
+        assertNotNull(loader.loadClass("org.apache.derby.client.ClientAutoloadedDriver"));
+        
+        loader.relinquish();
+        
+        assertTrue(loader.isReleased());
+        
+        loader = DriverClassLoaders.acquireClassLoader(artifacts);
+        
+        assertFalse(loader.isReleased());
+        
+        loader.relinquish();
+    }
+    
+    @Test
+    public void testDriverAsync() throws Exception
+    {
+        AutomaticDriver driver = AutomaticDrivers
+                                        .createDriver("Derby Client Async")
+                                        .artifact("org.apache.derby:derbyclient:10.17.1.0", "org.apache.derby:derbytools:10.17.1.0")
+                                        .driver("org.apache.derby.client.ClientAutoloadedDriver")
+                                        .build();
+        ExecutorService resolvers = Executors.newFixedThreadPool(2);
+        ExecutorService callers = Executors.newFixedThreadPool(50);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger submitted = new AtomicInteger();
+        List<Future<CompletableFuture<Driver>>> requests = new ArrayList<>();
+        ClassLoader loader = null;
+        
+        // Hold resolution until every caller is waiting on it
+        Executor executor = task -> {
+            submitted.incrementAndGet();
+            resolvers.execute(() -> {
+                try
+                {
+                    release.await();
+                }
+                catch(InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                
+                task.run();
+            });
+        };
+        
+        driver.release();
+        
+        for(int i=0; i<50; i++)
+        {
+            requests.add(callers.submit(() -> driver.getDriverAsync(executor)));
+        }
+        
+        for(Future<CompletableFuture<Driver>> request : requests) request.get();
+        
+        release.countDown();
+        
+        for(Future<CompletableFuture<Driver>> request : requests)
+        {
+            Driver instance = request.get().get(30, TimeUnit.SECONDS);
+            
+            if(loader == null) loader = instance.getClass().getClassLoader();
+            
+            assertSame(loader, instance.getClass().getClassLoader());
+        }
+        
+        assertEquals(1, submitted.get());
+        
+        // Once loaded, the executor is no longer needed
+        assertNotNull(driver.getDriverAsync(task -> fail("Unexpected resolution")).get());
+        assertNull(AutomaticDrivers.createDriver("No Driver Async").build().getDriverAsync(executor).get());
+        
+        callers.shutdown();
+        resolvers.shutdown();
+    }
+    
     @Test
     public void testDrivers()
     {
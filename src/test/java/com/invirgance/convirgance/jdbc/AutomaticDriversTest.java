@@ -27,6 +27,7 @@ import com.invirgance.convirgance.ConvirganceException;
 import com.invirgance.convirgance.json.JSONArray;
 import com.invirgance.convirgance.json.JSONObject;
 import java.io.File;
+import java.util.Arrays;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.BeforeAll;
@@ -122,6 +123,96 @@ public class AutomaticDriversTest
         }
     }
     
+    @Test
+    public void testDriverByURL()
+    {
+        assertEquals("HSQLDB", AutomaticDrivers.getDriverByURL("jdbc:hsqldb:mem:test").getName());
+        assertEquals("Derby Network", AutomaticDrivers.getDriverByURL("jdbc:derby://localhost:1527/test").getName());
+        
+        // Drivers sharing a prefix resolve in store order
+        assertEquals("Derby Network", AutomaticDrivers.getDriverByURL("jdbc:derby:memory:test").getName());
+        assertNull(AutomaticDrivers.getDriverByURL("jdbc:unknown:test"));
+        
+        // Modifying a returned driver must not leak into later lookups
+        AutomaticDrivers.getDriverByURL("jdbc:hsqldb:mem:test").setPrefixes("jdbc:modified:");
+        
+        assertEquals("jdbc:hsqldb:", AutomaticDrivers.getDriverByURL("jdbc:hsqldb:mem:test").getPrefixes()[0]);
+    }
+    
+    @Test
+    public void testPrewarm()
+    {
+        AutomaticDrivers.PrewarmResult[] results = AutomaticDrivers.prewarm("HSQLDB", "NoSuchDriver").join();
+        
+        assertEquals(2, results.length);
+        
+        assertEquals("HSQLDB", results[0].getName());
+        assertTrue(results[0].isLoaded());
+        assertNull(results[0].getError());
+        assertTrue(results[0].getTime() >= 0);
+        
+        assertEquals("NoSuchDriver", results[1].getName());
+        assertFalse(results[1].isLoaded());
+        assertEquals("Unknown driver NoSuchDriver", results[1].getError().getMessage());
+    }
+    
+    @Test
+    public void testLoadShared() throws Exception
+    {
+        AutomaticDriver network = AutomaticDrivers.getDriverByName("Derby Network");
+        AutomaticDriver embedded = AutomaticDrivers.getDriverByName("Derby Embedded");
+        SharedDependencies shared;
+        ClassLoader networkLoader;
+        ClassLoader embeddedLoader;
+        
+        // Start from fresh loaders in case another test already loaded Derby
+        DriverClassLoaders.invalidate(new JSONArray<>(Arrays.asList(network.getArtifacts())));
+        DriverClassLoaders.invalidate(new JSONArray<>(Arrays.asList(embedded.getArtifacts())));
+        
+        shared = AutomaticDrivers.loadShared("Derby Network", "Derby Embedded");
+        
+        assertArrayEquals(new String[]{ "Derby Network", "Derby Embedded" }, shared.getDrivers());
+        assertTrue(shared.getSharedJars().length > 0);
+        
+        networkLoader = network.getDriver().getClass().getClassLoader();
+        embeddedLoader = embedded.getDriver().getClass().getClassLoader();
+        
+        assertNotSame(networkLoader, embeddedLoader);
+        assertSame(networkLoader.getParent(), embeddedLoader.getParent());
+        assertSame(networkLoader.getParent(), networkLoader.loadClass("org.apache.derby.shared.api.DerbyModuleAPI").getClassLoader());
+        assertSame(networkLoader.loadClass("org.apache.derby.shared.api.DerbyModuleAPI"), embeddedLoader.loadClass("org.apache.derby.shared.api.DerbyModuleAPI"));
+        assertNotSame(networkLoader.loadClass("org.apache.derby.tools.ij"), embeddedLoader.loadClass("org.apache.derby.tools.ij"));
+        assertTrue(shared.getSharedClassCount() > 0);
+        assertTrue(shared.getDuplicateClassCount() > 0);
+        
+        if(SharedClassLoader.isMetaspaceMeasured())
+        {
+            assertTrue(shared.getSharedMetaspace() > 0);
+            assertTrue(shared.getMetaspaceSaved() > 0);
+        }
+        
+        try
+        {
+            AutomaticDrivers.loadShared("NoSuchDriver");
+            fail("Expected exception");
+        }
+        catch(ConvirganceException e)
+        {
+            assertEquals("Unknown driver NoSuchDriver", e.getMessage());
+        }
+    }
+    
+    @Test
+    public void testJarName()
+    {
+        assertEquals("derby-10.17.1.0.jar", DriverClassLoaders.getJarName("org.apache.derby:derby:10.17.1.0"));
+        assertEquals("derby-10.17.1.0.jar", DriverClassLoaders.getJarName(" org.apache.derby:derby:jar:10.17.1.0 "));
+        assertEquals("hsqldb-2.7.4-jdk8.jar", DriverClassLoaders.getJarName("org.hsqldb:hsqldb:jar:jdk8:2.7.4"));
+        assertEquals("driver-1.0-tests.jar", DriverClassLoaders.getJarName("com.example:driver:test-jar:1.0"));
+        assertEquals("driver-1.0.jar", DriverClassLoaders.getJarName("com.example:driver:bundle:1.0"));
+        assertEquals("driver-1.0.zip", DriverClassLoaders.getJarName("com.example:driver:zip:1.0"));
+    }
+    
     @Test
     public void testNullDriver()
     {
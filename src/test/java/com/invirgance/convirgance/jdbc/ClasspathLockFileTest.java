@@ -0,0 +1,85 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc;
+
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class ClasspathLockFileTest
+{
+    @Test
+    public void testLockFile() throws Exception
+    {
+        AutomaticDriver driver = AutomaticDrivers.getDriverByName("HSQLDB");
+        JSONArray<String> artifacts = new JSONArray<>(driver.getArtifacts());
+        ClasspathLockFile lock = new ClasspathLockFile(DriverClassLoaders.getKey(artifacts));
+        JSONObject record;
+        URL[] files;
+        
+        // Start from a clean cache so the resolver runs and records the lock
+        DriverClassLoaders.invalidate(artifacts);
+        
+        assertNotNull(driver.getDriver());
+        assertTrue(lock.getFile().isFile());
+        
+        files = lock.read();
+        
+        assertNotNull(files);
+        assertTrue(files.length > 0);
+        assertTrue(new File(files[0].toURI()).isFile());
+        
+        // Damaged locks fall back to the resolver
+        Files.write(lock.getFile().toPath(), "{\"files\": [{\"path\": \"missing.jar\"}]}".getBytes());
+        
+        assertNull(lock.read());
+        
+        lock.write(artifacts, files);
+        
+        assertArrayEquals(files, lock.read());
+        
+        // Checksums are verified on every read, even when nothing else changed
+        record = new JSONObject(new String(Files.readAllBytes(lock.getFile().toPath()), StandardCharsets.UTF_8));
+        
+        for(JSONObject file : (JSONArray<JSONObject>)record.getJSONArray("files")) file.put("sha256", "invalid");
+        
+        Files.write(lock.getFile().toPath(), record.toString().getBytes(StandardCharsets.UTF_8));
+        
+        assertNull(lock.read());
+        
+        lock.delete();
+        
+        assertFalse(lock.getFile().exists());
+        assertNull(lock.read());
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc;
+
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.output.OutputCursor;
+import com.invirgance.convirgance.source.ClasspathSource;
+import com.invirgance.convirgance.storage.Config;
+import java.io.File;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class ConfigFilesTest
+{
+    private static void delete(File file)
+    {
+        if(!file.isDirectory())
+        {
+            file.delete();
+            return;
+        }
+        
+        for(File child : file.listFiles())
+        {
+            delete(child);
+        }
+        
+        file.delete();
+    }
+    
+    private static JSONObject record(String name)
+    {
+        JSONObject record = new JSONObject(true);
+        
+        record.put("name", name);
+        
+        return record;
+    }
+    
+    @Test
+    public void testFiles()
+    {
+        File directory = new File("target/unit-test-work/config-files");
+        Config config;
+        File[] files;
+        long length;
+        
+        delete(directory);
+        
+        config = new Config(new ClasspathSource("/database/drivers.json"), directory, "name");
+        files = ConfigFiles.getFiles(config);
+        
+        assertFalse(files[0].exists());
+        assertFalse(files[1].exists());
+        
+        // Inserts are written to the data file
+        config.insert(record("Inserted"));
+        
+        assertTrue(files[0].isFile());
+        assertFalse(files[1].exists());
+        
+        length = files[0].length();
+        
+        config.insert(record("Another"));
+        
+        assertTrue(files[0].length() > length);
+        
+        // Deleting a default record is written to the deleted index
+        config.delete("HSQLDB");
+        
+        assertTrue(files[1].isFile());
+        assertTrue(files[1].length() > 0);
+        assertNull(config.getRecord("HSQLDB"));
+    }
+    
+    @Test
+    public void testRewrite() throws Exception
+    {
+        File directory = new File("target/unit-test-work/config-rewrite");
+        Config config;
+        
+        delete(directory);
+        
+        config = new Config(directory, "name");
+        
+        config.insert(record("First"));
+        
+        try(OutputCursor cursor = ConfigFiles.rewrite(config))
+        {
+            cursor.write(config.getRecord("First"));
+            cursor.write(record("Second"));
+            cursor.write(record("Third"));
+        }
+        
+        // Both the existing handle and a new one read what was written
+        assertNotNull(config.getRecord("First"));
+        assertNotNull(config.getRecord("Third"));
+        
+        config = new Config(directory, "name");
+        
+        assertNotNull(config.getRecord("First"));
+        assertNotNull(config.getRecord("Second"));
+        assertNotNull(config.getRecord("Third"));
+        
+        // Config keeps working on top of the rewritten file
+        config.delete("Second");
+        config.insert(record("Fourth"));
+        
+        config = new Config(directory, "name");
+        
+        assertNull(config.getRecord("Second"));
+        assertNotNull(config.getRecord("Fourth"));
+        assertNotNull(config.getRecord("First"));
+    }
+}
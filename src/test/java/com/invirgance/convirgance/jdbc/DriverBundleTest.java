@@ -0,0 +1,94 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc;
+
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class DriverBundleTest
+{
+    private static void delete(File file)
+    {
+        if(!file.isDirectory())
+        {
+            file.delete();
+            return;
+        }
+        
+        for(File child : file.listFiles())
+        {
+            delete(child);
+        }
+        
+        file.delete();
+    }
+    
+    @Test
+    public void testBundle() throws Exception
+    {
+        File directory = new File("target/unit-test-work/bundle");
+        AutomaticDriver driver = AutomaticDrivers.getDriverByName("HSQLDB");
+        JSONArray<String> artifacts = new JSONArray<>(driver.getArtifacts());
+        JSONObject index;
+        URLClassLoader loader;
+        
+        delete(directory);
+        
+        new DriverBundle(directory).add(driver).save();
+        
+        index = new JSONObject(new String(Files.readAllBytes(new File(directory, "index.json").toPath())));
+        
+        assertEquals(1, index.getJSONArray("drivers").size());
+        assertEquals("HSQLDB", index.getJSONArray("drivers").getJSONObject(0).getString("name"));
+        assertTrue(new File(directory, "lib").listFiles().length > 0);
+        
+        try
+        {
+            System.setProperty("convirgance.jdbc.bundle", directory.getPath());
+            DriverClassLoaders.invalidate(artifacts);
+            
+            loader = (URLClassLoader)driver.getDriver().getClass().getClassLoader();
+            
+            for(URL url : loader.getURLs())
+            {
+                assertTrue(url.getPath().contains("unit-test-work/bundle/lib/"), url.toString());
+            }
+        }
+        finally
+        {
+            System.clearProperty("convirgance.jdbc.bundle");
+            DriverClassLoaders.invalidate(artifacts);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class ParallelTasksTest
+{
+    @Test
+    public void testOrder() throws Exception
+    {
+        String[] results = ParallelTasks.run("test-order", 2, Arrays.asList("a", "b", "c"), String::toUpperCase, String[]::new).get(5, TimeUnit.SECONDS);
+        
+        assertArrayEquals(new String[]{ "A", "B", "C" }, results);
+        assertEquals(0, ParallelTasks.run("test-order", 2, new ArrayList<>(), String::toUpperCase, String[]::new).get().length);
+    }
+    
+    @Test
+    public void testTimeout() throws Exception
+    {
+        long start = System.currentTimeMillis();
+        String[] results = ParallelTasks.run("test-timeout", 2, Arrays.asList("fast", "hung"), name -> {
+            if(name.equals("hung")) sleep(60000);
+            
+            return name;
+        }, 200, name -> "expired", String[]::new).get(5, TimeUnit.SECONDS);
+        
+        // The hung task is reported without waiting for it
+        assertArrayEquals(new String[]{ "fast", "expired" }, results);
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+    
+    private static void sleep(long millis)
+    {
+        try
+        {
+            Thread.sleep(millis);
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -27,9 +27,21 @@ import com.invirgance.convirgance.ConvirganceException;
 import com.invirgance.convirgance.dbms.DBMS;
 import com.invirgance.convirgance.dbms.Query;
 import com.invirgance.convirgance.dbms.QueryOperation;
+import com.invirgance.convirgance.input.JSONInput;
 import com.invirgance.convirgance.jdbc.datasource.DataSourceManager;
 import com.invirgance.convirgance.jdbc.datasource.DriverDataSource;
+import com.invirgance.convirgance.jdbc.schema.DatabaseSchemaLayout;
+import com.invirgance.convirgance.jdbc.schema.Table;
+import com.invirgance.convirgance.jdbc.sql.BindVariable;
+import com.invirgance.convirgance.jdbc.sql.SelectStatement;
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.source.FileSource;
+import com.invirgance.convirgance.target.FileTarget;
 import java.io.File;
+import java.net.ServerSocket;
+import java.sql.SQLTimeoutException;
+import java.util.Arrays;
 import javax.sql.DataSource;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
@@ -152,6 +164,38 @@ public class StoredConnectionTest
         connection.delete();
     }
     
+    @Test
+    public void testStoreChanges()
+    {
+        AutomaticDriver driver = AutomaticDrivers.getDriverByName("HSQLDB");
+        ConnectionDatabase other = new ConnectionDatabase(new File("target/unit-test-work/connections"));
+        StoredConnection connection = driver
+                                        .createConnection("external")
+                                        .driver()
+                                        .url(url)
+                                        .username("SA")
+                                        .password("")
+                                        .build();
+        
+        assertNull(StoredConnections.getConnection("external"));
+        
+        // Saved through a different handle to the same store
+        other.saveDescriptor(new JSONObject(connection.toString()));
+        
+        assertNotNull(StoredConnections.getConnection("external"));
+        assertNotNull(StoredConnections.getConnection("EXTERNAL"));
+        
+        // Modifying a returned connection must not affect later lookups
+        StoredConnections.getConnection("external").getDriverConfig().setUsername("changed");
+        
+        assertEquals("SA", StoredConnections.getConnection("external").getDriverConfig().getUsername());
+        
+        StoredConnections.getConnection("external").delete();
+        
+        assertNull(StoredConnections.getConnection("external"));
+        assertNull(other.findDescriptorByName("external"));
+    }
+    
     @Test
     public void testDataSource() throws Exception
     {
@@ -190,4 +234,323 @@ public class StoredConnectionTest
         
         assertEquals(driver.getDataSource().getClass().getName(), connection.getDataSource().getClass().getName());
     }
+    
+    @Test
+    public void testStatementWarmUp()
+    {
+        AutomaticDriver driver = AutomaticDrivers.getDriverByName("HSQLDB");
+        StoredConnections.WarmUpResult[] results;
+        DatabaseSchemaLayout layout;
+        SelectStatement select;
+        SelectStatement bound;
+        Table table;
+        StoredConnection connection = driver
+                                        .createConnection("recorded")
+                                        .driver()
+                                        .url(url)
+                                        .username("SA")
+                                        .password("")
+                                        .build();
+        
+        assertFalse(connection.isRecordingStatements());
+        
+        connection.setRecordingStatements(true);
+        connection.save();
+        
+        layout = StoredConnections.getConnection("recorded").getSchemaLayout();
+        table = layout.getCurrentSchema().getTable("customer");
+        select = new SelectStatement(layout).column(table.getColumn("zip"));
+        
+        select.query();
+        select.query();
+        
+        // Written in the background, or at once when flushed
+        layout.getStatementRecorder().flush();
+        
+        assertArrayEquals(new String[]{ select.toString() }, StoredConnections.getConnection("recorded").getRecordedStatements());
+        
+        // Saving a stale copy keeps statements recorded since it was loaded
+        connection.save();
+        
+        assertArrayEquals(new String[]{ select.toString() }, StoredConnections.getConnection("recorded").getRecordedStatements());
+        
+        // Bound queries are recorded with named bind variables
+        bound = new SelectStatement(layout).column(table.getColumn("zip")).where().equals(table.getColumn("zip"), new BindVariable("zipcode")).done();
+        
+        bound.query();
+        layout.getStatementRecorder().flush();
+        
+        assertTrue(bound.toString().contains(":zipcode"));
+        assertEquals(2, StoredConnections.getConnection("recorded").getRecordedStatements().length);
+        
+        // A statement the schema no longer supports
+        StatementRecorder.getRecorder("recorded", new ConnectionDatabase(new File("target/unit-test-work/connections"))).record("select MISSING from NO_SUCH_TABLE");
+        layout.getStatementRecorder().flush();
+        
+        results = StoredConnections.warmUp("recorded", "missing").join();
+        
+        assertEquals(2, results.length);
+        assertTrue(results[0].isWarm());
+        assertEquals(2, results[0].getPrepared());
+        assertEquals(1, results[0].getSkipped());
+        assertFalse(results[1].isWarm());
+        
+        assertEquals("select * from T where A = ? and B = ':c' and D::int = ?", StatementRecorder.toPrepared("select * from T where A = :a and B = ':c' and D::int = :e-f"));
+        
+        connection.delete();
+    }
+    
+    @Test
+    public void testSharedDataSource()
+    {
+        AutomaticDriver driver = AutomaticDrivers.getDriverByName("HSQLDB");
+        StoredConnection stored;
+        DataSource source;
+        StoredConnection connection = driver
+                                        .createConnection("shared")
+                                        .driver()
+                                        .url(url)
+                                        .username("SA")
+                                        .password("")
+                                        .build();
+        
+        connection.save();
+        
+        source = StoredConnections.getConnection("shared").getDataSource();
+        
+        assertSame(source, StoredConnections.getConnection("shared").getDataSource());
+        assertSame(source, StoredConnections.getConnection("SHARED").getDataSource());
+        
+        // Unsaved changes get a private data source and leave the shared one alone
+        stored = StoredConnections.getConnection("shared");
+        stored.getDriverConfig().setUsername("OTHER");
+        
+        assertNotSame(source, stored.getDataSource());
+        assertSame(source, StoredConnections.getConnection("shared").getDataSource());
+        
+        // Unsaved connections are never shared
+        assertNotSame(driver.createConnection("unsaved").driver().url(url).username("SA").password("").build().getDataSource(), 
+                      driver.createConnection("unsaved").driver().url(url).username("SA").password("").build().getDataSource());
+        
+        // Saving replaces the shared data source
+        stored.save();
+        
+        assertNotSame(source, StoredConnections.getConnection("shared").getDataSource());
+        assertEquals("OTHER", ((DriverDataSource)StoredConnections.getConnection("shared").getDataSource()).getUsername());
+        
+        connection.delete();
+    }
+    
+    @Test
+    public void testCapabilities()
+    {
+        AutomaticDriver driver = AutomaticDrivers.getDriverByName("HSQLDB");
+        ConnectionDatabase database = new ConnectionDatabase(new File("target/unit-test-work/connections"));
+        DatabaseCapabilities capabilities;
+        DatabaseCapabilities reprobed;
+        JSONObject descriptor;
+        StoredConnection edited;
+        StoredConnection connection = driver
+                                        .createConnection("capable")
+                                        .driver()
+                                        .url(url)
+                                        .username("SA")
+                                        .password("")
+                                        .build();
+        
+        connection.save();
+        
+        capabilities = StoredConnections.getConnection("capable").getCapabilities();
+        
+        assertEquals("HSQL Database Engine", capabilities.getProductName());
+        assertTrue(capabilities.supportsBatchUpdates());
+        assertTrue(capabilities.storesUpperCaseIdentifiers());
+        assertFalse(capabilities.storesLowerCaseIdentifiers());
+        assertTrue(capabilities.supportsTransactionIsolation(java.sql.Connection.TRANSACTION_READ_COMMITTED));
+        assertEquals(0, capabilities.getMaxInListSize());
+        
+        // Probed once and saved with the connection
+        assertSame(capabilities, StoredConnections.getConnection("capable").getCapabilities());
+        assertTrue(StoredConnections.getConnection("capable").toString().contains("\"capabilities\""));
+        
+        // A saved profile from a different server version is probed again
+        descriptor = new JSONObject(database.findDescriptorByName("capable").toString());
+        descriptor.getJSONObject("capabilities").put("productVersion", "0.0.0");
+        database.saveDescriptor(descriptor);
+        
+        reprobed = StoredConnections.getConnection("capable").getCapabilities();
+        
+        assertNotSame(capabilities, reprobed);
+        assertEquals(capabilities.getProductVersion(), reprobed.getProductVersion());
+        assertEquals(capabilities.getProductVersion(), database.findDescriptorByName("capable").getJSONObject("capabilities").getString("productVersion"));
+        
+        // Saving the same database keeps the profile. Pointing elsewhere drops it.
+        connection.save();
+        
+        assertTrue(StoredConnections.getConnection("capable").toString().contains("\"capabilities\""));
+        
+        connection.getDriverConfig().setURL("jdbc:hsqldb:mem:capable");
+        connection.save();
+        
+        assertFalse(StoredConnections.getConnection("capable").toString().contains("\"capabilities\""));
+        
+        // Probing unsaved changes doesn't write a profile for the stored database
+        edited = StoredConnections.getConnection("capable");
+        edited.getDriverConfig().setURL(url);
+        
+        assertEquals("HSQL Database Engine", edited.getCapabilities().getProductName());
+        assertFalse(StoredConnections.getConnection("capable").toString().contains("\"capabilities\""));
+        
+        connection.delete();
+    }
+    
+    @Test
+    public void testHealthCheck()
+    {
+        AutomaticDriver driver = AutomaticDrivers.getDriverByName("HSQLDB");
+        StoredConnections.HealthCheckResult[] results;
+        StoredConnection healthy = driver
+                                        .createConnection("healthy")
+                                        .driver()
+                                        .url(url)
+                                        .username("SA")
+                                        .password("")
+                                        .build();
+        StoredConnection broken = driver
+                                        .createConnection("broken")
+                                        .driver()
+                                        .url("jdbc:hsqldb:mem:nonexistent;ifexists=true")
+                                        .username("SA")
+                                        .password("")
+                                        .build();
+        
+        healthy.save();
+        broken.save();
+        
+        results = StoredConnections.checkHealth(5000, "healthy", "broken", "missing").join();
+        
+        assertEquals(3, results.length);
+        assertEquals("healthy", results[0].getName());
+        assertTrue(results[0].isHealthy());
+        assertTrue(results[0].getServerVersion().startsWith("HSQL Database Engine"));
+        assertNull(results[0].getError());
+        
+        assertEquals("broken", results[1].getName());
+        assertFalse(results[1].isHealthy());
+        assertNull(results[1].getServerVersion());
+        assertNotNull(results[1].getError());
+        
+        assertEquals("missing", results[2].getName());
+        assertFalse(results[2].isHealthy());
+        
+        // No names checks every stored connection
+        results = StoredConnections.checkHealth(5000).join();
+        
+        assertTrue(results.length >= 2);
+        
+        healthy.delete();
+        broken.delete();
+    }
+    
+    @Test
+    public void testHealthCheckTimeout() throws Exception
+    {
+        StoredConnections.HealthCheckResult[] results;
+        StoredConnection blocking;
+        long start;
+        
+        // The operating system accepts connections on our behalf, but nothing ever responds
+        try(ServerSocket server = new ServerSocket(0))
+        {
+            blocking = AutomaticDrivers.getDriverByName("Derby Network")
+                                        .createConnection("blocking")
+                                        .driver()
+                                        .url("jdbc:derby://localhost:" + server.getLocalPort() + "/blackhole")
+                                        .username("user")
+                                        .password("pass")
+                                        .build();
+            
+            blocking.save();
+            
+            // Load the driver up front so that only the connection attempt is timed
+            assertNotNull(blocking.getDriver().getDriver());
+            
+            start = System.currentTimeMillis();
+            results = StoredConnections.checkHealth(500, "blocking").join();
+            
+            assertTrue(System.currentTimeMillis() - start < 5000);
+            assertFalse(results[0].isHealthy());
+            assertTrue(results[0].getError() instanceof SQLTimeoutException);
+            
+            blocking.delete();
+        }
+    }
+    
+    @Test
+    public void testImportExport()
+    {
+        AutomaticDriver driver = AutomaticDrivers.getDriverByName("HSQLDB");
+        File file = new File("target/unit-test-work/exported.json");
+        JSONArray<JSONObject> descriptors = new JSONArray<>();
+        JSONObject descriptor;
+        StoredConnection connection = driver
+                                        .createConnection("exported")
+                                        .driver()
+                                        .url(url)
+                                        .username("SA")
+                                        .password("")
+                                        .build();
+        
+        for(int i=0; i<100; i++)
+        {
+            descriptor = new JSONObject(connection.toString());
+            descriptor.put("name", "tenant" + i);
+            descriptors.add(descriptor);
+        }
+        
+        assertEquals(100, StoredConnections.importConnections(descriptors));
+        assertEquals(url, StoredConnections.getConnection("TENANT42").getDriverConfig().getURL());
+        
+        // Names already stored or repeated in the batch reject the whole batch
+        descriptor = new JSONObject(connection.toString());
+        
+        try
+        {
+            StoredConnections.importConnections(new JSONArray<>(Arrays.asList(descriptor, descriptors.get(0))));
+            fail("Expected duplicate name to be rejected");
+        }
+        catch(ConvirganceException e) { assertEquals("Connection tenant0 already exists", e.getMessage()); }
+        
+        try
+        {
+            StoredConnections.importConnections(new JSONArray<>(Arrays.asList(descriptor, descriptor)));
+            fail("Expected repeated name to be rejected");
+        }
+        catch(ConvirganceException e) { assertEquals("Connection exported appears more than once", e.getMessage()); }
+        
+        assertNull(StoredConnections.getConnection("exported"));
+        
+        // Rejected batches leave nothing staged behind
+        assertEquals(0, new File("target/unit-test-work/connections").list((directory, name) -> name.startsWith("import")).length);
+        
+        // Round trip through a file
+        StoredConnections.exportConnections(new FileTarget(file));
+        
+        for(int i=0; i<100; i++) StoredConnections.getConnection("tenant" + i).delete();
+        
+        assertNull(StoredConnections.getConnection("tenant42"));
+        
+        descriptors.clear();
+        
+        for(JSONObject exported : new JSONInput().read(new FileSource(file)))
+        {
+            if(exported.getString("name").startsWith("tenant")) descriptors.add(exported);
+        }
+        
+        assertEquals(100, descriptors.size());
+        assertEquals(100, StoredConnections.importConnections(descriptors));
+        assertEquals("SA", StoredConnections.getConnection("tenant99").getDriverConfig().getUsername());
+        
+        for(int i=0; i<100; i++) StoredConnections.getConnection("tenant" + i).delete();
+    }
 }
@@ -0,0 +1,210 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc.benchmark;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.jdbc.AutomaticDriver;
+import com.invirgance.convirgance.jdbc.AutomaticDrivers;
+import com.invirgance.convirgance.jdbc.datasource.DataSourceManager;
+import com.invirgance.convirgance.json.JSONObject;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import javax.sql.DataSource;
+
+/**
+ * Compares {@link DataSourceManager#setConfig(com.invirgance.convirgance.json.JSONObject)}
+ * against the previous approach of introspecting the bean and scanning its
+ * property descriptors for every property set. Each run replays the default
+ * configuration of the Oracle and PostgreSQL data sources, which is what 
+ * {@link com.invirgance.convirgance.jdbc.StoredConnection#getDataSource()} 
+ * does for a stored data source configuration.
+ * 
+ * Run from the project directory after <code>mvn test-compile</code>:
+ * <pre>
+ * java -cp target/classes:target/test-classes:&lt;dependencies&gt; \
+ *     com.invirgance.convirgance.jdbc.benchmark.DataSourceManagerBenchmark [iterations]
+ * </pre>
+ *
+ * @author jbanes
+ */
+public class DataSourceManagerBenchmark
+{
+    private static final String[] DRIVERS = { "Oracle Thin Driver", "PostgreSQL" };
+    
+    public static void main(String[] args) throws Exception
+    {
+        int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : 10000;
+        AutomaticDriver driver;
+        DataSource source;
+        JSONObject config;
+        
+        for(String name : DRIVERS)
+        {
+            driver = AutomaticDrivers.getDriverByName(name);
+            source = driver.getDataSource();
+            config = getConfig(source);
+            
+            System.out.println(name + " (" + source.getClass().getName() + ", " + config.size() + " properties)");
+            
+            // Warm up both paths before measuring
+            measure(driver, config, iterations / 10, true);
+            measure(driver, config, iterations / 10, false);
+            
+            System.out.println("  Introspected: " + measure(driver, config, iterations, true) + "us per setConfig");
+            System.out.println("  Cached:       " + measure(driver, config, iterations, false) + "us per setConfig");
+        }
+    }
+    
+    /**
+     * Returns the default configuration without null values, which some 
+     * setters reject.
+     */
+    private static JSONObject getConfig(DataSource source)
+    {
+        JSONObject defaults = new DataSourceManager(source).getConfig();
+        JSONObject config = new JSONObject();
+        
+        for(String key : defaults.keySet())
+        {
+            if(defaults.get(key) != null) config.put(key, defaults.get(key));
+        }
+        
+        return config;
+    }
+    
+    private static double measure(AutomaticDriver driver, JSONObject config, int iterations, boolean introspect) throws Exception
+    {
+        DataSource source;
+        long start = System.nanoTime();
+        
+        for(int i=0; i<iterations; i++)
+        {
+            source = driver.getDataSource();
+            
+            if(introspect) setConfig(source, config);
+            else new DataSourceManager(source).setConfig(config);
+        }
+        
+        return (System.nanoTime() - start) / 1000.0 / iterations;
+    }
+    
+    /**
+     * The previous implementation: a bean lookup and linear scan for every 
+     * property, with each value passed through the old coercion chain.
+     */
+    private static void setConfig(DataSource source, JSONObject config) throws Exception
+    {
+        Object value;
+        
+        for(String key : config.keySet())
+        {
+            for(PropertyDescriptor descriptor : Introspector.getBeanInfo(source.getClass()).getPropertyDescriptors())
+            {
+                if(!descriptor.getName().equals(key)) continue;
+                
+                value = config.get(key);
+                
+                if(value != null) value = coerceValue(value.getClass(), descriptor.getPropertyType(), value);
+                
+                descriptor.getWriteMethod().invoke(source, value);
+                break;
+            }
+        }
+    }
+    
+    private static boolean isWrapperType(Class primitiveType, Class argumentType) 
+    {
+        if(primitiveType == int.class) return argumentType == Integer.class;
+        else if (primitiveType == double.class) return argumentType == Double.class;
+        else if (primitiveType == boolean.class) return argumentType == Boolean.class;
+        else if (primitiveType == long.class) return argumentType == Long.class;
+        else if (primitiveType == float.class) return argumentType == Float.class;
+        else if (primitiveType == short.class) return argumentType == Short.class;
+        else if (primitiveType == byte.class) return argumentType == Byte.class;
+        else if (primitiveType == char.class) return argumentType == Character.class;
+        
+        return false;
+    }
+    
+    private static Object coerceStringToPrimitive(Class primitiveType, String value)
+    {
+        if(primitiveType == int.class) return Integer.valueOf(value);
+        else if(primitiveType == double.class) return Double.valueOf(value);
+        else if(primitiveType == boolean.class) return Boolean.valueOf(value);
+        else if(primitiveType == long.class) return Long.valueOf(value);
+        else if(primitiveType == float.class) return Float.valueOf(value);
+        else if(primitiveType == short.class) return Short.valueOf(value);
+        else if(primitiveType == byte.class) return Byte.valueOf(value);
+        else if(primitiveType == char.class) return value.charAt(0);
+        
+        throw new ConvirganceException("Unable to transform " + String.class + " to " + primitiveType + " for [" + value + "]");
+    }
+    
+    private static Object coerceStringToNumber(Class type, String value)
+    {
+        if(type == Integer.class) return Integer.valueOf(value);
+        else if(type == Double.class) return Double.valueOf(value);
+        else if(type == Boolean.class) return Boolean.valueOf(value);
+        else if(type == Long.class) return Long.valueOf(value);
+        else if(type == Float.class) return Float.valueOf(value);
+        else if(type == Short.class) return Short.valueOf(value);
+        else if(type == Byte.class) return Byte.valueOf(value);
+        else if(type == Character.class) return value.charAt(0);
+        
+        throw new ConvirganceException("Unable to transform " + String.class + " to " + type + " for [" + value + "]");
+    }
+    
+    private static Object coerceNumber(Class type, Number value)
+    {
+        if(type == Integer.class || type == int.class) return value.intValue();
+        else if(type == Double.class || type == double.class) return value.doubleValue();
+        else if(type == Long.class || type == long.class) return value.longValue();
+        else if(type == Float.class || type == float.class) return value.floatValue();
+        else if(type == Short.class || type == short.class) return value.shortValue();
+        else if(type == Byte.class || type == byte.class) return value.byteValue();
+        
+        throw new ConvirganceException("Unable to transform " + String.class + " to " + type + " for [" + value + "]");
+    }
+    
+    private static Object coerceValue(Class source, Class target, Object value)
+    {
+        if(source.equals(target)) return value;
+        if(target.isAssignableFrom(source)) return value;
+
+        // Check for auto-boxing
+        if(target.isPrimitive() && isWrapperType(target, source)) return value;
+        if(source.isPrimitive() && isWrapperType(source, target)) return value;
+        
+        // Handle strings that need to be parsed
+        if(source.equals(String.class) && target.isPrimitive()) return coerceStringToPrimitive(target, (String)value);
+        if(source.equals(String.class) && Number.class.isAssignableFrom(target)) return coerceStringToNumber(target, (String)value);
+        if(source.equals(String.class) && Boolean.class.isAssignableFrom(target)) return coerceStringToNumber(target, (String)value);
+
+        // Handle number casts
+        if(Number.class.isAssignableFrom(source) && target.isPrimitive()) return coerceNumber(target, (Number)value);
+        if(Number.class.isAssignableFrom(source) && Number.class.isAssignableFrom(target)) return coerceNumber(target, (Number)value);
+        
+        throw new ConvirganceException("Unable to transform " + source + " to " + target + " for [" + value + "]");
+    }
+}
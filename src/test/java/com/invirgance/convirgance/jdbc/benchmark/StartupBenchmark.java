@@ -0,0 +1,175 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc.benchmark;
+
+import com.invirgance.convirgance.jdbc.datasource.DriverDataSource;
+import com.invirgance.convirgance.source.ClasspathSource;
+import com.invirgance.convirgance.storage.Config;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Measures the cost of the first connection through {@link DriverDataSource}
+ * in a fresh JVM once the driver classpath is locked. Each run starts a child
+ * JVM with <code>-verbose:class</code> and reports the elapsed time, the 
+ * number of classes loaded, and how many of them belong to the Maven resolver.
+ * 
+ * Runs alternate between the current lazy start-up and a baseline that 
+ * repeats the work the driver and connection stores used to do when they 
+ * were constructed: opening both stores and installing the resolver's log 
+ * filter before the first lookup. Comparing the two shows what deferring
+ * initialization saves.
+ * 
+ * Run from the project directory after <code>mvn test-compile</code>:
+ * <pre>
+ * java -cp target/classes:target/test-classes:&lt;dependencies&gt; \
+ *     com.invirgance.convirgance.jdbc.benchmark.StartupBenchmark [runs]
+ * </pre>
+ *
+ * @author jbanes
+ */
+public class StartupBenchmark
+{
+    private static final String URL = "jdbc:hsqldb:mem:startup";
+    
+    public static void main(String[] args) throws Exception
+    {
+        int runs = (args.length > 0) ? Integer.parseInt(args[0]) : 10;
+        List<Long> baselineTimes = new ArrayList<>();
+        List<Long> lazyTimes = new ArrayList<>();
+        long[] baseline = new long[3];
+        long[] lazy = new long[3];
+        long[] result;
+        
+        // The first run resolves the driver and writes the classpath lock
+        result = run(false);
+        
+        System.out.println("Warm-up: " + result[0] + "ms, " + result[1] + " classes, " + result[2] + " resolver classes");
+        
+        // Interleave the modes so that drift in the machine affects both equally
+        for(int i=0; i<runs; i++)
+        {
+            add(baseline, baselineTimes, run(true));
+            add(lazy, lazyTimes, run(false));
+        }
+        
+        report("Baseline (eager stores)", baseline, baselineTimes, runs);
+        report("Current (deferred stores)", lazy, lazyTimes, runs);
+    }
+    
+    private static void add(long[] totals, List<Long> times, long[] result)
+    {
+        times.add(result[0]);
+        totals[1] += result[1];
+        totals[2] += result[2];
+    }
+    
+    private static void report(String mode, long[] totals, List<Long> times, int runs)
+    {
+        Collections.sort(times);
+        
+        System.out.println(mode + ":");
+        System.out.println("    Median first connection: " + times.get(times.size() / 2) + "ms over " + runs + " runs");
+        System.out.println("    Average classes loaded: " + (totals[1] / runs));
+        System.out.println("    Average resolver classes loaded: " + (totals[2] / runs));
+    }
+    
+    private static long[] run(boolean baseline) throws Exception
+    {
+        String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+        List<String> command = new ArrayList<>(Arrays.asList(java, "-verbose:class", "-Dconvirgance.jdbc.drivers=target/benchmark/drivers", "-Dconvirgance.jdbc.connections=target/benchmark/connections"));
+        ProcessBuilder builder;
+        Process process;
+        String line;
+        long[] result = new long[3];
+        
+        command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"), Probe.class.getName()));
+        
+        if(baseline) command.add("baseline");
+        
+        builder = new ProcessBuilder(command);
+        builder.redirectErrorStream(true);
+        
+        process = builder.start();
+        
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream())))
+        {
+            while((line = reader.readLine()) != null)
+            {
+                if(line.startsWith("elapsed=")) result[0] = Long.parseLong(line.substring(8));
+                if(line.startsWith("classes=")) result[1] = Long.parseLong(line.substring(8));
+                if(line.contains("org.jboss.shrinkwrap") || line.contains("org.apache.maven") || line.contains("org.eclipse.aether")) result[2]++;
+            }
+        }
+        
+        if(process.waitFor() != 0) throw new IllegalStateException("Probe failed with exit code " + process.exitValue());
+        
+        return result;
+    }
+    
+    /**
+     * Runs in the child JVM. Opens and closes a single connection. With the
+     * <code>baseline</code> argument, the stores are first opened the way 
+     * their constructors did before initialization was deferred.
+     */
+    public static class Probe
+    {
+        private static void openStoresEagerly()
+        {
+            // The resolver's log filter used to be installed with the driver store
+            System.setErr(new PrintStream(System.err) {
+                @Override
+                public void println(String str)
+                {
+                    if(!str.startsWith("SLF4J: ")) super.println(str);
+                }
+            });
+            
+            new Config(new ClasspathSource("/database/drivers.json"), new File(System.getProperty("convirgance.jdbc.drivers")), "name");
+            new Config(new File(System.getProperty("convirgance.jdbc.connections")), "name");
+        }
+        
+        public static void main(String[] args) throws Exception
+        {
+            long start = System.nanoTime();
+            
+            if(args.length > 0 && args[0].equals("baseline")) openStoresEagerly();
+            
+            try(Connection connection = DriverDataSource.getDataSource(URL, "SA", "").getConnection())
+            {
+                System.out.println("elapsed=" + ((System.nanoTime() - start) / 1000000));
+            }
+            
+            System.out.println("classes=" + ManagementFactory.getClassLoadingMXBean().getTotalLoadedClassCount());
+        }
+    }
+}
@@ -23,6 +23,7 @@
  */
 package com.invirgance.convirgance.jdbc.datasource;
 
+import com.invirgance.convirgance.ConvirganceException;
 import com.invirgance.convirgance.json.JSONObject;
 import java.io.PrintWriter;
 import java.sql.Connection;
@@ -117,6 +118,21 @@ public class DataSourceManagerTest
         manager.setProperty("stringArray", new String[]{"One", "Two", "Three"});
     }
     
+    @Test
+    public void testCoersionFailure()
+    {
+        DataSourceManager manager = new DataSourceManager(new AssertionDataSource());
+        
+        manager.setProperty("int", 42L);
+        manager.setProperty("long", 1337);
+        manager.setProperty("longObject", 1337.0);
+        
+        assertThrows(ConvirganceException.class, () -> manager.setProperty("int", true));
+        assertThrows(ConvirganceException.class, () -> manager.setProperty("boolean", 1));
+        assertThrows(ConvirganceException.class, () -> manager.setProperty("missing", "value"));
+        assertThrows(ConvirganceException.class, () -> manager.getProperty("missing"));
+    }
+    
     private class AssertionDataSource implements DataSource
     {
         @Override
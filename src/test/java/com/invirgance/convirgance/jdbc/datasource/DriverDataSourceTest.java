@@ -0,0 +1,125 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc.datasource;
+
+import java.net.ServerSocket;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class DriverDataSourceTest
+{
+    @Test
+    public void testLoginTimeout() throws Exception
+    {
+        // The operating system accepts connections on our behalf, but nothing ever responds
+        try(ServerSocket server = new ServerSocket(0))
+        {
+            DriverDataSource source = DriverDataSource.getDataSource("jdbc:derby://localhost:" + server.getLocalPort() + "/blackhole", "user", "pass");
+            long start;
+            
+            assertEquals(30, source.getLoginTimeout());
+            
+            source.setLoginTimeout(1);
+            
+            assertEquals(1, source.getLoginTimeout());
+            assertTrue(source.isConnectThreadUsed());
+            
+            // Load the driver up front so that only the connection attempt is timed
+            assertNotNull(source.getAutoDriver().getDriver());
+            
+            start = System.currentTimeMillis();
+            
+            try
+            {
+                source.getConnection();
+                fail("Expected exception");
+            }
+            catch(SQLTimeoutException e)
+            {
+                assertTrue(e.getMessage().startsWith("Timed out after 1000ms"));
+            }
+            
+            assertTrue(System.currentTimeMillis() - start < 10000);
+            
+            // Per-call timeouts override the data source timeout
+            start = System.currentTimeMillis();
+            
+            try
+            {
+                source.getConnection(200, TimeUnit.MILLISECONDS);
+                fail("Expected exception");
+            }
+            catch(SQLTimeoutException e)
+            {
+                assertTrue(e.getMessage().startsWith("Timed out after 200ms"));
+            }
+            
+            assertTrue(System.currentTimeMillis() - start < 1000);
+        }
+    }
+    
+    @Test
+    public void testDriverTimeout() throws Exception
+    {
+        try(ServerSocket server = new ServerSocket(0))
+        {
+            DriverDataSource source = DriverDataSource.getDataSource("jdbc:derby://localhost:" + server.getLocalPort() + "/blackhole", "user", "pass");
+            
+            source.setLoginTimeout(1);
+            source.useConnectThread(false);
+            
+            // The driver is handed the deadline and gives up on its own
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                assertThrows(SQLException.class, () -> source.getConnection());
+            });
+        }
+    }
+    
+    @Test
+    public void testConnectWithTimeout() throws Exception
+    {
+        DriverDataSource source = DriverDataSource.getDataSource("jdbc:hsqldb:mem:timeouttest", "SA", "");
+        
+        source.setLoginTimeout(0);
+        
+        try(Connection connection = source.getConnection())
+        {
+            assertFalse(connection.isClosed());
+        }
+        
+        try(Connection connection = source.getConnection(30, TimeUnit.SECONDS))
+        {
+            assertFalse(connection.isClosed());
+        }
+    }
+}
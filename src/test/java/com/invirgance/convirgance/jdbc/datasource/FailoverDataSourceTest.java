@@ -0,0 +1,250 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc.datasource;
+
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class FailoverDataSourceTest
+{
+    private static DataSource create(String name) throws SQLException
+    {
+        DataSource source = DriverDataSource.getDataSource("jdbc:hsqldb:mem:failover" + name, "SA", "");
+        
+        try(Connection connection = source.getConnection(); Statement statement = connection.createStatement())
+        {
+            statement.execute("create table NODE (NAME varchar(20))");
+            statement.execute("insert into NODE values ('" + name + "')");
+        }
+        
+        return source;
+    }
+    
+    private static DataSource missing(String name)
+    {
+        return DriverDataSource.getDataSource("jdbc:hsqldb:mem:failovermissing" + name + ";ifexists=true", "SA", "");
+    }
+    
+    private static String getNode(Connection connection) throws SQLException
+    {
+        try(Statement statement = connection.createStatement(); ResultSet set = statement.executeQuery("select NAME from NODE"))
+        {
+            set.next();
+            
+            return set.getString(1);
+        }
+    }
+    
+    @Test
+    public void testFailover() throws SQLException
+    {
+        try(FailoverDataSource source = new FailoverDataSource(missing("first"), create("second")))
+        {
+            JSONArray<JSONObject> status;
+            
+            source.setHealthCheckInterval(0);
+            
+            try(Connection connection = source.getConnection())
+            {
+                assertEquals("second", getNode(connection));
+            }
+            
+            status = source.getStatus();
+            
+            assertFalse(status.get(0).getBoolean("available"));
+            assertEquals(1, status.get(0).getInt("failures"));
+            assertTrue(status.get(1).getBoolean("available"));
+            
+            // The open breaker skips the dead node without another attempt
+            try(Connection connection = source.getConnection())
+            {
+                assertEquals("second", getNode(connection));
+            }
+            
+            assertEquals(1, source.getStatus().get(0).getInt("failures"));
+        }
+    }
+    
+    @Test
+    public void testAllFailing() throws SQLException
+    {
+        try(FailoverDataSource source = new FailoverDataSource(missing("a"), missing("b")))
+        {
+            source.setHealthCheckInterval(0);
+            
+            assertThrows(SQLException.class, () -> source.getConnection());
+            
+            SQLException exception = assertThrows(SQLException.class, () -> source.getConnection());
+            
+            assertTrue(exception.getMessage().startsWith("No database available"));
+        }
+    }
+    
+    @Test
+    public void testHealthCheck() throws SQLException
+    {
+        try(FailoverDataSource source = new FailoverDataSource(missing("recovered"), create("backup")))
+        {
+            source.setHealthCheckInterval(0);
+            source.setResetTimeout(60000);
+            
+            try(Connection connection = source.getConnection())
+            {
+                assertEquals("backup", getNode(connection));
+            }
+            
+            assertFalse(source.getStatus().get(0).getBoolean("available"));
+            
+            // Bring the dead node up and let a health check close its breaker
+            create("missingrecovered");
+            source.checkHealth();
+            
+            assertTrue(source.getStatus().get(0).getBoolean("available"));
+            
+            try(Connection connection = source.getConnection())
+            {
+                assertEquals("missingrecovered", getNode(connection));
+            }
+        }
+        
+        try(FailoverDataSource source = new FailoverDataSource(create("primary"), create("standby")))
+        {
+            source.setHealthCheckInterval(0);
+            source.checkHealth();
+            
+            for(JSONObject record : source.getStatus()) assertTrue(record.getBoolean("available"));
+            
+            try(Connection connection = source.getConnection())
+            {
+                assertEquals("primary", getNode(connection));
+            }
+        }
+    }
+    
+    private static DataSource blocking()
+    {
+        return blocking(new AtomicInteger());
+    }
+    
+    private static DataSource blocking(AtomicInteger calls)
+    {
+        return (DataSource)Proxy.newProxyInstance(FailoverDataSourceTest.class.getClassLoader(), new Class[]{ DataSource.class }, (proxy, method, args) -> {
+            if(method.getName().equals("getConnection")) calls.incrementAndGet();
+            if(method.getName().equals("getConnection")) Thread.sleep(60000);
+            if(method.getName().equals("toString")) return "blocking";
+            
+            return null;
+        });
+    }
+    
+    @Test
+    public void testHealthCheckTimeout() throws SQLException
+    {
+        try(FailoverDataSource source = new FailoverDataSource(blocking(), create("responsive")))
+        {
+            long start = System.currentTimeMillis();
+            
+            source.setHealthCheckInterval(0);
+            source.setHealthCheckTimeout(200);
+            source.checkHealth();
+            
+            // A node that hangs is marked down once the timeout passes, whatever its type
+            assertTrue(System.currentTimeMillis() - start < 5000);
+            assertFalse(source.getStatus().get(0).getBoolean("available"));
+            assertTrue(source.getStatus().get(1).getBoolean("available"));
+        }
+    }
+    
+    @Test
+    public void testHangingNode() throws SQLException
+    {
+        AtomicInteger calls = new AtomicInteger();
+        
+        try(FailoverDataSource source = new FailoverDataSource(blocking(calls), create("steady")))
+        {
+            long start;
+            
+            source.setHealthCheckInterval(0);
+            source.setHealthCheckTimeout(200);
+            
+            for(int i=0; i<5; i++)
+            {
+                start = System.currentTimeMillis();
+                
+                source.checkHealth();
+                
+                // Every round keeps to the timeout and the healthy node is never starved
+                assertTrue(System.currentTimeMillis() - start < 5000);
+                assertFalse(source.getStatus().get(0).getBoolean("available"));
+                assertTrue(source.getStatus().get(1).getBoolean("available"));
+            }
+            
+            // The hung open is not piled on by later rounds
+            assertEquals(1, calls.get());
+        }
+    }
+    
+    @Test
+    public void testStartupCheck() throws Exception
+    {
+        try(FailoverDataSource source = new FailoverDataSource(create("started"), missing("started")))
+        {
+            source.setHealthCheckInterval(60000);
+            
+            try(Connection connection = source.getConnection())
+            {
+                assertEquals("started", getNode(connection));
+            }
+            
+            // The first check runs right away rather than after the interval
+            for(int i=0; i<50 && source.getStatus().get(1).getBoolean("available"); i++) Thread.sleep(100);
+            
+            assertFalse(source.getStatus().get(1).getBoolean("available"));
+            assertTrue(source.getStatus().get(0).getBoolean("available"));
+        }
+    }
+    
+    @Test
+    public void testClosed() throws SQLException
+    {
+        FailoverDataSource source = new FailoverDataSource(create("closed"));
+        
+        source.close();
+        
+        assertThrows(SQLException.class, () -> source.getConnection());
+    }
+}
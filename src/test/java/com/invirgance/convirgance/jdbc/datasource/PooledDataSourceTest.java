@@ -0,0 +1,352 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc.datasource;
+
+import com.invirgance.convirgance.json.JSONObject;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class PooledDataSourceTest
+{
+    private static final String URL = "jdbc:hsqldb:mem:pooltest";
+    
+    /**
+     * Creates a pool that records the physical connections it opens, since
+     * the pool itself never hands them out.
+     */
+    private static PooledDataSource getPool(List<Connection> opened, JSONObject options)
+    {
+        DriverDataSource source = new DriverDataSource(URL, "SA", "");
+        PooledDataSource pool = new PooledDataSource((DataSource)Proxy.newProxyInstance(PooledDataSourceTest.class.getClassLoader(), new Class[]{ DataSource.class }, (proxy, method, args) -> {
+            Object result;
+            
+            try
+            {
+                result = method.invoke(source, args);
+            }
+            catch(InvocationTargetException e)
+            {
+                throw e.getCause();
+            }
+            
+            if(result instanceof Connection) opened.add((Connection)result);
+            
+            return result;
+        }));
+        
+        if(options != null) new DataSourceManager(pool).setConfig(options);
+        
+        return pool;
+    }
+    
+    @Test
+    public void testReuse() throws SQLException
+    {
+        List<Connection> opened = new ArrayList<>();
+        
+        try(PooledDataSource pool = getPool(opened, null))
+        {
+            Connection connection = pool.getConnection();
+            Connection physical = opened.get(0);
+            
+            assertSame(connection, connection.unwrap(Connection.class));
+            assertEquals(1, pool.getActiveCount());
+            assertEquals(0, pool.getIdleCount());
+            
+            connection.close();
+            connection.close(); // Closing twice must not return the connection twice
+            
+            assertTrue(connection.isClosed());
+            assertFalse(physical.isClosed());
+            assertEquals(0, pool.getActiveCount());
+            assertEquals(1, pool.getIdleCount());
+            
+            try
+            {
+                connection.createStatement();
+                fail("Expected exception");
+            }
+            catch(SQLException e)
+            {
+                assertEquals("Connection is closed", e.getMessage());
+            }
+            
+            try(Connection reused = pool.getConnection())
+            {
+                assertNotSame(connection, reused);
+                assertEquals(1, opened.size());
+            }
+        }
+    }
+    
+    @Test
+    public void testTransactionReset() throws SQLException
+    {
+        try(PooledDataSource pool = DriverDataSource.getPooledDataSource(URL, "SA", "", null))
+        {
+            try(Connection connection = pool.getConnection(); Statement statement = connection.createStatement())
+            {
+                statement.execute("create table POOLED (ID INTEGER)");
+                
+                connection.setAutoCommit(false);
+                statement.execute("insert into POOLED values (1)");
+            }
+            
+            try(Connection connection = pool.getConnection(); Statement statement = connection.createStatement())
+            {
+                assertTrue(connection.getAutoCommit());
+                
+                try(ResultSet set = statement.executeQuery("select count(*) from POOLED"))
+                {
+                    set.next();
+                    assertEquals(0, set.getInt(1));
+                }
+                
+                statement.execute("drop table POOLED");
+            }
+        }
+    }
+    
+    @Test
+    public void testSessionReset() throws SQLException
+    {
+        try(PooledDataSource pool = DriverDataSource.getPooledDataSource(URL, "SA", "", null))
+        {
+            int isolation;
+            
+            try(Connection connection = pool.getConnection())
+            {
+                isolation = connection.getTransactionIsolation();
+                
+                connection.setReadOnly(true);
+                connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+            }
+            
+            try(Connection connection = pool.getConnection())
+            {
+                assertEquals(1, pool.getTotalCount());
+                assertFalse(connection.isReadOnly());
+                assertEquals(isolation, connection.getTransactionIsolation());
+            }
+        }
+    }
+    
+    @Test
+    public void testStatements() throws SQLException
+    {
+        List<Connection> opened = new ArrayList<>();
+        
+        try(PooledDataSource pool = getPool(opened, null))
+        {
+            Connection connection = pool.getConnection();
+            Statement statement = connection.createStatement();
+            PreparedStatement prepared = connection.prepareStatement("values 1");
+            ResultSet set = statement.executeQuery("values 1");
+            DatabaseMetaData metadata = connection.getMetaData();
+            
+            // Nothing leads back to the physical connection
+            assertSame(connection, statement.getConnection());
+            assertSame(connection, prepared.getConnection());
+            assertSame(statement, set.getStatement());
+            assertSame(connection, metadata.getConnection());
+            assertSame(statement, statement.unwrap(Statement.class));
+            
+            // Returning the connection closes what the borrower left open
+            connection.close();
+            
+            assertTrue(statement.isClosed());
+            assertTrue(prepared.isClosed());
+            assertTrue(set.isClosed());
+            assertFalse(opened.get(0).isClosed());
+            
+            try
+            {
+                statement.executeQuery("values 1");
+                fail("Expected exception");
+            }
+            catch(SQLException e)
+            {
+                assertEquals("Connection is closed", e.getMessage());
+            }
+            
+            // Closing after the connection was returned is harmless
+            statement.close();
+            set.close();
+            
+            try(Connection reused = pool.getConnection(); Statement other = reused.createStatement())
+            {
+                assertEquals(1, opened.size());
+                assertTrue(other.execute("values 1"));
+            }
+        }
+    }
+    
+    @Test
+    public void testValidation() throws Exception
+    {
+        List<Connection> opened = new ArrayList<>();
+        
+        try(PooledDataSource pool = getPool(opened, null))
+        {
+            Connection connection = pool.getConnection();
+            Connection physical = opened.get(0);
+            
+            connection.close();
+            
+            // A connection that died while idle is replaced on borrow
+            physical.close();
+            Thread.sleep(600);
+            
+            try(Connection replacement = pool.getConnection())
+            {
+                assertEquals(2, opened.size());
+                assertFalse(replacement.isClosed());
+                assertEquals(1, pool.getTotalCount());
+            }
+        }
+    }
+    
+    @Test
+    public void testBorrowTimeout() throws SQLException
+    {
+        JSONObject options = new JSONObject("{\"maximumSize\": 1, \"borrowTimeout\": 100}");
+        
+        try(PooledDataSource pool = DriverDataSource.getPooledDataSource(URL, "SA", "", options))
+        {
+            assertEquals(1, pool.getMaximumSize());
+            assertEquals(100, pool.getBorrowTimeout());
+            
+            try(Connection connection = pool.getConnection())
+            {
+                pool.getConnection();
+                fail("Expected exception");
+            }
+            catch(SQLException e)
+            {
+                assertTrue(e.getMessage().startsWith("Timed out after 100ms"));
+            }
+            
+            assertEquals(1, pool.getTotalCount());
+            assertNotNull(pool.getConnection());
+        }
+    }
+    
+    @Test
+    public void testLifetime() throws Exception
+    {
+        JSONObject options = new JSONObject("{\"maxLifetime\": 50}");
+        
+        List<Connection> opened = new ArrayList<>();
+        
+        try(PooledDataSource pool = getPool(opened, options))
+        {
+            Connection connection = pool.getConnection();
+            Connection physical = opened.get(0);
+            
+            Thread.sleep(100);
+            connection.close();
+            
+            assertTrue(physical.isClosed());
+            assertEquals(0, pool.getTotalCount());
+        }
+    }
+    
+    @Test
+    public void testHousekeeping() throws Exception
+    {
+        JSONObject options = new JSONObject("{\"minimumSize\": 2, \"idleTimeout\": 50}");
+        
+        try(PooledDataSource pool = DriverDataSource.getPooledDataSource(URL, "SA", "", options))
+        {
+            Connection first = pool.getConnection();
+            Connection second = pool.getConnection();
+            Connection third = pool.getConnection();
+            
+            first.close();
+            second.close();
+            third.close();
+            
+            assertEquals(3, pool.getIdleCount());
+            
+            Thread.sleep(100);
+            pool.housekeep();
+            
+            // Idle connections above the minimum are closed
+            assertEquals(2, pool.getIdleCount());
+            
+            // The minimum is refilled in the background
+            pool.closeIdle();
+            pool.housekeep();
+            
+            for(int i=0; i<100 && pool.getIdleCount() < 2; i++) Thread.sleep(20);
+            
+            assertEquals(2, pool.getIdleCount());
+            assertEquals(2, pool.getTotalCount());
+        }
+    }
+    
+    @Test
+    public void testClose() throws SQLException
+    {
+        List<Connection> opened = new ArrayList<>();
+        PooledDataSource pool = getPool(opened, null);
+        Connection borrowed = pool.getConnection();
+        Connection physical = opened.get(0);
+        
+        pool.getConnection().close();
+        pool.close();
+        
+        assertEquals(1, pool.getTotalCount());
+        
+        borrowed.close();
+        
+        assertTrue(physical.isClosed());
+        assertEquals(0, pool.getTotalCount());
+        
+        try
+        {
+            pool.getConnection();
+            fail("Expected exception");
+        }
+        catch(SQLException e)
+        {
+            assertEquals("Connection pool is closed", e.getMessage());
+        }
+    }
+}
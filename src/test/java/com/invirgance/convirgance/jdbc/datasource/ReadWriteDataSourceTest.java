@@ -0,0 +1,252 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc.datasource;
+
+import com.invirgance.convirgance.jdbc.AutomaticDrivers;
+import com.invirgance.convirgance.jdbc.schema.DatabaseSchemaLayout;
+import com.invirgance.convirgance.jdbc.schema.Table;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class ReadWriteDataSourceTest
+{
+    private static DataSource primary;
+    private static DataSource replica1;
+    private static DataSource replica2;
+    
+    private static DataSource create(String name) throws SQLException
+    {
+        DataSource source = DriverDataSource.getDataSource("jdbc:hsqldb:mem:rw" + name, "SA", "");
+        
+        try(Connection connection = source.getConnection(); Statement statement = connection.createStatement())
+        {
+            statement.execute("create table NODE (NAME varchar(20))");
+            statement.execute("insert into NODE values ('" + name + "')");
+        }
+        
+        return source;
+    }
+    
+    private static String getNode(Connection connection) throws SQLException
+    {
+        try(Statement statement = connection.createStatement(); ResultSet set = statement.executeQuery("select NAME from NODE"))
+        {
+            set.next();
+            
+            return set.getString(1);
+        }
+    }
+    
+    @BeforeAll
+    public static void setup() throws SQLException
+    {
+        primary = create("primary");
+        replica1 = create("replica1");
+        replica2 = create("replica2");
+    }
+    
+    @Test
+    public void testRouting() throws SQLException
+    {
+        ReadWriteDataSource source = new ReadWriteDataSource(primary, replica1, replica2);
+        
+        try(Connection connection = source.getConnection())
+        {
+            assertEquals("primary", getNode(connection));
+            assertArrayEquals(new int[]{ 1 }, source.getPrimaryOutstanding());
+        }
+        
+        try(Connection connection = source.getConnection())
+        {
+            connection.setReadOnly(true);
+            
+            assertTrue(getNode(connection).startsWith("replica"));
+            assertTrue(connection.isReadOnly());
+        }
+        
+        assertArrayEquals(new int[]{ 0 }, source.getPrimaryOutstanding());
+        assertArrayEquals(new int[]{ 0, 0 }, source.getReplicaOutstanding());
+    }
+    
+    @Test
+    public void testLeastOutstanding() throws SQLException
+    {
+        ReadWriteDataSource source = new ReadWriteDataSource(primary, replica1, replica2);
+        DataSource reads = source.getReadOnlyDataSource();
+        int[] counts;
+        
+        try(Connection first = reads.getConnection(); Connection second = reads.getConnection(); Connection third = reads.getConnection())
+        {
+            assertNotEquals(getNode(first), getNode(second));
+            assertArrayEquals(new int[]{ 1, 1 }, source.getReplicaOutstanding());
+            
+            getNode(third);
+            second.close();
+            
+            counts = source.getReplicaOutstanding();
+            
+            try(Connection fourth = reads.getConnection())
+            {
+                getNode(fourth);
+                
+                // Goes to the replica with fewer open connections
+                if(counts[0] < counts[1]) counts[0]++;
+                else if(counts[1] < counts[0]) counts[1]++;
+                else counts = source.getReplicaOutstanding();
+                
+                assertArrayEquals(counts, source.getReplicaOutstanding());
+                assertEquals(3, counts[0] + counts[1]);
+            }
+        }
+    }
+    
+    @Test
+    public void testSwitching() throws SQLException
+    {
+        ReadWriteDataSource source = new ReadWriteDataSource(primary, replica1, replica2);
+        
+        try(Connection connection = source.getConnection())
+        {
+            assertEquals("primary", getNode(connection));
+            
+            // Auto-commit, so the connection can move
+            connection.setReadOnly(true);
+            
+            assertTrue(getNode(connection).startsWith("replica"));
+            assertArrayEquals(new int[]{ 0 }, source.getPrimaryOutstanding());
+            
+            connection.setReadOnly(false);
+            connection.setAutoCommit(false);
+            
+            assertEquals("primary", getNode(connection));
+            
+            // Inside a transaction, the connection stays put
+            connection.setReadOnly(true);
+            
+            assertEquals("primary", getNode(connection));
+            
+            connection.rollback();
+        }
+    }
+    
+    @Test
+    public void testSessionReplay() throws SQLException
+    {
+        ReadWriteDataSource source = new ReadWriteDataSource(primary, replica1);
+        
+        try(Connection connection = source.getConnection())
+        {
+            assertEquals("primary", getNode(connection));
+            
+            connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+            connection.setReadOnly(true);
+            
+            // The isolation level follows the connection to the replica
+            assertEquals("replica1", getNode(connection));
+            assertEquals(Connection.TRANSACTION_SERIALIZABLE, connection.getTransactionIsolation());
+        }
+    }
+    
+    @Test
+    public void testOpenStatement() throws SQLException
+    {
+        ReadWriteDataSource source = new ReadWriteDataSource(primary, replica1);
+        
+        try(Connection connection = source.getConnection())
+        {
+            try(Statement statement = connection.createStatement())
+            {
+                // An open statement pins the connection to its database
+                connection.setReadOnly(true);
+                
+                assertEquals("primary", getNode(connection));
+                assertTrue(connection.isReadOnly());
+            }
+            
+            connection.setReadOnly(false);
+            connection.setReadOnly(true);
+            
+            assertEquals("replica1", getNode(connection));
+        }
+    }
+    
+    @Test
+    public void testUnreachableReplica() throws SQLException
+    {
+        DataSource missing = DriverDataSource.getDataSource("jdbc:hsqldb:mem:rwmissing;ifexists=true", "SA", "");
+        ReadWriteDataSource source = new ReadWriteDataSource(primary, missing);
+        
+        try(Connection connection = source.getConnection())
+        {
+            assertEquals("primary", getNode(connection));
+            
+            // No replica answers, so the connection stays where it is
+            connection.setReadOnly(true);
+            
+            assertTrue(connection.isReadOnly());
+            assertEquals("primary", getNode(connection));
+            assertArrayEquals(new int[]{ 1 }, source.getPrimaryOutstanding());
+            assertArrayEquals(new int[]{ 0 }, source.getReplicaOutstanding());
+            
+            connection.setReadOnly(false);
+            
+            assertFalse(connection.isReadOnly());
+        }
+    }
+    
+    @Test
+    public void testSchemaLayout()
+    {
+        ReadWriteDataSource source = new ReadWriteDataSource(primary, replica1);
+        DatabaseSchemaLayout layout = new DatabaseSchemaLayout(AutomaticDrivers.getDriverByURL("jdbc:hsqldb:mem:rwprimary"), source);
+        Table table = layout.getCurrentSchema().getTable("NODE");
+        
+        assertEquals("replica1", table.iterator().next().getString("NAME"));
+        assertSame(source, layout.getDataSource());
+    }
+    
+    @Test
+    public void testFallback() throws SQLException
+    {
+        DataSource missing = DriverDataSource.getDataSource("jdbc:hsqldb:mem:rwmissing;ifexists=true", "SA", "");
+        ReadWriteDataSource source = new ReadWriteDataSource(primary, missing);
+        
+        try(Connection connection = source.getReadOnlyDataSource().getConnection())
+        {
+            assertEquals("primary", getNode(connection));
+        }
+        
+        assertArrayEquals(new int[]{ 0 }, source.getReplicaOutstanding());
+    }
+}
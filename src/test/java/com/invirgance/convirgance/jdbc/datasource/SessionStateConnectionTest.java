@@ -0,0 +1,165 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc.datasource;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class SessionStateConnectionTest
+{
+    private static Connection getConnection(List<String> calls)
+    {
+        return (Connection)Proxy.newProxyInstance(getClassLoader(), new Class[]{ Connection.class }, (proxy, method, args) -> {
+            calls.add(method.getName() + ((args == null) ? "" : Arrays.toString(args)));
+            
+            switch(method.getName())
+            {
+                case "getAutoCommit": return true;
+                case "isReadOnly": return false;
+                case "getTransactionIsolation": return Connection.TRANSACTION_READ_COMMITTED;
+                case "getSchema": return "PUBLIC";
+                case "getCatalog": return "DB";
+                case "isClosed": return false;
+                default: return null;
+            }
+        });
+    }
+    
+    private static ClassLoader getClassLoader()
+    {
+        return SessionStateConnectionTest.class.getClassLoader();
+    }
+    
+    @Test
+    public void testRedundantChanges() throws SQLException
+    {
+        List<String> calls = new ArrayList<>();
+        Connection connection = SessionStateConnection.wrap(getConnection(calls));
+        long saved = SessionStateConnection.getSavedRoundTrips();
+        
+        assertTrue(connection.getAutoCommit());
+        assertEquals(Arrays.asList("getAutoCommit"), calls);
+        
+        connection.setAutoCommit(true);
+        connection.setAutoCommit(true);
+        connection.createStatement();
+        
+        assertTrue(connection.getAutoCommit());
+        assertEquals(Arrays.asList("getAutoCommit", "createStatement"), calls);
+        assertEquals(saved + 2, SessionStateConnection.getSavedRoundTrips());
+        
+        assertSame(connection, SessionStateConnection.wrap(connection));
+        assertNull(SessionStateConnection.wrap(null));
+    }
+    
+    @Test
+    public void testDeferredChanges() throws SQLException
+    {
+        List<String> calls = new ArrayList<>();
+        Connection connection = SessionStateConnection.wrap(getConnection(calls));
+        
+        connection.setAutoCommit(false);
+        connection.setReadOnly(true);
+        connection.setSchema("APP");
+        connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        
+        // Nothing reaches the database until it is needed
+        assertTrue(calls.isEmpty());
+        assertFalse(connection.getAutoCommit());
+        assertEquals("APP", connection.getSchema());
+        assertTrue(calls.isEmpty());
+        
+        connection.prepareStatement("select 1");
+        
+        assertEquals(Arrays.asList("setSchema[APP]", 
+                                   "setReadOnly[true]", 
+                                   "setTransactionIsolation[" + Connection.TRANSACTION_REPEATABLE_READ + "]", 
+                                   "setAutoCommit[false]", 
+                                   "prepareStatement[select 1]"), calls);
+        
+        calls.clear();
+        
+        // Enabling auto-commit commits the transaction and can't be deferred
+        connection.setAutoCommit(true);
+        connection.setReadOnly(false);
+        connection.setReadOnly(true);
+        connection.close();
+        
+        assertEquals(Arrays.asList("setAutoCommit[true]", "close"), calls);
+    }
+    
+    @Test
+    public void testDriverDataSource() throws SQLException
+    {
+        DriverDataSource source = DriverDataSource.getDataSource("jdbc:hsqldb:mem:sessiontest", "SA", "");
+        
+        // Opt-in only
+        try(Connection connection = source.getConnection())
+        {
+            assertFalse(Proxy.isProxyClass(connection.getClass()));
+        }
+        
+        source.useSessionState(true);
+        
+        try(Connection connection = source.getConnection())
+        {
+            assertTrue(Proxy.isProxyClass(connection.getClass()));
+            
+            connection.setSchema("INFORMATION_SCHEMA");
+            connection.setAutoCommit(false);
+            
+            try(Statement statement = connection.createStatement(); ResultSet set = statement.executeQuery("select count(*) from SYSTEM_USERS"))
+            {
+                assertTrue(set.next());
+            }
+            
+            assertEquals("INFORMATION_SCHEMA", connection.unwrap(Connection.class).getSchema());
+            assertFalse(connection.unwrap(Connection.class).getAutoCommit());
+            
+            // Statements created before a change still see it when executed
+            try(Statement statement = connection.createStatement())
+            {
+                assertSame(connection, statement.getConnection());
+                
+                connection.setSchema("PUBLIC");
+                statement.execute("create table SESSION_STATE (ID INTEGER)");
+                
+                assertEquals("PUBLIC", connection.unwrap(Connection.class).getSchema());
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc.datasource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class StatementCacheTest
+{
+    private static final String URL = "jdbc:hsqldb:mem:cachetest";
+    
+    private static int count(PreparedStatement statement) throws SQLException
+    {
+        try(ResultSet set = statement.executeQuery())
+        {
+            set.next();
+            
+            return set.getInt(1);
+        }
+    }
+    
+    @Test
+    public void testStatementCache() throws SQLException
+    {
+        DriverDataSource source = DriverDataSource.getDataSource(URL, "SA", "");
+        String sql = "select count(*) from INFORMATION_SCHEMA.SYSTEM_USERS where USER_NAME = ?";
+        PreparedStatement physical;
+        
+        source.useStatementCache(2);
+        
+        assertEquals(2, source.getStatementCacheSize());
+        
+        try(Connection connection = source.getConnection())
+        {
+            try(PreparedStatement statement = connection.prepareStatement(sql))
+            {
+                statement.setString(1, "SA");
+                
+                assertEquals(1, count(statement));
+                assertSame(connection, statement.getConnection());
+                
+                physical = statement.unwrap(PreparedStatement.class);
+            }
+            
+            assertEquals(0, source.getStatementCacheHits());
+            assertEquals(1, source.getStatementCacheMisses());
+            assertFalse(physical.isClosed());
+            
+            try(PreparedStatement statement = connection.prepareStatement(sql))
+            {
+                // Parameters are cleared when the statement is returned
+                try
+                {
+                    count(statement);
+                    fail("Expected exception");
+                }
+                catch(SQLException e) { }
+                
+                statement.setString(1, "NOBODY");
+                
+                assertEquals(0, count(statement));
+                assertSame(physical, statement.unwrap(PreparedStatement.class));
+                
+                // Concurrent use of the same SQL gets a separate statement
+                try(PreparedStatement other = connection.prepareStatement(sql))
+                {
+                    assertNotSame(physical, other.unwrap(PreparedStatement.class));
+                }
+            }
+            
+            assertEquals(1, source.getStatementCacheHits());
+            assertEquals(2, source.getStatementCacheMisses());
+            
+            // Different result set options are cached separately
+            connection.prepareStatement(sql, ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY).close();
+            connection.prepareStatement("values 1").close();
+            
+            assertEquals(4, source.getStatementCacheMisses());
+            
+            // The least recently used statement was evicted
+            assertTrue(physical.isClosed());
+        }
+    }
+    
+    @Test
+    public void testSettingsReset() throws SQLException
+    {
+        DriverDataSource source = DriverDataSource.getDataSource(URL, "SA", "");
+        PreparedStatement physical;
+        int maxRows;
+        int timeout;
+        int fetchSize;
+        
+        source.useStatementCache(4);
+        
+        try(Connection connection = source.getConnection())
+        {
+            try(PreparedStatement statement = connection.prepareStatement("values 1"))
+            {
+                physical = statement.unwrap(PreparedStatement.class);
+                maxRows = statement.getMaxRows();
+                timeout = statement.getQueryTimeout();
+                fetchSize = statement.getFetchSize();
+                
+                statement.setMaxRows(maxRows + 1);
+                statement.setQueryTimeout(timeout + 30);
+                statement.setFetchSize(fetchSize + 10);
+            }
+            
+            // The statement is reused with the limits it was handed out with
+            try(PreparedStatement statement = connection.prepareStatement("values 1"))
+            {
+                assertSame(physical, statement.unwrap(PreparedStatement.class));
+                assertEquals(maxRows, statement.getMaxRows());
+                assertEquals(timeout, statement.getQueryTimeout());
+                assertEquals(fetchSize, statement.getFetchSize());
+                
+                statement.setCursorName("changed");
+            }
+            
+            // Settings that cannot be read back are not cached
+            assertTrue(physical.isClosed());
+            
+            try(PreparedStatement statement = connection.prepareStatement("values 1"))
+            {
+                assertNotSame(physical, statement.unwrap(PreparedStatement.class));
+            }
+        }
+    }
+    
+    @Test
+    public void testDisabled() throws SQLException
+    {
+        DriverDataSource source = DriverDataSource.getDataSource(URL, "SA", "");
+        PreparedStatement physical;
+        
+        try(Connection connection = source.getConnection())
+        {
+            try(PreparedStatement statement = connection.prepareStatement("values 1"))
+            {
+                physical = statement.unwrap(PreparedStatement.class);
+            }
+            
+            assertTrue(physical.isClosed());
+            assertEquals(0, source.getStatementCacheMisses());
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 jbanes.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.jdbc.datasource;
+
+import com.invirgance.convirgance.json.JSONObject;
+import java.sql.Connection;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class TenantDataSourcesTest
+{
+    private static DataSource resolve(String tenant)
+    {
+        return DriverDataSource.getDataSource("jdbc:hsqldb:mem:tenant" + tenant, "SA", "");
+    }
+    
+    private static JSONObject getStatus(TenantDataSources router, String tenant)
+    {
+        for(JSONObject record : router.getStatus())
+        {
+            if(record.getString("name").equals(tenant)) return record;
+        }
+        
+        return null;
+    }
+    
+    @Test
+    public void testLazyPools() throws SQLException
+    {
+        try(TenantDataSources router = new TenantDataSources(TenantDataSourcesTest::resolve))
+        {
+            assertEquals(0, router.getPoolCount());
+            assertTrue(router.getStatus().isEmpty());
+            
+            try(Connection connection = router.getConnection("lazy"))
+            {
+                assertTrue(connection.isValid(1));
+                assertEquals(1, router.getTotalCount());
+            }
+            
+            try(Connection connection = router.getDataSource("lazy").getConnection())
+            {
+                assertTrue(connection.isValid(1));
+            }
+            
+            assertEquals(1, router.getPoolCount());
+            assertEquals(1, router.getTotalCount());
+            assertEquals(1, getStatus(router, "lazy").getInt("misses"));
+            assertEquals(1, getStatus(router, "lazy").getInt("hits"));
+            assertEquals(1, getStatus(router, "lazy").getInt("idle"));
+        }
+    }
+    
+    @Test
+    public void testConnectionLimit() throws SQLException
+    {
+        try(TenantDataSources router = new TenantDataSources(TenantDataSourcesTest::resolve))
+        {
+            router.setMaximumConnections(2);
+            router.setBorrowTimeout(200);
+            
+            router.getConnection("first").close();
+            router.getConnection("second").close();
+            
+            assertEquals(2, router.getTotalCount());
+            
+            // Least recently used idle pool makes room
+            try(Connection connection = router.getConnection("third"))
+            {
+                assertEquals(2, router.getTotalCount());
+                assertEquals(1, getStatus(router, "first").getInt("evictions"));
+                assertFalse(getStatus(router, "first").getBoolean("pooled"));
+                assertTrue(getStatus(router, "second").getBoolean("pooled"));
+                
+                try(Connection other = router.getConnection("second"))
+                {
+                    // Every connection is borrowed, so nothing can be freed
+                    assertThrows(SQLException.class, () -> router.getConnection("fourth"));
+                }
+            }
+            
+            // Evicted tenants come back as a new pool
+            router.getConnection("first").close();
+            
+            assertEquals(2, getStatus(router, "first").getInt("misses"));
+            assertTrue(router.getTotalCount() <= 2);
+        }
+    }
+    
+    @Test
+    public void testStatusOrder() throws SQLException
+    {
+        try(TenantDataSources router = new TenantDataSources(TenantDataSourcesTest::resolve))
+        {
+            router.setMaximumConnections(2);
+            router.setBorrowTimeout(200);
+            
+            router.getConnection("older").close();
+            router.getConnection("newer").close();
+            router.getConnection("older").close();
+            
+            // Reading the status must not count as using the pools
+            assertEquals(2, router.getStatus().size());
+            
+            router.getConnection("third").close();
+            
+            assertEquals(1, getStatus(router, "newer").getInt("evictions"));
+            assertTrue(getStatus(router, "older").getBoolean("pooled"));
+        }
+    }
+    
+    @Test
+    public void testReclaimIdle() throws SQLException
+    {
+        try(TenantDataSources router = new TenantDataSources(TenantDataSourcesTest::resolve))
+        {
+            router.setMaximumConnections(2);
+            router.setBorrowTimeout(200);
+            
+            try(Connection busy = router.getConnection("busy"))
+            {
+                router.getConnection("busy").close();
+                
+                assertEquals(1, getStatus(router, "busy").getInt("idle"));
+                
+                // The busy pool can't be evicted, but its idle connection can be closed
+                try(Connection connection = router.getConnection("other"))
+                {
+                    assertTrue(getStatus(router, "busy").getBoolean("pooled"));
+                    assertEquals(0, getStatus(router, "busy").getInt("idle"));
+                    assertEquals(2, router.getTotalCount());
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testTenantLimit() throws SQLException
+    {
+        try(TenantDataSources router = new TenantDataSources(TenantDataSourcesTest::resolve))
+        {
+            router.setMaximumTenants(1);
+            
+            router.getConnection("a").close();
+            router.getConnection("b").close();
+            
+            assertEquals(1, router.getPoolCount());
+            assertEquals(1, router.getTotalCount());
+            assertEquals(1, getStatus(router, "a").getInt("evictions"));
+            assertEquals(0, getStatus(router, "b").getInt("evictions"));
+        }
+    }
+    
+    @Test
+    public void testUnknownTenant()
+    {
+        try(TenantDataSources router = new TenantDataSources(tenant -> { throw new IllegalArgumentException("No tenant " + tenant); }))
+        {
+            assertThrows(SQLException.class, () -> router.getConnection("missing"));
+            assertEquals(0, router.getPoolCount());
+        }
+    }
+}